@@ -0,0 +1,508 @@
+/**
+ * AttendanceLog.java
+ *
+ * Builds the weekly timesheets from a DTR (daily time record) or biometric log
+ * instead of the fixed sample times in setWeeklyTimesheet.
+ *
+ * Expected file format (one punch per line, 24-hour times):
+ * employeeId,date,timeIn,timeOut
+ *
+ * Example:
+ * 10001,06/02/2025,08:00,17:00
+ * 10001,06/03/2025,08:00,12:00
+ * 10001,06/03/2025,13:00,17:30
+ *
+ * Each punch's hours follow the same rule as addWorkDay (1 hour lunch break off
+ * any stretch of more than 5 hours), and an employee with several punches on a
+ * day gets the sum of them. Only Monday to Friday of one week is counted: the
+ * week given to the constructor, or the week of the first punch in the log.
+ * readWeeklyHours reads several consecutive weeks at once instead, for a
+ * MultiPeriodPayroll, and only keeps each employee's total hours per week.
+ *
+ * The log is read in a single pass. One thread parses the lines and hands the
+ * punches, in batches, to worker threads; which worker gets a punch depends on
+ * a hash of the employee ID, so all punches of one employee go to the same
+ * worker and no two workers ever add to the same employee's totals. The totals
+ * are kept per employee and day, so memory depends on the size of the roster,
+ * not on the number of punches.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+class AttendanceLog {
+    private static final int BATCH_SIZE = 4096;
+
+    // Batches waiting for each worker; the reader waits when a worker falls this far behind
+    private static final int QUEUE_CAPACITY = 16;
+
+    // Invalid lines printed one by one; the rest are only counted
+    private static final int MAX_WARNINGS = 10;
+
+    // Separator value meaning the number is the last field of the line
+    private static final int END_OF_LINE = -1;
+
+    private final Employee[] employees;
+    private final EmployeeIndex index;
+    private final int partitions;
+
+    // Totals per day and employee (index [day][position]); clock times are NaN until a punch is seen
+    private final double[][] hoursPerDay = new double[Employee.WORK_DAYS][];
+    private final double[][] firstClockIn = new double[Employee.WORK_DAYS][];
+    private final double[][] lastClockOut = new double[Employee.WORK_DAYS][];
+
+    // Total hours per week and employee (index [week][position]), only when reading several weeks
+    private double[][] weeklyHours;
+    private int weeks = 1;
+
+    // Epoch day of the Monday of the (first) payroll week (Long.MIN_VALUE until it is known)
+    private long weekStart = Long.MIN_VALUE;
+
+    // Statistics of the last read
+    private long punchCount;
+    private long invalidCount;
+    private long outsideWeekCount;
+    private long unknownEmployeeCount;
+    private long elapsedNanos;
+
+    /**
+     * Creates an attendance log reader for a roster
+     * @param employees The roster whose timesheets are set
+     * @param index Index from employee ID to position in the roster
+     * @param weekOf Any date in the payroll week (MM/dd/yyyy), or null for the week of the first punch
+     * @param parallelism Number of threads that add up the punches
+     */
+    AttendanceLog(Employee[] employees, EmployeeIndex index, String weekOf, int parallelism) {
+        this.employees = employees;
+        this.index = index;
+        this.partitions = Math.max(1, parallelism);
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            hoursPerDay[day] = new double[employees.length];
+            firstClockIn[day] = new double[employees.length];
+            lastClockOut[day] = new double[employees.length];
+            Arrays.fill(firstClockIn[day], Double.NaN);
+            Arrays.fill(lastClockOut[day], Double.NaN);
+        }
+        if (weekOf != null) {
+            String[] parts = weekOf.trim().split("/");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Week must be a date (MM/dd/yyyy): " + weekOf);
+            }
+            long epochDay = LocalDate.of(Integer.parseInt(parts[2]), Integer.parseInt(parts[0]),
+                    Integer.parseInt(parts[1])).toEpochDay();
+            weekStart = epochDay - dayOfWeek(epochDay);
+        }
+    }
+
+    /**
+     * Reads the log and sets every employee's timesheet from it
+     * Days without a punch get 0 hours.
+     * @param filename The name of the log file
+     * @throws IOException If there's an error reading the file
+     */
+    void read(String filename) throws IOException {
+        long start = System.nanoTime();
+        readPunches(filename);
+
+        // Copy the totals into the employees' timesheets
+        for (int i = 0; i < employees.length; i++) {
+            if (employees[i] == null) {
+                continue;
+            }
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                double clockIn = firstClockIn[day][i];
+                if (Double.isNaN(clockIn)) {
+                    employees[i].recordWorkDay(day, 0, 0, 0);
+                } else {
+                    employees[i].recordWorkDay(day, clockIn, lastClockOut[day][i], hoursPerDay[day][i]);
+                }
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Reads several consecutive payroll weeks from the log, starting with the payroll week
+     * The employees' timesheets are not changed; instead each employee's hours are
+     * added up per week (punch by punch, Monday to Friday only).
+     * @param filename The name of the log file
+     * @param periods Number of weeks to read
+     * @return Total hours per week and employee (index [week][position])
+     * @throws IOException If there's an error reading the file
+     */
+    double[][] readWeeklyHours(String filename, int periods) throws IOException {
+        long start = System.nanoTime();
+        weeks = Math.max(1, periods);
+        weeklyHours = new double[weeks][employees.length];
+        readPunches(filename);
+        elapsedNanos = System.nanoTime() - start;
+        return weeklyHours;
+    }
+
+    /**
+     * Reads every punch in the log and adds it to its employee's totals
+     */
+    private void readPunches(String filename) throws IOException {
+        Worker[] workers = new Worker[partitions > 1 ? partitions : 0];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+            workers[i].start();
+        }
+
+        PunchParser parser = new PunchParser(workers);
+        try {
+            ByteLineReader.readLines(filename, parser);
+            parser.finish();
+        } finally {
+            // Tell the workers there is nothing more and wait for them
+            for (Worker worker : workers) {
+                worker.stopWhenDone();
+            }
+            for (Worker worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading the attendance log", e);
+                }
+                unknownEmployeeCount += worker.unknownEmployees;
+            }
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                // A partition's totals are incomplete
+                throw worker.failure;
+            }
+        }
+        punchCount = parser.punches;
+        invalidCount = parser.invalid;
+        if (invalidCount > MAX_WARNINGS) {
+            System.out.println("Warning: " + (invalidCount - MAX_WARNINGS) + " more invalid attendance records");
+        }
+        outsideWeekCount = parser.outsideWeek;
+        unknownEmployeeCount += parser.unknownEmployees;
+    }
+
+    /**
+     * Adds one punch to an employee's day (only ever called by the employee's own partition)
+     * @param day Days since the Monday of the first payroll week (always a work day)
+     */
+    private void addPunch(int position, int day, double clockIn, double clockOut) {
+        if (weeklyHours != null) {
+            weeklyHours[day / 7][position] += Employee.calculateHoursWorked(clockIn, clockOut);
+            return;
+        }
+        hoursPerDay[day][position] += Employee.calculateHoursWorked(clockIn, clockOut);
+        double first = firstClockIn[day][position];
+        if (Double.isNaN(first) || clockIn < first) {
+            firstClockIn[day][position] = clockIn;
+        }
+        double last = lastClockOut[day][position];
+        if (Double.isNaN(last) || clockOut > last) {
+            lastClockOut[day][position] = clockOut;
+        }
+    }
+
+    // Day of the week of an epoch day, 0 = Monday ... 6 = Sunday (1970-01-01 was a Thursday)
+    private static int dayOfWeek(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    // Spreads employee IDs evenly over the partitions
+    private static int partitionOf(int employeeId, int partitions) {
+        int h = employeeId * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), partitions);
+    }
+
+    // Statistics of the last read
+    long getPunchCount() {
+        return punchCount;
+    }
+
+    long getSkippedCount() {
+        return invalidCount + outsideWeekCount + unknownEmployeeCount;
+    }
+
+    long getUnknownEmployeeCount() {
+        return unknownEmployeeCount;
+    }
+
+    long getOutsideWeekCount() {
+        return outsideWeekCount;
+    }
+
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Punches read per second during the last read
+     */
+    double getPunchesPerSecond() {
+        return elapsedNanos > 0 ? punchCount / (elapsedNanos / 1e9) : 0;
+    }
+
+    /**
+     * A batch of parsed punches, reused once a worker is done with it
+     */
+    private static class PunchBatch {
+        final int[] employeeIds = new int[BATCH_SIZE];
+        final short[] days = new short[BATCH_SIZE];
+        final double[] clockIns = new double[BATCH_SIZE];
+        final double[] clockOuts = new double[BATCH_SIZE];
+        int size;
+    }
+
+    // Sent to a worker when there are no more batches
+    private static final PunchBatch END = new PunchBatch();
+
+    /**
+     * Adds up the punches of one partition of the employees
+     */
+    private class Worker extends Thread {
+        final BlockingQueue<PunchBatch> batches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final BlockingQueue<PunchBatch> emptyBatches = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+        long unknownEmployees;
+        volatile RuntimeException failure;  // Set if adding up a batch failed
+
+        Worker() {
+            super("attendance-log-worker");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    PunchBatch batch = batches.take();
+                    if (batch == END) {
+                        return;
+                    }
+                    if (failure == null) {
+                        try {
+                            addBatch(batch);
+                        } catch (RuntimeException e) {
+                            // Keep taking (and dropping) batches until END, so the reader never
+                            // blocks on this queue; the reader throws the failure
+                            failure = e;
+                        }
+                    }
+                    batch.size = 0;
+                    emptyBatches.offer(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void addBatch(PunchBatch batch) {
+            for (int i = 0; i < batch.size; i++) {
+                int position = index.find(batch.employeeIds[i]);
+                if (position < 0) {
+                    unknownEmployees++;
+                } else {
+                    addPunch(position, batch.days[i], batch.clockIns[i], batch.clockOuts[i]);
+                }
+            }
+        }
+
+        void send(PunchBatch batch) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            try {
+                batches.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading the attendance log", e);
+            }
+        }
+
+        PunchBatch emptyBatch() {
+            PunchBatch batch = emptyBatches.poll();
+            return batch != null ? batch : new PunchBatch();
+        }
+
+        void stopWhenDone() {
+            try {
+                batches.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupt();
+            }
+        }
+    }
+
+    /**
+     * Line handler that parses each punch and passes it to its employee's partition
+     */
+    private class PunchParser implements ByteLineReader.LineHandler {
+        private final Charset charset = Charset.defaultCharset();
+        private final Worker[] workers;
+        private final PunchBatch[] pending;
+        private long punches;
+        private long invalid;
+        private long outsideWeek;
+        private long unknownEmployees;
+        private IOException sendError;
+
+        // The last date parsed (logs are usually sorted by date, so it is often the same)
+        private int lastMonth = -1;
+        private int lastDay = -1;
+        private int lastYear = -1;
+        private long lastEpochDay;
+
+        // Fields of the line being parsed
+        private int pos;
+        private int end;
+
+        PunchParser(Worker[] workers) {
+            this.workers = workers;
+            this.pending = new PunchBatch[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                pending[i] = workers[i].emptyBatch();
+            }
+        }
+
+        @Override
+        public boolean handleLine(ByteBuffer buffer, int start, int lineEnd, long fileOffset) {
+            // Skip empty lines
+            if (ByteLineReader.trimStart(buffer, start, lineEnd) == lineEnd) {
+                return true;
+            }
+
+            pos = start;
+            end = lineEnd;
+            int employeeId = number(buffer, ',', 10);
+            int month = number(buffer, '/', 2);
+            int dayOfMonth = number(buffer, '/', 2);
+            int year = number(buffer, ',', 4);
+            int inHour = number(buffer, ':', 2);
+            int inMinute = number(buffer, ',', 2);
+            int outHour = number(buffer, ':', 2);
+            int outMinute = number(buffer, END_OF_LINE, 2);
+            if (outMinute < 0 || employeeId < 0 || month < 0 || dayOfMonth < 0 || year < 0 || inHour < 0
+                    || inMinute < 0 || outHour < 0 || inHour > 24 || inMinute > 59 || outHour > 24 || outMinute > 59) {
+                return invalidLine(buffer, start, lineEnd);
+            }
+
+            long epochDay;
+            if (month == lastMonth && dayOfMonth == lastDay && year == lastYear) {
+                epochDay = lastEpochDay;
+            } else {
+                try {
+                    epochDay = LocalDate.of(year, month, dayOfMonth).toEpochDay();
+                } catch (DateTimeException e) {
+                    return invalidLine(buffer, start, lineEnd);
+                }
+                lastMonth = month;
+                lastDay = dayOfMonth;
+                lastYear = year;
+                lastEpochDay = epochDay;
+            }
+
+            // The payroll week is the week of the first punch unless it was given
+            if (weekStart == Long.MIN_VALUE) {
+                weekStart = epochDay - dayOfWeek(epochDay);
+            }
+            long day = epochDay - weekStart;
+            punches++;
+            if (day < 0 || day >= 7L * weeks || day % 7 >= Employee.WORK_DAYS) {
+                outsideWeek++;
+                return true;
+            }
+
+            double clockIn = inHour + inMinute / 60.0;
+            double clockOut = outHour + outMinute / 60.0;
+            if (workers.length == 0) {
+                // No worker threads: add the punch here
+                int position = index.find(employeeId);
+                if (position < 0) {
+                    unknownEmployees++;
+                } else {
+                    addPunch(position, (int) day, clockIn, clockOut);
+                }
+                return true;
+            }
+
+            int partition = partitionOf(employeeId, workers.length);
+            PunchBatch batch = pending[partition];
+            batch.employeeIds[batch.size] = employeeId;
+            batch.days[batch.size] = (short) day;
+            batch.clockIns[batch.size] = clockIn;
+            batch.clockOuts[batch.size] = clockOut;
+            if (++batch.size == BATCH_SIZE) {
+                try {
+                    workers[partition].send(batch);
+                } catch (IOException e) {
+                    sendError = e;
+                    return false;
+                }
+                pending[partition] = workers[partition].emptyBatch();
+            }
+            return true;
+        }
+
+        /**
+         * Sends the partly filled batches after the last line
+         */
+        void finish() throws IOException {
+            if (sendError != null) {
+                throw sendError;
+            }
+            for (int i = 0; i < workers.length; i++) {
+                if (pending[i].size > 0) {
+                    workers[i].send(pending[i]);
+                }
+            }
+        }
+
+        private boolean invalidLine(ByteBuffer buffer, int start, int lineEnd) {
+            if (++invalid <= MAX_WARNINGS) {
+                System.out.println("Warning: Invalid attendance record: " + ByteLineReader.decode(buffer, start, lineEnd, charset));
+            }
+            return true;
+        }
+
+        /**
+         * Reads an unsigned number up to a separator (or up to END_OF_LINE), skipping spaces around it
+         * @return The number, or -1 if the field is missing, empty, too long or not a number
+         */
+        private int number(ByteBuffer buffer, int separator, int maxDigits) {
+            while (pos < end && buffer.get(pos) == ' ') {
+                pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (pos < end) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                digits++;
+                pos++;
+            }
+            while (pos < end && (buffer.get(pos) & 0xFF) <= ' ') {
+                pos++;
+            }
+            if (digits == 0 || digits > maxDigits || value > Integer.MAX_VALUE) {
+                return -1;
+            }
+            if (separator == END_OF_LINE) {
+                return pos == end ? (int) value : -1;
+            }
+            if (pos >= end || buffer.get(pos) != separator) {
+                return -1;
+            }
+            pos++;
+            return (int) value;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * ByteLineReader.java
+ *
+ * Reads a text file line by line through NIO using one reusable direct buffer.
+ * Each line is handed to a LineHandler as a byte range inside the buffer, so the
+ * caller can parse the fields straight from the bytes without creating a String
+ * for every line. Line endings follow BufferedReader.readLine(): "\n", "\r" or "\r\n".
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+class ByteLineReader {
+    // Default size of the read buffer (1 MB); it grows only if a single line is longer
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Callback that receives one line at a time
+     */
+    interface LineHandler {
+        /**
+         * Handle one line of the file
+         * @param buffer Buffer holding the line (read it with absolute get methods only)
+         * @param start Index of the first byte of the line in the buffer
+         * @param end Index just past the last byte of the line (line terminator excluded)
+         * @param fileOffset Position of the first byte of the line in the file
+         * @return true to keep reading, false to stop after this line
+         */
+        boolean handleLine(ByteBuffer buffer, int start, int end, long fileOffset);
+    }
+
+    /**
+     * Reads every line of a file from the beginning
+     * @param filename The name of the file to read
+     * @param handler Receives each line
+     * @return Number of lines handed to the handler
+     * @throws IOException If there's an error reading the file
+     */
+    static long readLines(String filename, LineHandler handler) throws IOException {
+        return readLines(filename, 0, handler);
+    }
+
+    /**
+     * Reads the lines of a file starting at a given byte offset
+     * @param filename The name of the file to read
+     * @param startOffset Byte offset of the first line to read (must be the start of a line)
+     * @param handler Receives each line
+     * @return Number of lines handed to the handler
+     * @throws IOException If there's an error reading the file
+     */
+    static long readLines(String filename, long startOffset, LineHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            channel.position(startOffset);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+            long bufferFileOffset = startOffset; // File position of buffer index 0
+            long lineCount = 0;
+            boolean endOfFile = false;
+
+            while (!endOfFile) {
+                // Fill the free part of the buffer; -1 means there is nothing left to read
+                endOfFile = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                int lineStart = 0;
+                int i = 0;
+
+                // Hand every complete line in the buffer to the handler
+                while (i < limit) {
+                    byte b = buffer.get(i);
+                    if (b != '\n' && b != '\r') {
+                        i++;
+                        continue;
+                    }
+
+                    int next = i + 1;
+                    if (b == '\r') {
+                        // A '\r' at the end of the buffer may be the first half of "\r\n"
+                        if (next == limit && !endOfFile) {
+                            break;
+                        }
+                        if (next < limit && buffer.get(next) == '\n') {
+                            next++;
+                        }
+                    }
+
+                    lineCount++;
+                    if (!handler.handleLine(buffer, lineStart, i, bufferFileOffset + lineStart)) {
+                        return lineCount;
+                    }
+                    lineStart = next;
+                    i = next;
+                }
+
+                if (endOfFile) {
+                    // The last line of the file may not end with a line terminator
+                    if (lineStart < limit) {
+                        lineCount++;
+                        handler.handleLine(buffer, lineStart, limit, bufferFileOffset + lineStart);
+                    }
+                    break;
+                }
+
+                if (lineStart == 0 && limit == buffer.capacity()) {
+                    // One line fills the whole buffer, so make the buffer bigger
+                    ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    // Move the unfinished line to the front of the buffer
+                    buffer.limit(limit);
+                    buffer.position(lineStart);
+                    buffer.compact();
+                    bufferFileOffset += lineStart;
+                }
+            }
+            return lineCount;
+        }
+    }
+
+    /**
+     * Decodes part of a line into a String (used for names and warning messages)
+     * @param buffer Buffer holding the bytes
+     * @param start Index of the first byte
+     * @param end Index just past the last byte
+     * @param charset Character set of the file
+     * @return The decoded text
+     */
+    static String decode(ByteBuffer buffer, int start, int end, Charset charset) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Moves a start index forward past spaces and control characters, like String.trim()
+     * @return Index of the first byte that is not whitespace (or end)
+     */
+    static int trimStart(ByteBuffer buffer, int start, int end) {
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Moves an end index backward past spaces and control characters, like String.trim()
+     * @return Index just past the last byte that is not whitespace (or start)
+     */
+    static int trimEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
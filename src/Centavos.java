@@ -0,0 +1,127 @@
+/**
+ * Centavos.java
+ *
+ * Fixed-point money arithmetic for the payroll (--fixed-point). Amounts are a
+ * long number of centavos instead of a double number of pesos, so they are
+ * exact, and every division says how it is rounded. Nothing is allocated, so
+ * the calculation is as cheap as the double version.
+ *
+ * Rounding rules:
+ *   - Monthly salaries and table amounts are rounded to the nearest centavo when read
+ *   - Hours are counted in whole minutes (the day's hours rounded to the nearest minute)
+ *   - The hourly rate is kept to 1/100 of a centavo (monthly salary / 160 hours)
+ *   - Rates (contribution rates, tax rates, the overtime multiplier) are kept to
+ *     millionths, so 0.03 is 30000 and 1.5 is 1500000
+ *   - Every product or quotient is rounded to the nearest centavo, halves away
+ *     from zero, at the point where it becomes an amount: regular pay, overtime
+ *     pay, each contribution, the tax and each weekly deduction
+ *   - Totals (gross pay, total deductions, net pay) are sums of rounded amounts,
+ *     so they always add up exactly
+ *
+ * The results are stored in Employee and DeductionResult as doubles holding a
+ * whole number of centavos, so the reports and getters work unchanged.
+ */
+
+class Centavos {
+    /** Set once by --fixed-point before the payroll is calculated */
+    static boolean enabled;
+
+    // Scale of the hourly rate (1/100 centavo) and of rates (millionths)
+    static final long RATE_UNITS_PER_CENTAVO = 100;
+    static final long PARTS_PER_MILLION = 1_000_000;
+
+    private static final long MINUTES_PER_HOUR = 60;
+    private static final long STANDARD_WEEKLY_MINUTES = Math.round(Employee.STANDARD_WEEKLY_HOURS * MINUTES_PER_HOUR);
+    private static final long STANDARD_MONTHLY_HOURS = Math.round(Employee.STANDARD_MONTHLY_HOURS);
+    private static final long OVERTIME_RATE = rate(Employee.OVERTIME_RATE_MULTIPLIER);
+
+    // Weeks per month in hundredths (4.33 weeks is 433)
+    private static final long WEEKS_PER_MONTH_HUNDREDTHS = Math.round(Employee.WEEKS_PER_MONTH * 100);
+
+    private Centavos() {
+    }
+
+    /**
+     * Converts pesos to centavos, rounded to the nearest centavo
+     */
+    static long of(double pesos) {
+        return Math.round(pesos * 100);
+    }
+
+    /**
+     * Converts centavos to pesos
+     */
+    static double toPesos(long centavos) {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Converts a rate (e.g. 0.03) to millionths (30000)
+     */
+    static long rate(double rate) {
+        return Math.round(rate * PARTS_PER_MILLION);
+    }
+
+    /**
+     * Divides and rounds to the nearest whole number, halves away from zero
+     * @param dividend Any value
+     * @param divisor A positive value
+     */
+    static long divide(long dividend, long divisor) {
+        // Adding half the divisor before the (truncating) division rounds halves up
+        if (dividend >= 0) {
+            return (dividend + divisor / 2) / divisor;
+        }
+        return -((divisor / 2 - dividend) / divisor);
+    }
+
+    /**
+     * An amount times a rate in millionths, rounded to the nearest centavo
+     * @throws ArithmeticException If the product does not fit in a long
+     */
+    static long applyRate(long centavos, long rate) {
+        return divide(Math.multiplyExact(centavos, rate), PARTS_PER_MILLION);
+    }
+
+    /**
+     * Hourly rate of a monthly salary, in 1/100 centavo
+     */
+    static long hourlyRate(long monthlySalary) {
+        return divide(monthlySalary * RATE_UNITS_PER_CENTAVO, STANDARD_MONTHLY_HOURS);
+    }
+
+    /**
+     * Hours rounded to the nearest minute
+     */
+    static long minutes(double hours) {
+        return Math.round(hours * MINUTES_PER_HOUR);
+    }
+
+    /**
+     * Pay for the minutes up to the standard 40 hours
+     * @param minutes Minutes worked in the week
+     * @param hourlyRate Hourly rate in 1/100 centavo
+     */
+    static long regularPay(long minutes, long hourlyRate) {
+        long regularMinutes = Math.min(STANDARD_WEEKLY_MINUTES, minutes);
+        return divide(Math.multiplyExact(regularMinutes, hourlyRate), MINUTES_PER_HOUR * RATE_UNITS_PER_CENTAVO);
+    }
+
+    /**
+     * Pay for the minutes beyond the standard 40 hours, at the overtime rate
+     * @param minutes Minutes worked in the week
+     * @param hourlyRate Hourly rate in 1/100 centavo
+     */
+    static long overtimePay(long minutes, long hourlyRate) {
+        long overtimeMinutes = Math.max(0, minutes - STANDARD_WEEKLY_MINUTES);
+        return divide(Math.multiplyExact(Math.multiplyExact(overtimeMinutes, hourlyRate), OVERTIME_RATE),
+                MINUTES_PER_HOUR * RATE_UNITS_PER_CENTAVO * PARTS_PER_MILLION);
+    }
+
+    /**
+     * Weekly share of a monthly amount (monthly / 4.33), rounded to the nearest centavo
+     */
+    static long weekly(long monthly) {
+        return divide(monthly * 100, WEEKS_PER_MONTH_HUNDREDTHS);
+    }
+}
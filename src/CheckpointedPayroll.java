@@ -0,0 +1,349 @@
+/**
+ * CheckpointedPayroll.java
+ *
+ * Weekly payroll run that can be resumed after a crash instead of starting over.
+ * The employee file is streamed once; every employee is calculated and appended
+ * to a results file in the checkpoint folder. Every "interval" employees the
+ * results are forced to disk (one fsync per batch, not per employee) and a
+ * checkpoint records how far the run got: the byte offset of the next line of
+ * the employee file, the number of employees done and the length of the results
+ * file at that point.
+ *
+ * Started again with the same folder, the run truncates the results file to the
+ * checkpoint (dropping anything written after it), skips to the recorded offset
+ * of the employee file and carries on. The report is always written from the
+ * results file once every employee is calculated, so it is exactly the same as
+ * the report of an uninterrupted run; a crash while writing the report only
+ * writes the report again. Warnings for malformed lines before the checkpoint
+ * are not printed again.
+ *
+ * Files in the checkpoint folder:
+ *   results     one record per employee, in file order (big-endian):
+ *                 int    employeeId
+ *                 double monthlySalary, clockIn[5], clockOut[5]
+ *                 double totalHoursWorked, hourlyRate, weeklySalary, netSalary
+ *                 lastName, firstName, birthday: unsigned 2-byte length + UTF-8 bytes
+ *   checkpoint  magic "MPHC", version, whether every employee is done, the offset,
+ *               employee count and results length, the employee file's size and
+ *               modification time, and the options the run was started with
+ *               (2-byte length + UTF-8 bytes, including the size and modification
+ *               time of any schedule or policy file); a checkpoint for different
+ *               input or options is refused
+ * The checkpoint is written to a temporary file and renamed over the old one, so
+ * there is always one complete checkpoint.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+class CheckpointedPayroll {
+    static final int DEFAULT_INTERVAL = 100_000;
+
+    private static final int MAGIC = 0x4D504843;  // "MPHC"
+    private static final int VERSION = 2;
+    private static final int CHECKPOINT_SIZE = 3 * 4 + 5 * 8;  // Without the settings
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path folder;
+    private final Path resultsFile;
+    private final Path checkpointFile;
+    private final int interval;
+    private final byte[] settings;
+
+    // State of the last checkpoint
+    private boolean complete;
+    private long inputOffset;
+    private long employeeCount;
+    private long resultsLength;
+
+    // Progress since the last checkpoint
+    private FileChannel results;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long pendingEmployees;
+    private long pendingBytes;
+
+    // Statistics
+    private boolean resumed;
+    private long resumedEmployees;
+    private int checkpointCount;
+    private long checkpointNanos;
+
+    /**
+     * Creates a run that keeps its results and checkpoints in a folder
+     * @param folder The checkpoint folder (created if it does not exist)
+     * @param interval Number of employees between checkpoints
+     * @param settings The options that change the results, with anything that identifies the files they name
+     *                 (a checkpoint made with other settings is refused)
+     */
+    CheckpointedPayroll(String folder, int interval, String settings) {
+        this.folder = Paths.get(folder);
+        this.resultsFile = this.folder.resolve("results");
+        this.checkpointFile = this.folder.resolve("checkpoint");
+        this.interval = Math.max(1, interval);
+        this.settings = encode(settings);
+    }
+
+    /**
+     * Calculates every employee of the file not yet in the results, resuming from the last checkpoint
+     * @param filename The employee file
+     * @param timesheet Sets an employee's timesheet before the pay is calculated
+     * @return Number of employees in the results
+     * @throws IOException If a file cannot be read or written, or the checkpoint is for other input
+     */
+    long calculate(String filename, Consumer<Employee> timesheet) throws IOException {
+        Path input = Paths.get(filename);
+        long inputSize = Files.size(input);
+        long inputModified = Files.getLastModifiedTime(input).toMillis();
+
+        Files.createDirectories(folder);
+        if (Files.exists(checkpointFile)) {
+            readCheckpoint(inputSize, inputModified);
+            resumed = true;
+            resumedEmployees = employeeCount;
+        }
+        if (complete) {
+            return employeeCount;
+        }
+
+        results = FileChannel.open(resultsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            // Anything written after the last checkpoint is written again
+            results.truncate(resultsLength);
+            results.position(resultsLength);
+
+            EmployeeFileParser.parseRecords(filename, inputOffset, fileOffset -> {
+                if (pendingEmployees >= interval) {
+                    checkpoint(fileOffset, false, inputSize, inputModified);
+                }
+            }, (employeeId, lastName, firstName, birthday, monthlySalary) -> {
+                Employee emp = new Employee(employeeId, lastName, firstName, birthday, monthlySalary);
+                timesheet.accept(emp);
+                PayrollEngine.calculate(emp);
+                append(emp);
+            });
+            checkpoint(inputSize, true, inputSize, inputModified);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            results.close();
+        }
+        return employeeCount;
+    }
+
+    /**
+     * Writes the report rows and footer from the results file
+     * @param writer Receives the report (the header is written too)
+     * @throws IOException If the results cannot be read or the report cannot be written
+     */
+    void writeReport(PayrollReportWriter writer) throws IOException {
+        writer.writeReportHeader();
+        Employee firstEmployee = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(resultsFile), BUFFER_SIZE))) {
+            double[] clockIn = new double[Employee.WORK_DAYS];
+            double[] clockOut = new double[Employee.WORK_DAYS];
+            for (long i = 0; i < employeeCount; i++) {
+                int employeeId = in.readInt();
+                double monthlySalary = in.readDouble();
+                for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                    clockIn[day] = in.readDouble();
+                }
+                for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                    clockOut[day] = in.readDouble();
+                }
+                double totalHoursWorked = in.readDouble();
+                double hourlyRate = in.readDouble();
+                double weeklySalary = in.readDouble();
+                double netSalary = in.readDouble();
+                String lastName = readString(in);
+                String firstName = readString(in);
+                String birthday = readString(in);
+
+                if (firstEmployee == null) {
+                    // Calculated again for the detailed calculation, as for a snapshot
+                    firstEmployee = new Employee(employeeId, lastName, firstName, birthday, monthlySalary);
+                    for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                        firstEmployee.addWorkDay(day, clockIn[day], clockOut[day]);
+                    }
+                    PayrollEngine.calculate(firstEmployee);
+                }
+                writer.writeReportRow(employeeId, lastName, firstName, totalHoursWorked, hourlyRate,
+                        weeklySalary, netSalary);
+            }
+        } catch (EOFException e) {
+            throw new IOException(resultsFile + " is shorter than its checkpoint", e);
+        }
+        writer.writeReportFooter(firstEmployee);
+    }
+
+    long getEmployeeCount() {
+        return employeeCount;
+    }
+
+    /**
+     * Prints how the run resumed and how long the checkpoints took
+     */
+    void printStatistics() {
+        System.out.println("\nCHECKPOINTS (every " + interval + " employees, " + folder + ")");
+        System.out.println("========================================================================");
+        System.out.println("  Resumed: " + (resumed ? "yes, after " + resumedEmployees + " employees" : "no"));
+        System.out.println("  Employees: " + employeeCount);
+        System.out.printf("  Results file: %.1f MB\n", resultsLength / (1024.0 * 1024.0));
+        System.out.printf("  Checkpoints written: %d, %.3f ms in total, %.3f ms each\n", checkpointCount,
+                checkpointNanos / 1_000_000.0, checkpointCount == 0 ? 0 : checkpointNanos / 1_000_000.0 / checkpointCount);
+        System.out.println("========================================================================");
+    }
+
+    /**
+     * Adds one calculated employee to the results (written to the file when the buffer is full)
+     */
+    private void append(Employee emp) {
+        byte[] lastName = encode(emp.getLastName());
+        byte[] firstName = encode(emp.getFirstName());
+        byte[] birthday = encode(emp.getBirthday());
+        int size = 4 + 8 * (5 + 2 * Employee.WORK_DAYS) + 6 + lastName.length + firstName.length + birthday.length;
+        if (buffer.remaining() < size) {
+            writeBuffer();
+        }
+
+        buffer.putInt(emp.getEmployeeId());
+        buffer.putDouble(emp.getMonthlySalary());
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            buffer.putDouble(emp.getClockInTime(day));
+        }
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            buffer.putDouble(emp.getClockOutTime(day));
+        }
+        buffer.putDouble(emp.getTotalHoursWorked());
+        buffer.putDouble(emp.getHourlyRate());
+        buffer.putDouble(emp.getWeeklySalary());
+        buffer.putDouble(emp.getNetSalary());
+        putString(lastName);
+        putString(firstName);
+        putString(birthday);
+        pendingEmployees++;
+        pendingBytes += size;
+    }
+
+    /**
+     * Makes everything appended so far durable and records it in a new checkpoint
+     * @param nextOffset Offset of the first line of the employee file not yet calculated
+     * @param done Whether every employee is calculated
+     */
+    private void checkpoint(long nextOffset, boolean done, long inputSize, long inputModified) {
+        long start = System.nanoTime();
+        try {
+            writeBuffer();
+            results.force(false);
+
+            ByteBuffer state = ByteBuffer.allocate(CHECKPOINT_SIZE + 2 + settings.length);
+            state.putInt(MAGIC).putInt(VERSION).putInt(done ? 1 : 0);
+            state.putLong(nextOffset).putLong(employeeCount + pendingEmployees)
+                    .putLong(resultsLength + pendingBytes);
+            state.putLong(inputSize).putLong(inputModified);
+            state.putShort((short) settings.length).put(settings);
+            state.flip();
+
+            Path temporary = folder.resolve("checkpoint.tmp");
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (state.hasRemaining()) {
+                    out.write(state);
+                }
+                out.force(false);
+            }
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        complete = done;
+        inputOffset = nextOffset;
+        employeeCount += pendingEmployees;
+        resultsLength += pendingBytes;
+        pendingEmployees = 0;
+        pendingBytes = 0;
+        checkpointCount++;
+        checkpointNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Reads the last checkpoint and checks that it belongs to this input and these options
+     */
+    private void readCheckpoint(long inputSize, long inputModified) throws IOException {
+        ByteBuffer state = ByteBuffer.wrap(Files.readAllBytes(checkpointFile));
+        if (state.remaining() < CHECKPOINT_SIZE + 2 || state.getInt() != MAGIC) {
+            throw new IOException(checkpointFile + " is not a payroll checkpoint");
+        }
+        if (state.getInt() != VERSION) {
+            throw new IOException("The checkpoint in " + folder + " was written by another version of the payroll;"
+                    + " delete the folder to start over");
+        }
+        boolean done = state.getInt() != 0;
+        long offset = state.getLong();
+        long count = state.getLong();
+        long length = state.getLong();
+        boolean sameInput = state.getLong() == inputSize && state.getLong() == inputModified;
+        byte[] savedSettings = new byte[state.getShort() & 0xFFFF];
+        if (state.remaining() < savedSettings.length) {
+            throw new IOException(checkpointFile + " is not a payroll checkpoint");
+        }
+        state.get(savedSettings);
+        if (!sameInput || !Arrays.equals(savedSettings, settings)) {
+            throw new IOException("The checkpoint in " + folder + " was made for a different employee file or"
+                    + " different options; delete the folder to start over");
+        }
+        if (Files.size(resultsFile) < length) {
+            throw new IOException(resultsFile + " is shorter than its checkpoint");
+        }
+        complete = done;
+        inputOffset = offset;
+        employeeCount = count;
+        resultsLength = length;
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                results.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encode(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Text too long for the results file: " + text.length() + " characters");
+        }
+        return bytes;
+    }
+
+    private void putString(byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
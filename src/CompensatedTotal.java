@@ -0,0 +1,41 @@
+/**
+ * CompensatedTotal.java
+ *
+ * A running sum that also keeps the rounding error of each addition
+ * (Neumaier summation), so adding many amounts, or taking amounts out and
+ * putting them back many times, does not slowly move the total away from the
+ * real sum. Used for report totals (IncrementalPayroll, ShardedPayroll,
+ * PayrollAggregates).
+ */
+class CompensatedTotal {
+    private double sum;
+    private double compensation;
+
+    /**
+     * Adds an amount (a negative amount takes it out again)
+     */
+    void add(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - t) + value;
+        } else {
+            compensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+
+    /**
+     * Adds another total (e.g. one collected by a different thread)
+     */
+    void add(CompensatedTotal other) {
+        add(other.sum);
+        compensation += other.compensation;
+    }
+
+    /**
+     * The total of everything added so far
+     */
+    double value() {
+        return sum + compensation;
+    }
+}
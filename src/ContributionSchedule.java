@@ -0,0 +1,535 @@
+/**
+ * ContributionSchedule.java
+ *
+ * Government contribution and withholding tax tables used by the payroll.
+ * The tables are read once (from "Contribution Schedule.txt" or the built-in
+ * defaults) and turned into flat lookup arrays:
+ *   - SSS: one array entry per 500-peso bracket, found with a single division
+ *   - PhilHealth, Pag-IBIG and withholding tax: a sorted array of bracket
+ *     boundaries searched with a binary search
+ *
+ * Every table is also kept in centavos (and rates in millionths) for the
+ * fixed-point calculation; see Centavos for the rounding rules.
+ *
+ * The flat arrays can also be read directly (e.g. by VectorPayrollKernel, which
+ * evaluates the brackets for several salaries at once); they must not be changed.
+ *
+ * A schedule never changes after it is built, so one instance is shared by all
+ * employees and threads. A new year's tables can be swapped in with setCurrent()
+ * without changing the Employee class.
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+class ContributionSchedule {
+    // The current (2024) schedule, in the same format as "Contribution Schedule.txt"
+    private static final String[] DEFAULT_SCHEDULE = {
+        "sss.floor = 3250",
+        "sss.ceiling = 24750",
+        "sss.bracketWidth = 500",
+        "sss.belowFloor = 135.00",
+        "sss.firstBracket = 157.50",
+        "sss.bracketIncrement = 22.50",
+        "sss.atCeiling = 1125.00",
+        "philhealth = <=10000, 150.00, 0, 1, none",
+        "philhealth = <60000, 0, 0.03, 2, none",
+        "philhealth = *, 900.00, 0, 1, none",
+        "pagibig = <=1500, 0, 0.01, 1, none",
+        "pagibig = *, 0, 0.02, 1, 100",
+        "tax = <=20832, 0, 0, 0",
+        "tax = <33333, 0, 20833, 0.20",
+        "tax = <66667, 2500, 33333, 0.25",
+        "tax = <166667, 10833, 66667, 0.30",
+        "tax = <666667, 40833.33, 166667, 0.32",
+        "tax = *, 200833.33, 666667, 0.35"
+    };
+
+    // Schedule used by Employee.calculateDeductions (shared by all threads)
+    private static volatile ContributionSchedule current = defaultSchedule();
+
+    // SSS lookup: index 0 is below the floor, the last index is at or above the ceiling
+    private final double sssFloor;
+    private final double sssBracketWidth;
+    private final double[] sssTable;
+
+    private final RateTable philHealth;
+    private final RateTable pagibig;
+
+    // Withholding tax: tax = base + (taxable income - excess over) * rate
+    private final double[] taxBounds;
+    private final double[] taxBase;
+    private final double[] taxExcessOver;
+    private final double[] taxRate;
+
+    // The same tables in centavos, with rates in millionths (for Centavos)
+    private final long sssFloorCentavos;
+    private final long sssBracketWidthCentavos;
+    private final long[] sssTableCentavos;
+    private final long[] taxBoundsCentavos;
+    private final long[] taxBaseCentavos;
+    private final long[] taxExcessOverCentavos;
+    private final long[] taxRateMillionths;
+
+    private ContributionSchedule(double sssFloor, double sssBracketWidth, double[] sssTable,
+            RateTable philHealth, RateTable pagibig, Bracket[] tax) {
+        this.sssFloor = sssFloor;
+        this.sssBracketWidth = sssBracketWidth;
+        this.sssTable = sssTable;
+        this.philHealth = philHealth;
+        this.pagibig = pagibig;
+        this.taxBounds = searchBounds(tax);
+        this.taxBase = new double[tax.length];
+        this.taxExcessOver = new double[tax.length];
+        this.taxRate = new double[tax.length];
+        for (int i = 0; i < tax.length; i++) {
+            taxBase[i] = tax[i].values[0];
+            taxExcessOver[i] = tax[i].values[1];
+            taxRate[i] = tax[i].values[2];
+        }
+
+        this.sssFloorCentavos = Centavos.of(sssFloor);
+        this.sssBracketWidthCentavos = Centavos.of(sssBracketWidth);
+        this.sssTableCentavos = new long[sssTable.length];
+        for (int i = 0; i < sssTable.length; i++) {
+            sssTableCentavos[i] = Centavos.of(sssTable[i]);
+        }
+        this.taxBoundsCentavos = searchBoundsCentavos(tax);
+        this.taxBaseCentavos = new long[tax.length];
+        this.taxExcessOverCentavos = new long[tax.length];
+        this.taxRateMillionths = new long[tax.length];
+        for (int i = 0; i < tax.length; i++) {
+            taxBaseCentavos[i] = Centavos.of(tax[i].values[0]);
+            taxExcessOverCentavos[i] = Centavos.of(tax[i].values[1]);
+            taxRateMillionths[i] = Centavos.rate(tax[i].values[2]);
+        }
+    }
+
+    /**
+     * Gets the schedule currently used for payroll calculations
+     */
+    static ContributionSchedule current() {
+        return current;
+    }
+
+    /**
+     * Replaces the schedule used for payroll calculations (e.g. with a new year's tables)
+     * @param schedule The new schedule
+     */
+    static void setCurrent(ContributionSchedule schedule) {
+        current = schedule;
+    }
+
+    /**
+     * Gets the built-in schedule (the tables this payroll system has always used)
+     */
+    static ContributionSchedule defaultSchedule() {
+        StringBuilder text = new StringBuilder();
+        for (String line : DEFAULT_SCHEDULE) {
+            text.append(line).append('\n');
+        }
+        try {
+            return parse(new BufferedReader(new StringReader(text.toString())), "built-in schedule");
+        } catch (IOException e) {
+            throw new IllegalStateException("Built-in contribution schedule is invalid", e);
+        }
+    }
+
+    /**
+     * Loads a schedule from a text file
+     * @param filename The name of the schedule file
+     * @return The compiled schedule
+     * @throws IOException If the file cannot be read or has an invalid line
+     */
+    static ContributionSchedule load(String filename) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            return parse(reader, filename);
+        }
+    }
+
+    /**
+     * Monthly SSS contribution for a monthly salary
+     */
+    double sssContribution(double monthlySalary) {
+        // Bracket number + 1, limited to the table (below the floor gives 0, at the ceiling the last entry)
+        double bracket = Math.floor((monthlySalary - sssFloor) / sssBracketWidth) + 1;
+        int index = (int) Math.max(0, Math.min(sssTable.length - 1, bracket));
+        return sssTable[index];
+    }
+
+    /**
+     * Monthly PhilHealth contribution (employee share) for a monthly salary
+     */
+    double philHealthContribution(double monthlySalary) {
+        return philHealth.contribution(monthlySalary);
+    }
+
+    /**
+     * Monthly Pag-IBIG contribution (employee share) for a monthly salary
+     */
+    double pagibigContribution(double monthlySalary) {
+        return pagibig.contribution(monthlySalary);
+    }
+
+    /**
+     * Monthly withholding tax for a taxable income
+     */
+    double withholdingTax(double taxableIncome) {
+        int bracket = findBracket(taxBounds, taxableIncome);
+        return taxBase[bracket] + ((taxableIncome - taxExcessOver[bracket]) * taxRate[bracket]);
+    }
+
+    /**
+     * Monthly SSS contribution in centavos for a monthly salary in centavos
+     */
+    long sssContributionCentavos(long monthlySalary) {
+        long bracket = Math.floorDiv(monthlySalary - sssFloorCentavos, sssBracketWidthCentavos) + 1;
+        int index = (int) Math.max(0, Math.min(sssTableCentavos.length - 1, bracket));
+        return sssTableCentavos[index];
+    }
+
+    /**
+     * Monthly PhilHealth contribution in centavos for a monthly salary in centavos
+     */
+    long philHealthContributionCentavos(long monthlySalary) {
+        return philHealth.contributionCentavos(monthlySalary);
+    }
+
+    /**
+     * Monthly Pag-IBIG contribution in centavos for a monthly salary in centavos
+     */
+    long pagibigContributionCentavos(long monthlySalary) {
+        return pagibig.contributionCentavos(monthlySalary);
+    }
+
+    /**
+     * Monthly withholding tax in centavos for a taxable income in centavos
+     */
+    long withholdingTaxCentavos(long taxableIncome) {
+        int bracket = findBracket(taxBoundsCentavos, taxableIncome);
+        return taxBaseCentavos[bracket]
+                + Centavos.applyRate(taxableIncome - taxExcessOverCentavos[bracket], taxRateMillionths[bracket]);
+    }
+
+    /**
+     * PhilHealth contribution table
+     */
+    RateTable philHealthTable() {
+        return philHealth;
+    }
+
+    /**
+     * Pag-IBIG contribution table
+     */
+    RateTable pagibigTable() {
+        return pagibig;
+    }
+
+    /**
+     * Withholding tax bracket bounds (first taxable income of each bracket after the first)
+     */
+    double[] taxBounds() {
+        return taxBounds;
+    }
+
+    /**
+     * Withholding tax base amount of each bracket
+     */
+    double[] taxBase() {
+        return taxBase;
+    }
+
+    /**
+     * Withholding tax "excess over" amount of each bracket
+     */
+    double[] taxExcessOver() {
+        return taxExcessOver;
+    }
+
+    /**
+     * Withholding tax rate of each bracket
+     */
+    double[] taxRate() {
+        return taxRate;
+    }
+
+    /**
+     * Contribution table where each bracket is: fixed amount + salary * rate / divisor, up to a cap
+     * The bracket of a salary is the number of bounds less than or equal to it.
+     */
+    static class RateTable {
+        final double[] bounds;
+        final double[] fixedAmounts;
+        final double[] rates;
+        final double[] divisors;
+        final double[] caps;
+
+        // In centavos; rate / divisor is kept as one rate in millionths
+        private final long[] boundsCentavos;
+        private final long[] fixedCentavos;
+        private final long[] ratesMillionths;
+        private final long[] capsCentavos;
+
+        RateTable(Bracket[] brackets) {
+            bounds = searchBounds(brackets);
+            fixedAmounts = new double[brackets.length];
+            rates = new double[brackets.length];
+            divisors = new double[brackets.length];
+            caps = new double[brackets.length];
+            for (int i = 0; i < brackets.length; i++) {
+                // A zero fixed amount is stored as -0.0, which leaves the rate part exactly as it is
+                fixedAmounts[i] = brackets[i].values[0] == 0 ? -0.0 : brackets[i].values[0];
+                rates[i] = brackets[i].values[1];
+                divisors[i] = brackets[i].values[2];
+                caps[i] = brackets[i].values[3];
+            }
+
+            boundsCentavos = searchBoundsCentavos(brackets);
+            fixedCentavos = new long[brackets.length];
+            ratesMillionths = new long[brackets.length];
+            capsCentavos = new long[brackets.length];
+            for (int i = 0; i < brackets.length; i++) {
+                fixedCentavos[i] = Centavos.of(brackets[i].values[0]);
+                ratesMillionths[i] = Centavos.rate(brackets[i].values[1] / brackets[i].values[2]);
+                capsCentavos[i] = caps[i] == Double.POSITIVE_INFINITY ? Long.MAX_VALUE : Centavos.of(caps[i]);
+            }
+        }
+
+        double contribution(double monthlySalary) {
+            int bracket = findBracket(bounds, monthlySalary);
+            return Math.min(caps[bracket], fixedAmounts[bracket] + (monthlySalary * rates[bracket]) / divisors[bracket]);
+        }
+
+        long contributionCentavos(long monthlySalary) {
+            int bracket = findBracket(boundsCentavos, monthlySalary);
+            return Math.min(capsCentavos[bracket],
+                    fixedCentavos[bracket] + Centavos.applyRate(monthlySalary, ratesMillionths[bracket]));
+        }
+    }
+
+    /**
+     * One bracket line of the schedule file before it is compiled
+     */
+    private static class Bracket {
+        final double upperBound;       // Infinity for the last bracket
+        final boolean boundIncluded;   // true for "<=", false for "<"
+        final double[] values;
+
+        Bracket(double upperBound, boolean boundIncluded, double[] values) {
+            this.upperBound = upperBound;
+            this.boundIncluded = boundIncluded;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Number of bounds that are less than or equal to the value, which is the bracket index
+     */
+    private static int findBracket(double[] bounds, double value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bounds[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Number of bounds that are less than or equal to the value (centavo tables)
+     */
+    private static int findBracket(long[] bounds, long value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bounds[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The bracket bounds in centavos: a "<=" bound starts the next bracket one centavo later
+     */
+    private static long[] searchBoundsCentavos(Bracket[] brackets) {
+        long[] bounds = new long[brackets.length - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            Bracket bracket = brackets[i];
+            bounds[i] = Centavos.of(bracket.upperBound) + (bracket.boundIncluded ? 1 : 0);
+        }
+        return bounds;
+    }
+
+    /**
+     * Turns the bracket upper bounds into "first value of the next bracket" so a
+     * single <= comparison works for both "<=" and "<" bounds
+     */
+    private static double[] searchBounds(Bracket[] brackets) {
+        double[] bounds = new double[brackets.length - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            Bracket bracket = brackets[i];
+            bounds[i] = bracket.boundIncluded ? Math.nextUp(bracket.upperBound) : bracket.upperBound;
+        }
+        return bounds;
+    }
+
+    /**
+     * Reads the lines of a schedule and compiles them into lookup tables
+     * Lines are "key = value"; blank lines and lines starting with # are ignored.
+     */
+    private static ContributionSchedule parse(BufferedReader reader, String source) throws IOException {
+        double[] sss = new double[7];
+        boolean[] sssFound = new boolean[7];
+        String[] sssKeys = {"sss.floor", "sss.ceiling", "sss.bracketWidth", "sss.belowFloor",
+                "sss.firstBracket", "sss.bracketIncrement", "sss.atCeiling"};
+        List<Bracket> philHealth = new ArrayList<>();
+        List<Bracket> pagibig = new ArrayList<>();
+        List<Bracket> tax = new ArrayList<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw invalidLine(source, lineNumber, line);
+            }
+            String key = line.substring(0, equals).trim();
+            String value = line.substring(equals + 1).trim();
+
+            try {
+                if (key.equals("philhealth")) {
+                    philHealth.add(parseBracket(value, 4));
+                } else if (key.equals("pagibig")) {
+                    pagibig.add(parseBracket(value, 4));
+                } else if (key.equals("tax")) {
+                    tax.add(parseBracket(value, 3));
+                } else {
+                    int index = indexOf(sssKeys, key);
+                    if (index < 0) {
+                        throw invalidLine(source, lineNumber, line);
+                    }
+                    sss[index] = Double.parseDouble(value);
+                    sssFound[index] = true;
+                }
+            } catch (NumberFormatException e) {
+                throw invalidLine(source, lineNumber, line);
+            }
+        }
+
+        for (int i = 0; i < sssKeys.length; i++) {
+            if (!sssFound[i]) {
+                throw new IOException(source + ": missing " + sssKeys[i]);
+            }
+        }
+        checkBrackets(source, "philhealth", philHealth);
+        checkBrackets(source, "pagibig", pagibig);
+        checkBrackets(source, "tax", tax);
+
+        return new ContributionSchedule(sss[0], sss[2], buildSSSTable(source, sss),
+                new RateTable(philHealth.toArray(new Bracket[0])),
+                new RateTable(pagibig.toArray(new Bracket[0])),
+                tax.toArray(new Bracket[0]));
+    }
+
+    /**
+     * Builds the SSS lookup array: [below floor, bracket 0, bracket 1, ..., at ceiling]
+     */
+    private static double[] buildSSSTable(String source, double[] sss) throws IOException {
+        double floor = sss[0];
+        double ceiling = sss[1];
+        double width = sss[2];
+        double brackets = (ceiling - floor) / width;
+        if (width <= 0 || brackets < 1 || brackets != Math.floor(brackets)) {
+            throw new IOException(source + ": sss.ceiling - sss.floor must be a multiple of sss.bracketWidth");
+        }
+
+        int bracketCount = (int) brackets;
+        double[] table = new double[bracketCount + 2];
+        table[0] = sss[3];
+        for (int bracket = 0; bracket < bracketCount; bracket++) {
+            // The base contribution for the first bracket plus a fixed increment per bracket
+            table[bracket + 1] = sss[4] + (bracket * sss[5]);
+        }
+        table[bracketCount + 1] = sss[6];
+        return table;
+    }
+
+    /**
+     * Parses "<=10000, 150.00, 0, 1, none": an upper bound followed by the bracket values
+     * ("*" is the open-ended last bracket and "none" means no cap)
+     */
+    private static Bracket parseBracket(String value, int valueCount) {
+        String[] parts = value.split(",");
+        if (parts.length != valueCount + 1) {
+            throw new NumberFormatException("Expected " + (valueCount + 1) + " values");
+        }
+
+        String bound = parts[0].trim();
+        double upperBound;
+        boolean boundIncluded;
+        if (bound.equals("*")) {
+            upperBound = Double.POSITIVE_INFINITY;
+            boundIncluded = false;
+        } else if (bound.startsWith("<=")) {
+            upperBound = Double.parseDouble(bound.substring(2).trim());
+            boundIncluded = true;
+        } else if (bound.startsWith("<")) {
+            upperBound = Double.parseDouble(bound.substring(1).trim());
+            boundIncluded = false;
+        } else {
+            throw new NumberFormatException("Bracket bound must start with <= or <");
+        }
+
+        double[] values = new double[valueCount];
+        for (int i = 0; i < valueCount; i++) {
+            String part = parts[i + 1].trim();
+            values[i] = part.equals("none") ? Double.POSITIVE_INFINITY : Double.parseDouble(part);
+        }
+        return new Bracket(upperBound, boundIncluded, values);
+    }
+
+    /**
+     * Checks that brackets are listed from lowest to highest and end with an open "*" bracket
+     */
+    private static void checkBrackets(String source, String name, List<Bracket> brackets) throws IOException {
+        if (brackets.isEmpty() || brackets.get(brackets.size() - 1).upperBound != Double.POSITIVE_INFINITY) {
+            throw new IOException(source + ": the last " + name + " bracket must be \"*\"");
+        }
+        for (int i = 1; i < brackets.size(); i++) {
+            if (brackets.get(i).upperBound <= brackets.get(i - 1).upperBound) {
+                throw new IOException(source + ": " + name + " brackets must be in increasing order");
+            }
+        }
+    }
+
+    private static IOException invalidLine(String source, int lineNumber, String line) {
+        return new IOException(source + ": invalid line " + lineNumber + ": " + line);
+    }
+
+    private static int indexOf(String[] keys, String key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * DeductionCache.java
+ *
+ * Bounded, thread-safe cache of DeductionResult objects keyed by monthly salary.
+ * Many employees share the same salary grade, so a payroll run only needs to
+ * calculate the deductions once per distinct salary.
+ *
+ * The cache is a fixed-size table where each salary hashes to a set of two
+ * slots. A new result goes into the first slot and moves the previous one to
+ * the second slot; whatever was in the second slot is evicted. Results never
+ * change after they are created, so threads can read and replace slots without
+ * locks. A result calculated with an older ContributionSchedule is treated as a
+ * miss, so swapping the schedule never returns stale deductions.
+ */
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class DeductionCache {
+    // Default number of cached salaries
+    static final int DEFAULT_CAPACITY = 4096;
+
+    // Largest power of two an array can hold
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private static volatile DeductionCache shared = new DeductionCache(DEFAULT_CAPACITY);
+
+    private final AtomicReferenceArray<DeductionResult> slots;  // null when the cache is disabled
+    private final int setMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding up to the given number of salaries
+     * @param capacity Maximum number of cached salaries (0 disables caching, rounded up to a power of two
+     *                 and at most 2^30)
+     */
+    DeductionCache(int capacity) {
+        if (capacity <= 0) {
+            slots = null;
+            setMask = 0;
+            return;
+        }
+        // Round up to a power of two with at least one set of two slots
+        int size = Math.max(2, Integer.highestOneBit(Math.min(capacity, MAX_CAPACITY) - 1) << 1);
+        slots = new AtomicReferenceArray<>(size);
+        setMask = size / 2 - 1;
+    }
+
+    /**
+     * Gets the cache used by Employee.calculateDeductions
+     */
+    static DeductionCache shared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the shared cache (e.g. with a different capacity)
+     * @param cache The new cache
+     */
+    static void setShared(DeductionCache cache) {
+        shared = cache;
+    }
+
+    /**
+     * Gets the deductions for a monthly salary, calculating them only if they are not cached
+     * @param monthlySalary The employee's monthly salary
+     * @return The deductions for that salary under the current contribution schedule
+     */
+    DeductionResult lookup(double monthlySalary) {
+        ContributionSchedule schedule = ContributionSchedule.current();
+        if (slots == null) {
+            misses.increment();
+            return new DeductionResult(monthlySalary, schedule);
+        }
+
+        int first = indexOf(monthlySalary);
+        DeductionResult recent = slots.get(first);
+        if (recent != null && recent.matches(monthlySalary, schedule)) {
+            hits.increment();
+            return recent;
+        }
+        DeductionResult older = slots.get(first + 1);
+        if (older != null && older.matches(monthlySalary, schedule)) {
+            hits.increment();
+            return older;
+        }
+
+        // Not cached: calculate it and make it the most recent entry of its set
+        misses.increment();
+        DeductionResult result = new DeductionResult(monthlySalary, schedule);
+        if (older != null) {
+            evictions.increment();
+        }
+        slots.set(first + 1, recent);
+        slots.set(first, result);
+        return result;
+    }
+
+    private int indexOf(double monthlySalary) {
+        long bits = Double.doubleToLongBits(monthlySalary);
+        // Mix the bits so salaries that differ only in low or high bits spread across sets
+        bits *= 0x9E3779B97F4A7C15L;
+        int hash = (int) (bits ^ (bits >>> 32));
+        return (hash & setMask) << 1;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Prints the hit, miss and eviction counters
+     */
+    void printStatistics() {
+        long hitCount = getHits();
+        long lookups = hitCount + getMisses();
+        double hitRate = lookups == 0 ? 0 : 100.0 * hitCount / lookups;
+        System.out.printf("  Deduction cache: %d lookups, %d hits (%.1f%%), %d misses, %d evictions\n",
+                lookups, hitCount, hitRate, getMisses(), getEvictions());
+    }
+}
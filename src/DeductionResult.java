@@ -0,0 +1,147 @@
+/**
+ * DeductionResult.java
+ *
+ * The government deductions for one monthly salary: monthly SSS, PhilHealth,
+ * Pag-IBIG and withholding tax, and the same amounts converted to weekly values.
+ * Deductions depend only on the monthly salary (and the contribution schedule),
+ * so one result can be shared by every employee with the same salary.
+ * With Centavos.enabled the amounts are calculated in whole centavos.
+ */
+class DeductionResult {
+    // All amounts zero (an employee whose deductions have not been calculated yet)
+    static final DeductionResult NONE = new DeductionResult();
+
+    final double monthlySalary;
+    final ContributionSchedule schedule;  // Schedule the amounts were calculated with
+    final boolean fixedPoint;             // Calculated in centavos (Centavos.enabled)
+
+    // Monthly deductions
+    final double monthlySSS;              // Monthly SSS contribution
+    final double monthlyPhilHealth;       // Monthly PhilHealth contribution
+    final double monthlyPagibig;          // Monthly Pag-IBIG contribution
+    final double totalMonthlyDeductions;  // Total monthly deductions before tax
+    final double taxableIncome;           // Taxable income after deductions
+    final double monthlyTax;              // Monthly withholding tax
+
+    // Weekly deductions
+    final double weeklySSS;               // Weekly SSS contribution
+    final double weeklyPhilHealth;        // Weekly PhilHealth contribution
+    final double weeklyPagibig;           // Weekly Pag-IBIG contribution
+    final double weeklyTax;               // Weekly withholding tax
+    final double totalDeductions;         // Total weekly deductions
+
+    private DeductionResult() {
+        monthlySalary = 0;
+        schedule = null;
+        fixedPoint = false;
+        monthlySSS = 0;
+        monthlyPhilHealth = 0;
+        monthlyPagibig = 0;
+        totalMonthlyDeductions = 0;
+        taxableIncome = 0;
+        monthlyTax = 0;
+        weeklySSS = 0;
+        weeklyPhilHealth = 0;
+        weeklyPagibig = 0;
+        weeklyTax = 0;
+        totalDeductions = 0;
+    }
+
+    /**
+     * Creates a result from amounts calculated earlier (e.g. read back from a PayrollSnapshot)
+     * The result is not tied to a schedule, so the DeductionCache never hands it out.
+     */
+    DeductionResult(double monthlySalary, double monthlySSS, double monthlyPhilHealth, double monthlyPagibig,
+            double totalMonthlyDeductions, double taxableIncome, double monthlyTax, double weeklySSS,
+            double weeklyPhilHealth, double weeklyPagibig, double weeklyTax, double totalDeductions) {
+        this.monthlySalary = monthlySalary;
+        this.schedule = null;
+        this.fixedPoint = false;
+        this.monthlySSS = monthlySSS;
+        this.monthlyPhilHealth = monthlyPhilHealth;
+        this.monthlyPagibig = monthlyPagibig;
+        this.totalMonthlyDeductions = totalMonthlyDeductions;
+        this.taxableIncome = taxableIncome;
+        this.monthlyTax = monthlyTax;
+        this.weeklySSS = weeklySSS;
+        this.weeklyPhilHealth = weeklyPhilHealth;
+        this.weeklyPagibig = weeklyPagibig;
+        this.weeklyTax = weeklyTax;
+        this.totalDeductions = totalDeductions;
+    }
+
+    /**
+     * Calculates the deductions for a monthly salary
+     * @param monthlySalary The employee's monthly salary
+     * @param schedule The contribution and tax tables to use
+     */
+    DeductionResult(double monthlySalary, ContributionSchedule schedule) {
+        this.monthlySalary = monthlySalary;
+        this.schedule = schedule;
+        this.fixedPoint = Centavos.enabled;
+
+        if (fixedPoint) {
+            // The same steps in whole centavos, rounding each amount (see Centavos)
+            long salary = Centavos.of(monthlySalary);
+            long sss = schedule.sssContributionCentavos(salary);
+            long philHealth = schedule.philHealthContributionCentavos(salary);
+            long pagibig = schedule.pagibigContributionCentavos(salary);
+            long totalMonthly = sss + philHealth + pagibig;
+            long taxable = salary - totalMonthly;
+            long tax = schedule.withholdingTaxCentavos(taxable);
+            long weeklySSSCentavos = Centavos.weekly(sss);
+            long weeklyPhilHealthCentavos = Centavos.weekly(philHealth);
+            long weeklyPagibigCentavos = Centavos.weekly(pagibig);
+            long weeklyTaxCentavos = Centavos.weekly(tax);
+
+            monthlySSS = Centavos.toPesos(sss);
+            monthlyPhilHealth = Centavos.toPesos(philHealth);
+            monthlyPagibig = Centavos.toPesos(pagibig);
+            totalMonthlyDeductions = Centavos.toPesos(totalMonthly);
+            taxableIncome = Centavos.toPesos(taxable);
+            monthlyTax = Centavos.toPesos(tax);
+            weeklySSS = Centavos.toPesos(weeklySSSCentavos);
+            weeklyPhilHealth = Centavos.toPesos(weeklyPhilHealthCentavos);
+            weeklyPagibig = Centavos.toPesos(weeklyPagibigCentavos);
+            weeklyTax = Centavos.toPesos(weeklyTaxCentavos);
+            totalDeductions = Centavos.toPesos(weeklySSSCentavos + weeklyPhilHealthCentavos
+                    + weeklyPagibigCentavos + weeklyTaxCentavos);
+            return;
+        }
+
+        // Calculate monthly SSS contribution (using the SSS contribution table)
+        monthlySSS = schedule.sssContribution(monthlySalary);
+
+        // Calculate monthly PhilHealth contribution (using the PhilHealth rates)
+        monthlyPhilHealth = schedule.philHealthContribution(monthlySalary);
+
+        // Calculate monthly Pag-IBIG contribution (using the Pag-IBIG rates)
+        monthlyPagibig = schedule.pagibigContribution(monthlySalary);
+
+        // Calculate total monthly deductions (before tax)
+        totalMonthlyDeductions = monthlySSS + monthlyPhilHealth + monthlyPagibig;
+
+        // Calculate taxable income
+        taxableIncome = monthlySalary - totalMonthlyDeductions;
+
+        // Calculate monthly withholding tax (using the withholding tax table)
+        monthlyTax = schedule.withholdingTax(taxableIncome);
+
+        // Convert monthly deductions to weekly
+        weeklySSS = monthlySSS / Employee.WEEKS_PER_MONTH;
+        weeklyPhilHealth = monthlyPhilHealth / Employee.WEEKS_PER_MONTH;
+        weeklyPagibig = monthlyPagibig / Employee.WEEKS_PER_MONTH;
+        weeklyTax = monthlyTax / Employee.WEEKS_PER_MONTH;
+
+        // Calculate total weekly deductions
+        totalDeductions = weeklySSS + weeklyPhilHealth + weeklyPagibig + weeklyTax;
+    }
+
+    /**
+     * Checks whether this result is for the given salary and schedule (and the current arithmetic)
+     */
+    boolean matches(double monthlySalary, ContributionSchedule schedule) {
+        return this.schedule == schedule && this.fixedPoint == Centavos.enabled
+                && Double.doubleToLongBits(this.monthlySalary) == Double.doubleToLongBits(monthlySalary);
+    }
+}
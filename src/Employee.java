@@ -0,0 +1,364 @@
+/**
+ * Employee class to represent employee information and weekly salary calculations
+ */
+class Employee {
+    private int employeeId;
+    private String lastName;
+    private String firstName;
+    private String birthday;
+    private double monthlySalary;
+    
+    // Arrays to store time data for each work day (index 0-4 for Monday-Friday)
+    private double[] clockInTimes = new double[WORK_DAYS];
+    private double[] clockOutTimes = new double[WORK_DAYS];
+    private double[] hoursPerDay = new double[WORK_DAYS];
+    private double totalHoursWorked;
+    
+    // Salary calculation properties
+    private double hourlyRate;
+    private double regularPay;    // Pay for first 40 hours
+    private double overtimePay;   // Pay for hours over 40
+    private double premiumPay;    // Night differential and rest-day pay (see PayPolicy)
+    private double weeklySalary;  // Total weekly salary
+    
+    // Government deductions, shared by every employee with the same monthly salary
+    // (null while a lazy lookup is pending, see lazyDeductions)
+    private DeductionResult deductions = DeductionResult.NONE;
+    private double netSalary;           // Net weekly salary after deductions (NaN: work it out on read)
+    
+    // Change tracking: set when the timesheet changes after the salary was calculated
+    private boolean dirty = true;
+    private TimesheetListener timesheetListener;
+    private int listenerPosition;
+    
+    // Standard work week constants
+    static final int WORK_DAYS = 5;                     // Monday to Friday
+    static final double STANDARD_WEEKLY_HOURS = 40.0;
+    static final double OVERTIME_RATE_MULTIPLIER = 1.5;
+    static final double STANDARD_MONTHLY_HOURS = 160.0; // 40 hours × 4 weeks
+    static final double WEEKS_PER_MONTH = 4.33;        // Average weeks per month
+    
+    /**
+     * Set by --lazy: calculateDeductions() only marks the deductions as needed, and
+     * they are looked up in the DeductionCache the first time a getter reads them.
+     * The net salary is then worked out from the current weekly salary on every read.
+     */
+    static boolean lazyDeductions;
+    
+    /**
+     * Receives the roster position of an employee whose timesheet changed
+     * (called once per change, until the salary is calculated again)
+     */
+    interface TimesheetListener {
+        void timesheetChanged(int position);
+    }
+    
+    /**
+     * Constructor for Employee class with basic information
+     */
+    public Employee(int employeeId, String lastName, String firstName, String birthday, double monthlySalary) {
+        this.employeeId = employeeId;
+        this.lastName = lastName;
+        this.firstName = firstName;
+        this.birthday = birthday;
+        this.monthlySalary = monthlySalary;
+        
+        // Calculate the hourly rate based on monthly salary
+        this.hourlyRate = monthlySalary / STANDARD_MONTHLY_HOURS;
+    }
+    
+    /**
+     * Add a work day to the employee's timesheet
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @param clockInTime Clock in time in decimal hours (e.g., 8.5 = 8:30 AM)
+     * @param clockOutTime Clock out time in decimal hours (e.g., 17.5 = 5:30 PM)
+     */
+    public void addWorkDay(int dayIndex, double clockInTime, double clockOutTime) {
+        // Calculate hours worked for this day
+        recordWorkDay(dayIndex, clockInTime, clockOutTime, calculateHoursWorked(clockInTime, clockOutTime));
+    }
+    
+    /**
+     * Set a work day whose hours were already worked out (e.g. from several punches in an attendance log)
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @param clockInTime First clock in time of the day in decimal hours
+     * @param clockOutTime Last clock out time of the day in decimal hours
+     * @param hoursWorked Hours worked for the day, lunch breaks already deducted
+     */
+    void recordWorkDay(int dayIndex, double clockInTime, double clockOutTime, double hoursWorked) {
+        if (dayIndex >= 0 && dayIndex < WORK_DAYS) {
+            clockInTimes[dayIndex] = clockInTime;
+            clockOutTimes[dayIndex] = clockOutTime;
+            hoursPerDay[dayIndex] = hoursWorked;
+            
+            // The calculated salary no longer matches the timesheet
+            if (!dirty) {
+                dirty = true;
+                if (timesheetListener != null) {
+                    timesheetListener.timesheetChanged(listenerPosition);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Tells a listener when this employee's timesheet changes after the salary was calculated
+     * @param listener Receives the position (null to stop listening)
+     * @param position The employee's position in the roster, passed to the listener
+     */
+    void setTimesheetListener(TimesheetListener listener, int position) {
+        this.timesheetListener = listener;
+        this.listenerPosition = position;
+    }
+    
+    /**
+     * Whether the timesheet changed since the weekly salary was last calculated
+     * @return true if calculateWeeklySalary needs to run again
+     */
+    boolean isDirty() {
+        return dirty;
+    }
+    
+    /**
+     * Calculate the hours worked in one day, less the lunch break (see PayPolicy)
+     * @param clockInTime Clock in time in decimal hours
+     * @param clockOutTime Clock out time in decimal hours
+     * @return Hours worked for the day
+     */
+    static double calculateHoursWorked(double clockInTime, double clockOutTime) {
+        return PayRules.hoursWorked(clockInTime, clockOutTime);
+    }
+    
+    /**
+     * Calculate the employee's weekly salary based on hours worked
+     */
+    public void calculateWeeklySalary() {
+        // Reset total hours
+        totalHoursWorked = 0;
+        
+        // Sum up hours from all work days
+        for (double hours : hoursPerDay) {
+            totalHoursWorked += hours;
+        }
+        
+        if (Centavos.enabled) {
+            // Calculate the pay in whole centavos instead (see Centavos for the rounding rules)
+            long minutes = Centavos.minutes(totalHoursWorked);
+            long rate = Centavos.hourlyRate(Centavos.of(monthlySalary));
+            long regularCentavos = Centavos.regularPay(minutes, rate);
+            long overtimeCentavos = Centavos.overtimePay(minutes, rate);
+            regularPay = Centavos.toPesos(regularCentavos);
+            overtimePay = Centavos.toPesos(overtimeCentavos);
+            weeklySalary = Centavos.toPesos(regularCentavos + overtimeCentavos);
+            premiumPay = 0;
+            dirty = false;
+            return;
+        }
+        
+        // Calculate regular pay (up to the policy's standard week, 40 hours by default)
+        regularPay = PayRules.regularPay(totalHoursWorked, hourlyRate);
+        
+        // Calculate overtime pay (hours beyond the standard week at the overtime rate)
+        overtimePay = PayRules.overtimePay(totalHoursWorked, hourlyRate);
+        
+        // Night differential and rest-day pay, if the policy has them
+        premiumPay = 0;
+        for (int day = 0; day < WORK_DAYS; day++) {
+            premiumPay += PayRules.premiumPay(day, clockInTimes[day], clockOutTimes[day], hoursPerDay[day], hourlyRate);
+        }
+        
+        // Calculate total weekly salary
+        weeklySalary = regularPay + overtimePay;
+        if (premiumPay != 0) {
+            weeklySalary += premiumPay;
+        }
+        dirty = false;
+    }
+    
+    /**
+     * Calculate government deductions based on monthly salary
+     * Deductions depend only on the monthly salary, so they come from the shared
+     * DeductionCache and are calculated once per distinct salary. With
+     * lazyDeductions they are not looked up until a getter needs them.
+     */
+    public void calculateDeductions() {
+        if (lazyDeductions) {
+            deductions = null;
+            netSalary = Double.NaN;
+            return;
+        }
+        deductions = DeductionCache.shared().lookup(monthlySalary);
+        
+        // Calculate net salary
+        netSalary = netSalary(weeklySalary, deductions);
+    }
+    
+    /**
+     * Sets results that were calculated earlier instead of calculating them again
+     * (e.g. read back from a PayrollSnapshot). The timesheet must already be set.
+     */
+    void restoreResults(double totalHoursWorked, double regularPay, double overtimePay, double premiumPay,
+            double weeklySalary, DeductionResult deductions, double netSalary) {
+        this.totalHoursWorked = totalHoursWorked;
+        this.regularPay = regularPay;
+        this.overtimePay = overtimePay;
+        this.premiumPay = premiumPay;
+        this.weeklySalary = weeklySalary;
+        this.deductions = deductions;
+        this.netSalary = netSalary;
+        this.dirty = false;
+    }
+    
+    /**
+     * Gets the deductions, looking them up first if a lazy lookup is pending
+     * Two threads may both look them up; they get the same (immutable) result.
+     */
+    private DeductionResult deductions() {
+        DeductionResult result = deductions;
+        if (result == null) {
+            result = DeductionCache.shared().lookup(monthlySalary);
+            deductions = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Weekly salary less the total weekly deductions
+     */
+    private static double netSalary(double weeklySalary, DeductionResult deductions) {
+        if (deductions.fixedPoint) {
+            return Centavos.toPesos(Centavos.of(weeklySalary) - Centavos.of(deductions.totalDeductions));
+        }
+        return weeklySalary - deductions.totalDeductions;
+    }
+    
+    /**
+     * Get hours worked for a specific day
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @return Hours worked for that day
+     */
+    public double getDailyHours(int dayIndex) {
+        if (dayIndex >= 0 && dayIndex < WORK_DAYS) {
+            return hoursPerDay[dayIndex];
+        }
+        return 0;
+    }
+
+    /**
+     * Get the clock in time for a specific day
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @return Clock in time in decimal hours
+     */
+    double getClockInTime(int dayIndex) {
+        return clockInTimes[dayIndex];
+    }
+
+    /**
+     * Get the clock out time for a specific day
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @return Clock out time in decimal hours
+     */
+    double getClockOutTime(int dayIndex) {
+        return clockOutTimes[dayIndex];
+    }
+
+    // Getters for salary calculations
+    public double getTotalHoursWorked() {
+        return totalHoursWorked;
+    }
+    
+    public double getRegularPay() {
+        return regularPay;
+    }
+    
+    public double getOvertimePay() {
+        return overtimePay;
+    }
+    
+    public double getPremiumPay() {
+        return premiumPay;
+    }
+    
+    public double getWeeklySalary() {
+        return weeklySalary;
+    }
+    
+    // Getters for monthly deductions
+    public double getMonthlySSS() {
+        return deductions().monthlySSS;
+    }
+    
+    public double getMonthlyPhilHealth() {
+        return deductions().monthlyPhilHealth;
+    }
+    
+    public double getMonthlyPagibig() {
+        return deductions().monthlyPagibig;
+    }
+    
+    public double getTotalMonthlyDeductions() {
+        return deductions().totalMonthlyDeductions;
+    }
+    
+    public double getTaxableIncome() {
+        return deductions().taxableIncome;
+    }
+    
+    public double getMonthlyTax() {
+        return deductions().monthlyTax;
+    }
+    
+    // Getters for weekly deductions
+    public double getWeeklySSS() {
+        return deductions().weeklySSS;
+    }
+    
+    public double getWeeklyPhilHealth() {
+        return deductions().weeklyPhilHealth;
+    }
+    
+    public double getWeeklyPagibig() {
+        return deductions().weeklyPagibig;
+    }
+    
+    public double getWeeklyTax() {
+        return deductions().weeklyTax;
+    }
+    
+    public double getTotalDeductions() {
+        return deductions().totalDeductions;
+    }
+    
+    public double getNetSalary() {
+        if (Double.isNaN(netSalary)) {
+            // Lazy: always matches the weekly salary, even if it was calculated again since
+            return netSalary(weeklySalary, deductions());
+        }
+        return netSalary;
+    }
+    
+    // Getters for basic employee information
+    public int getEmployeeId() {
+        return employeeId;
+    }
+    
+    public String getLastName() {
+        return lastName;
+    }
+    
+    public String getFirstName() {
+        return firstName;
+    }
+    
+    public String getBirthday() {
+        return birthday;
+    }
+    
+    public double getMonthlySalary() {
+        return monthlySalary;
+    }
+    
+    public double getHourlyRate() {
+        return hourlyRate;
+    }
+}
\ No newline at end of file
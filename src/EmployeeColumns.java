@@ -0,0 +1,335 @@
+/**
+ * EmployeeColumns.java
+ *
+ * Column-oriented (struct-of-arrays) employee roster. Instead of one Employee
+ * object per person, every field is stored in its own primitive array, with
+ * index i holding employee i. The payroll calculations run as simple loops over
+ * these arrays, which keeps the data the loop needs close together in memory.
+ *
+ * The calculations use the same formulas, in the same order, as Employee, so the
+ * results are exactly the same. getEmployee(i) builds an Employee for the report
+ * and detailed-calculation code.
+ *
+ * The calculation loops can be replaced by a PayrollKernel (--vector), which
+ * works on the same arrays, so the timesheet and result arrays are package-private.
+ */
+
+import java.util.Arrays;
+
+class EmployeeColumns {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** Set by --vector; null uses the scalar loops below */
+    static PayrollKernel kernel;
+
+    private int size;
+    private int capacity;
+
+    // Employee information
+    private int[] employeeIds;
+    private String[] lastNames;
+    private String[] firstNames;
+    private String[] birthdays;
+    double[] monthlySalaries;
+    double[] hourlyRates;
+
+    // Timesheet data, one array per work day (index [day][employee])
+    private double[][] clockInTimes = new double[Employee.WORK_DAYS][];
+    private double[][] clockOutTimes = new double[Employee.WORK_DAYS][];
+    double[][] hoursPerDay = new double[Employee.WORK_DAYS][];
+
+    // Salary calculation results
+    double[] totalHoursWorked;
+    double[] regularPay;
+    double[] overtimePay;
+    double[] weeklySalary;
+
+    // Government deduction results
+    double[] monthlySSS;
+    double[] monthlyPhilHealth;
+    double[] monthlyPagibig;
+    double[] totalMonthlyDeductions;
+    double[] taxableIncome;
+    double[] monthlyTax;
+    double[] weeklySSS;
+    double[] weeklyPhilHealth;
+    double[] weeklyPagibig;
+    double[] weeklyTax;
+    double[] totalDeductions;
+    double[] netSalary;
+
+    /**
+     * Creates an empty roster that grows as employees are added
+     */
+    EmployeeColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty roster with room for the given number of employees
+     * @param initialCapacity Expected number of employees
+     */
+    EmployeeColumns(int initialCapacity) {
+        capacity = Math.max(1, initialCapacity);
+        employeeIds = new int[capacity];
+        lastNames = new String[capacity];
+        firstNames = new String[capacity];
+        birthdays = new String[capacity];
+        monthlySalaries = new double[capacity];
+        hourlyRates = new double[capacity];
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            clockInTimes[day] = new double[capacity];
+            clockOutTimes[day] = new double[capacity];
+            hoursPerDay[day] = new double[capacity];
+        }
+        totalHoursWorked = new double[capacity];
+        regularPay = new double[capacity];
+        overtimePay = new double[capacity];
+        weeklySalary = new double[capacity];
+        monthlySSS = new double[capacity];
+        monthlyPhilHealth = new double[capacity];
+        monthlyPagibig = new double[capacity];
+        totalMonthlyDeductions = new double[capacity];
+        taxableIncome = new double[capacity];
+        monthlyTax = new double[capacity];
+        weeklySSS = new double[capacity];
+        weeklyPhilHealth = new double[capacity];
+        weeklyPagibig = new double[capacity];
+        weeklyTax = new double[capacity];
+        totalDeductions = new double[capacity];
+        netSalary = new double[capacity];
+    }
+
+    /**
+     * Adds an employee to the roster
+     * @return Index of the new employee
+     */
+    int add(int employeeId, String lastName, String firstName, String birthday, double monthlySalary) {
+        if (size == capacity) {
+            grow();
+        }
+        int i = size++;
+        employeeIds[i] = employeeId;
+        lastNames[i] = lastName;
+        firstNames[i] = firstName;
+        birthdays[i] = birthday;
+        monthlySalaries[i] = monthlySalary;
+
+        // Calculate the hourly rate based on monthly salary
+        hourlyRates[i] = monthlySalary / Employee.STANDARD_MONTHLY_HOURS;
+        return i;
+    }
+
+    /**
+     * Adds an existing Employee's information to the roster
+     * @return Index of the new employee
+     */
+    int add(Employee emp) {
+        return add(emp.getEmployeeId(), emp.getLastName(), emp.getFirstName(), emp.getBirthday(), emp.getMonthlySalary());
+    }
+
+    /**
+     * Add a work day to an employee's timesheet
+     * @param index Index of the employee in the roster
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @param clockInTime Clock in time in decimal hours (e.g., 8.5 = 8:30 AM)
+     * @param clockOutTime Clock out time in decimal hours (e.g., 17.5 = 5:30 PM)
+     */
+    void addWorkDay(int index, int dayIndex, double clockInTime, double clockOutTime) {
+        if (dayIndex >= 0 && dayIndex < Employee.WORK_DAYS) {
+            clockInTimes[dayIndex][index] = clockInTime;
+            clockOutTimes[dayIndex][index] = clockOutTime;
+            hoursPerDay[dayIndex][index] = Employee.calculateHoursWorked(clockInTime, clockOutTime);
+        }
+    }
+
+    /**
+     * Calculates weekly salaries and deductions for every employee in the roster
+     */
+    void calculatePayroll() {
+        calculateRange(0, size);
+    }
+
+    /**
+     * Calculates weekly salaries and deductions for a range of employees
+     * Different ranges touch different array elements, so ranges can be calculated in parallel.
+     * @param from Index of the first employee (inclusive)
+     * @param to Index after the last employee (exclusive)
+     */
+    void calculateRange(int from, int to) {
+        if (kernel != null && !Centavos.enabled) {
+            kernel.calculateRange(this, from, to);
+        } else {
+            calculateWeeklySalaries(from, to);
+            calculateDeductions(from, to);
+        }
+        if (PayrollMetrics.enabled) {
+            PayrollMetrics.employeesCalculated(to - from);
+        }
+    }
+
+    private void calculateWeeklySalaries(int from, int to) {
+        // Sum up hours from all work days (same order as Employee.calculateWeeklySalary)
+        Arrays.fill(totalHoursWorked, from, to, 0);
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            double[] hours = hoursPerDay[day];
+            for (int i = from; i < to; i++) {
+                totalHoursWorked[i] += hours[i];
+            }
+        }
+
+        if (Centavos.enabled) {
+            calculateWeeklySalariesInCentavos(from, to);
+            return;
+        }
+
+        for (int i = from; i < to; i++) {
+            // Calculate regular pay (up to standard 40 hours)
+            double regularHours = Math.min(Employee.STANDARD_WEEKLY_HOURS, totalHoursWorked[i]);
+            regularPay[i] = regularHours * hourlyRates[i];
+
+            // Calculate overtime pay (hours beyond standard 40 hours at overtime rate)
+            double overtimeHours = Math.max(0, totalHoursWorked[i] - Employee.STANDARD_WEEKLY_HOURS);
+            overtimePay[i] = overtimeHours * hourlyRates[i] * Employee.OVERTIME_RATE_MULTIPLIER;
+
+            // Calculate total weekly salary
+            weeklySalary[i] = regularPay[i] + overtimePay[i];
+        }
+    }
+
+    // Same as Employee.calculateWeeklySalary with Centavos.enabled
+    private void calculateWeeklySalariesInCentavos(int from, int to) {
+        for (int i = from; i < to; i++) {
+            long minutes = Centavos.minutes(totalHoursWorked[i]);
+            long rate = Centavos.hourlyRate(Centavos.of(monthlySalaries[i]));
+            long regularCentavos = Centavos.regularPay(minutes, rate);
+            long overtimeCentavos = Centavos.overtimePay(minutes, rate);
+            regularPay[i] = Centavos.toPesos(regularCentavos);
+            overtimePay[i] = Centavos.toPesos(overtimeCentavos);
+            weeklySalary[i] = Centavos.toPesos(regularCentavos + overtimeCentavos);
+        }
+    }
+
+    private void calculateDeductions(int from, int to) {
+        DeductionCache cache = DeductionCache.shared();
+        for (int i = from; i < to; i++) {
+            DeductionResult deductions = cache.lookup(monthlySalaries[i]);
+            monthlySSS[i] = deductions.monthlySSS;
+            monthlyPhilHealth[i] = deductions.monthlyPhilHealth;
+            monthlyPagibig[i] = deductions.monthlyPagibig;
+            totalMonthlyDeductions[i] = deductions.totalMonthlyDeductions;
+            taxableIncome[i] = deductions.taxableIncome;
+            monthlyTax[i] = deductions.monthlyTax;
+            weeklySSS[i] = deductions.weeklySSS;
+            weeklyPhilHealth[i] = deductions.weeklyPhilHealth;
+            weeklyPagibig[i] = deductions.weeklyPagibig;
+            weeklyTax[i] = deductions.weeklyTax;
+            totalDeductions[i] = deductions.totalDeductions;
+        }
+
+        // Calculate net salary
+        if (Centavos.enabled) {
+            for (int i = from; i < to; i++) {
+                netSalary[i] = Centavos.toPesos(Centavos.of(weeklySalary[i]) - Centavos.of(totalDeductions[i]));
+            }
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            netSalary[i] = weeklySalary[i] - totalDeductions[i];
+        }
+    }
+
+    /**
+     * Builds an Employee object for one row of the roster
+     * The Employee gets the same timesheet and is calculated, so all its getters
+     * return the same values as the columns.
+     * @param index Index of the employee in the roster
+     * @return A new Employee holding the employee's information and results
+     */
+    Employee getEmployee(int index) {
+        Employee emp = new Employee(employeeIds[index], lastNames[index], firstNames[index],
+                birthdays[index], monthlySalaries[index]);
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            emp.addWorkDay(day, clockInTimes[day][index], clockOutTimes[day][index]);
+        }
+        emp.calculateWeeklySalary();
+        emp.calculateDeductions();
+        return emp;
+    }
+
+    private void grow() {
+        capacity *= 2;
+        employeeIds = Arrays.copyOf(employeeIds, capacity);
+        lastNames = Arrays.copyOf(lastNames, capacity);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        birthdays = Arrays.copyOf(birthdays, capacity);
+        monthlySalaries = Arrays.copyOf(monthlySalaries, capacity);
+        hourlyRates = Arrays.copyOf(hourlyRates, capacity);
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            clockInTimes[day] = Arrays.copyOf(clockInTimes[day], capacity);
+            clockOutTimes[day] = Arrays.copyOf(clockOutTimes[day], capacity);
+            hoursPerDay[day] = Arrays.copyOf(hoursPerDay[day], capacity);
+        }
+        totalHoursWorked = Arrays.copyOf(totalHoursWorked, capacity);
+        regularPay = Arrays.copyOf(regularPay, capacity);
+        overtimePay = Arrays.copyOf(overtimePay, capacity);
+        weeklySalary = Arrays.copyOf(weeklySalary, capacity);
+        monthlySSS = Arrays.copyOf(monthlySSS, capacity);
+        monthlyPhilHealth = Arrays.copyOf(monthlyPhilHealth, capacity);
+        monthlyPagibig = Arrays.copyOf(monthlyPagibig, capacity);
+        totalMonthlyDeductions = Arrays.copyOf(totalMonthlyDeductions, capacity);
+        taxableIncome = Arrays.copyOf(taxableIncome, capacity);
+        monthlyTax = Arrays.copyOf(monthlyTax, capacity);
+        weeklySSS = Arrays.copyOf(weeklySSS, capacity);
+        weeklyPhilHealth = Arrays.copyOf(weeklyPhilHealth, capacity);
+        weeklyPagibig = Arrays.copyOf(weeklyPagibig, capacity);
+        weeklyTax = Arrays.copyOf(weeklyTax, capacity);
+        totalDeductions = Arrays.copyOf(totalDeductions, capacity);
+        netSalary = Arrays.copyOf(netSalary, capacity);
+    }
+
+    // Getters for one employee's values
+    int size() {
+        return size;
+    }
+
+    int getEmployeeId(int index) {
+        return employeeIds[index];
+    }
+
+    String getLastName(int index) {
+        return lastNames[index];
+    }
+
+    String getFirstName(int index) {
+        return firstNames[index];
+    }
+
+    double getMonthlySalary(int index) {
+        return monthlySalaries[index];
+    }
+
+    double getHourlyRate(int index) {
+        return hourlyRates[index];
+    }
+
+    double getDailyHours(int index, int dayIndex) {
+        return hoursPerDay[dayIndex][index];
+    }
+
+    double getTotalHoursWorked(int index) {
+        return totalHoursWorked[index];
+    }
+
+    double getWeeklySalary(int index) {
+        return weeklySalary[index];
+    }
+
+    double getTotalDeductions(int index) {
+        return totalDeductions[index];
+    }
+
+    double getNetSalary(int index) {
+        return netSalary[index];
+    }
+}
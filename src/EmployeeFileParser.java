@@ -0,0 +1,287 @@
+/**
+ * EmployeeFileParser.java
+ *
+ * Streaming parser for the employee master file. Lines are read through
+ * ByteLineReader and the employee ID and monthly salary are parsed straight
+ * from the bytes, so the only Strings created per record are the name and
+ * birthday fields that the Employee object keeps. Every parsed employee is
+ * handed to the caller right away instead of collecting the whole roster first.
+ *
+ * Expected file format (same as MotorPHEmployeeSystem.readEmployeesFromFile):
+ * employeeId,lastName,firstName,birthday,monthlySalary
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+class EmployeeFileParser {
+    // Powers of ten that are exact as doubles (used by the fast decimal parser)
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest integer that a double holds exactly (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Only the first five fields are used by the payroll system
+    private static final int FIELD_COUNT = 5;
+
+    /**
+     * Receives the fields of each valid line without creating an Employee object
+     */
+    interface RecordHandler {
+        void record(int employeeId, String lastName, String firstName, String birthday, double monthlySalary);
+    }
+
+    /**
+     * Receives the file offset of each line before the line is parsed
+     * (everything before that offset has been handed to the RecordHandler)
+     */
+    interface LineListener {
+        void lineStarting(long fileOffset);
+    }
+
+    /**
+     * Parses the employee file and passes each valid employee to the consumer
+     * Malformed lines are reported with the same warnings as readEmployeesFromFile.
+     * @param filename The name of the text file to read
+     * @param consumer Receives each employee as soon as its line is parsed
+     * @return Number of employees passed to the consumer
+     * @throws IOException If there's an error reading the file
+     */
+    static long parse(String filename, Consumer<Employee> consumer) throws IOException {
+        return parseRecords(filename, (employeeId, lastName, firstName, birthday, monthlySalary) ->
+                consumer.accept(new Employee(employeeId, lastName, firstName, birthday, monthlySalary)));
+    }
+
+    /**
+     * Parses the employee file and passes the fields of each valid line to the handler
+     * @param filename The name of the text file to read
+     * @param handler Receives the fields of each line as soon as it is parsed
+     * @return Number of records passed to the handler
+     * @throws IOException If there's an error reading the file
+     */
+    static long parseRecords(String filename, RecordHandler handler) throws IOException {
+        return parseRecords(filename, 0, null, handler);
+    }
+
+    /**
+     * Parses the employee file from a byte offset, telling a listener where each line starts
+     * (used to resume a run from a checkpoint, see CheckpointedPayroll)
+     * @param filename The name of the text file to read
+     * @param startOffset Byte offset of the first line to read (must be the start of a line)
+     * @param listener Receives the offset of each line before it is parsed (may be null)
+     * @param handler Receives the fields of each line as soon as it is parsed
+     * @return Number of records passed to the handler
+     * @throws IOException If there's an error reading the file
+     */
+    static long parseRecords(String filename, long startOffset, LineListener listener, RecordHandler handler)
+            throws IOException {
+        LineParser parser = new LineParser(listener, handler, true);
+        ByteLineReader.readLines(filename, startOffset, parser);
+        return parser.recordCount;
+    }
+
+    /**
+     * Parses the employee file like parseRecords, but without warnings or metrics for malformed lines
+     * (for a first pass over a file that is parsed again afterwards, which reports them)
+     * @param filename The name of the text file to read
+     * @param handler Receives the fields of each valid line
+     * @return Number of records passed to the handler
+     * @throws IOException If there's an error reading the file
+     */
+    static long scanRecords(String filename, RecordHandler handler) throws IOException {
+        LineParser parser = new LineParser(null, handler, false);
+        ByteLineReader.readLines(filename, parser);
+        return parser.recordCount;
+    }
+
+    /**
+     * Line handler that turns the bytes of each line into employee fields
+     */
+    private static class LineParser implements ByteLineReader.LineHandler {
+        private final LineListener listener;
+        private final RecordHandler handler;
+        private final boolean report;  // Print warnings and count metrics
+        private final Charset charset = Charset.defaultCharset(); // Same charset FileReader uses
+        private final int[] fieldStarts = new int[FIELD_COUNT];
+        private final int[] fieldEnds = new int[FIELD_COUNT];
+        private long recordCount;
+
+        LineParser(LineListener listener, RecordHandler handler, boolean report) {
+            this.listener = listener;
+            this.handler = handler;
+            this.report = report;
+        }
+
+        @Override
+        public boolean handleLine(ByteBuffer buffer, int start, int end, long fileOffset) {
+            if (listener != null) {
+                listener.lineStarting(fileOffset);
+            }
+            if (parseRecord(buffer, start, end)) {
+                recordCount++;
+            }
+            return true;
+        }
+
+        /**
+         * Parses one line and passes its fields to the handler
+         * @return true if the line held a valid record
+         */
+        boolean parseRecord(ByteBuffer buffer, int start, int end) {
+            // Skip empty lines
+            if (ByteLineReader.trimStart(buffer, start, end) == end) {
+                return false;
+            }
+
+            // Find the comma-separated fields. Like String.split(","), trailing empty
+            // fields do not count, so the field count is the last non-empty field + 1.
+            int fieldCount = 0;
+            int field = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i < end && buffer.get(i) != ',') {
+                    continue;
+                }
+                if (field < FIELD_COUNT) {
+                    fieldStarts[field] = fieldStart;
+                    fieldEnds[field] = i;
+                }
+                if (i > fieldStart) {
+                    fieldCount = field + 1;
+                }
+                field++;
+                fieldStart = i + 1;
+            }
+
+            // Validate data format
+            if (fieldCount < FIELD_COUNT) {
+                if (report) {
+                    System.out.println("Warning: Invalid data format: " + ByteLineReader.decode(buffer, start, end, charset));
+                    if (PayrollMetrics.enabled) {
+                        PayrollMetrics.rowRejected();
+                    }
+                }
+                return false;
+            }
+
+            int employeeId;
+            String lastName;
+            String firstName;
+            String birthday;
+            double monthlySalary;
+            try {
+                // Parse the fields of the line
+                employeeId = parseInt(buffer, fieldStarts[0], fieldEnds[0]);
+                lastName = decodeTrimmed(buffer, 1);
+                firstName = decodeTrimmed(buffer, 2);
+                birthday = decodeTrimmed(buffer, 3);
+                monthlySalary = parseDouble(buffer, fieldStarts[4], fieldEnds[4]);
+            } catch (NumberFormatException e) {
+                if (report) {
+                    System.out.println("Warning: Invalid number format in line: " + ByteLineReader.decode(buffer, start, end, charset));
+                    if (PayrollMetrics.enabled) {
+                        PayrollMetrics.rowRejected();
+                    }
+                }
+                return false;
+            }
+
+            if (report && PayrollMetrics.enabled) {
+                PayrollMetrics.rowParsed();
+            }
+            handler.record(employeeId, lastName, firstName, birthday, monthlySalary);
+            return true;
+        }
+
+        private String decodeTrimmed(ByteBuffer buffer, int field) {
+            int start = ByteLineReader.trimStart(buffer, fieldStarts[field], fieldEnds[field]);
+            int end = ByteLineReader.trimEnd(buffer, start, fieldEnds[field]);
+            return ByteLineReader.decode(buffer, start, end, charset);
+        }
+
+        /**
+         * Parses a trimmed integer field from bytes
+         * Anything unusual (too many digits, non-ASCII digits) goes through
+         * Integer.parseInt so the accepted input is exactly the same.
+         */
+        private int parseInt(ByteBuffer buffer, int start, int end) {
+            start = ByteLineReader.trimStart(buffer, start, end);
+            end = ByteLineReader.trimEnd(buffer, start, end);
+
+            int i = start;
+            boolean negative = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negative = buffer.get(i) == '-';
+                i++;
+            }
+
+            int digits = end - i;
+            if (digits > 0 && digits <= 10) {
+                long value = 0;
+                for (; i < end; i++) {
+                    int digit = buffer.get(i) - '0';
+                    if (digit < 0 || digit > 9) {
+                        break;
+                    }
+                    value = value * 10 + digit;
+                }
+                if (i == end) {
+                    value = negative ? -value : value;
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                        return (int) value;
+                    }
+                }
+            }
+            return Integer.parseInt(ByteLineReader.decode(buffer, start, end, charset));
+        }
+
+        /**
+         * Parses a trimmed decimal field (e.g. 52670 or 52670.50) from bytes
+         * When the digits fit in 2^53 and there are at most 22 decimal places, one
+         * division by an exact power of ten gives the same correctly rounded result
+         * as Double.parseDouble. Any other form falls back to Double.parseDouble.
+         */
+        private double parseDouble(ByteBuffer buffer, int start, int end) {
+            start = ByteLineReader.trimStart(buffer, start, end);
+            end = ByteLineReader.trimEnd(buffer, start, end);
+
+            int i = start;
+            boolean negative = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negative = buffer.get(i) == '-';
+                i++;
+            }
+
+            long mantissa = 0;
+            int digitCount = 0;
+            int decimalPlaces = -1; // -1 until the decimal point is seen
+            boolean fastPath = true;
+            for (; i < end && fastPath; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digitCount++;
+                    if (decimalPlaces >= 0) {
+                        decimalPlaces++;
+                    }
+                    fastPath = mantissa < MAX_EXACT_MANTISSA && decimalPlaces < POWERS_OF_TEN.length;
+                } else if (b == '.' && decimalPlaces < 0) {
+                    decimalPlaces = 0;
+                } else {
+                    fastPath = false;
+                }
+            }
+
+            if (fastPath && digitCount > 0) {
+                double value = mantissa / POWERS_OF_TEN[Math.max(decimalPlaces, 0)];
+                return negative ? -value : value;
+            }
+            return Double.parseDouble(ByteLineReader.decode(buffer, start, end, charset));
+        }
+    }
+}
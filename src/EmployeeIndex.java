@@ -0,0 +1,135 @@
+/**
+ * EmployeeIndex.java
+ *
+ * Finds an employee's position in the roster from the employee ID.
+ * The index is a hash table with open addressing kept in two int arrays (one for
+ * the IDs, one for the positions), so looking up an ID takes a few array reads
+ * and never creates Integer objects, even for rosters with millions of employees.
+ */
+
+import java.util.Arrays;
+
+class EmployeeIndex {
+    // Marks an empty slot in the positions array
+    private static final int EMPTY = -1;
+
+    private int[] ids;
+    private int[] positions;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty index that grows as IDs are added
+     */
+    EmployeeIndex() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty index with room for the given number of employees
+     * @param expectedSize Expected number of employees
+     */
+    EmployeeIndex(int expectedSize) {
+        // Keep the table at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Builds an index over an array of employees
+     * @param employees The roster, in report order
+     * @return An index from employee ID to array position
+     */
+    static EmployeeIndex of(Employee[] employees) {
+        EmployeeIndex index = new EmployeeIndex(employees.length);
+        for (int i = 0; i < employees.length; i++) {
+            if (employees[i] != null) {
+                index.add(employees[i].getEmployeeId(), i);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Builds an index over the records of a snapshot
+     * @param snapshot The snapshot to index
+     * @return An index from employee ID to record number
+     */
+    static EmployeeIndex of(PayrollSnapshot snapshot) {
+        EmployeeIndex index = new EmployeeIndex(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            index.add(snapshot.getEmployeeId(i), i);
+        }
+        return index;
+    }
+
+    /**
+     * Adds an employee ID
+     * If the ID is already in the index, the first position is kept (the same
+     * employee a scan from the start of the roster would find).
+     * @param employeeId The employee ID
+     * @param position The employee's position in the roster
+     */
+    void add(int employeeId, int position) {
+        if (size * 2 >= positions.length) {
+            grow();
+        }
+        int slot = slotOf(employeeId);
+        if (positions[slot] == EMPTY) {
+            ids[slot] = employeeId;
+            positions[slot] = position;
+            size++;
+        }
+    }
+
+    /**
+     * Finds the position of an employee
+     * @param employeeId The employee ID to look for
+     * @return The employee's position in the roster, or -1 if the ID is not in the index
+     */
+    int find(int employeeId) {
+        return positions[slotOf(employeeId)];
+    }
+
+    /**
+     * Number of distinct employee IDs in the index
+     */
+    int size() {
+        return size;
+    }
+
+    // Returns the slot holding the ID, or the empty slot where it would go
+    private int slotOf(int employeeId) {
+        int slot = hash(employeeId) & mask;
+        while (positions[slot] != EMPTY && ids[slot] != employeeId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Spreads consecutive IDs (10001, 10002, ...) over the whole table
+    private static int hash(int employeeId) {
+        int h = employeeId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        int[] oldIds = ids;
+        int[] oldPositions = positions;
+        allocate(oldPositions.length * 2);
+        for (int i = 0; i < oldPositions.length; i++) {
+            if (oldPositions[i] != EMPTY) {
+                int slot = slotOf(oldIds[i]);
+                ids[slot] = oldIds[i];
+                positions[slot] = oldPositions[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * FixedPointCheck.java
+ *
+ * Differential check of the fixed-point (Centavos) payroll against the double
+ * arithmetic. Every case is calculated both ways on its own Employee and each
+ * amount is compared in centavos:
+ *   - a sweep of monthly salaries (every 25 centavos by default) with random
+ *     timesheets, which crosses every SSS, PhilHealth, Pag-IBIG and tax bracket
+ *   - optionally every employee in a roster file, with the sample timesheet
+ *
+ * It also checks that the fixed-point results are whole centavos and add up
+ * exactly (gross = regular + overtime, total = the four weekly deductions,
+ * net = gross - total). It prints the largest difference per amount and exits
+ * with status 1 if an amount is off by more than the tolerance or a sum does
+ * not add up.
+ *
+ * Usage: java FixedPointCheck [--file "Employee Data.txt"] [--max-salary 300000]
+ *            [--step 0.25] [--tolerance 3] [--seed 42]
+ */
+
+import java.util.Random;
+
+public class FixedPointCheck {
+    private static final String[] AMOUNTS = {
+        "regularPay", "overtimePay", "weeklySalary", "monthlySSS", "monthlyPhilHealth", "monthlyPagibig",
+        "taxableIncome", "monthlyTax", "weeklySSS", "weeklyPhilHealth", "weeklyPagibig", "weeklyTax",
+        "totalDeductions", "netSalary"
+    };
+
+    // Per amount: largest difference (centavos), cases whose printed value (%.2f) differs
+    private final double[] maxDifference = new double[AMOUNTS.length];
+    private final long[] printedDifferently = new long[AMOUNTS.length];
+    private final String[] worstCase = new String[AMOUNTS.length];
+    private long cases;
+    private long sumErrors;
+
+    /**
+     * Runs the check
+     * @param args Command line options (see the file header)
+     */
+    public static void main(String[] args) throws Exception {
+        double maxSalary = Double.parseDouble(getOption(args, "--max-salary", "300000"));
+        long step = Centavos.of(Double.parseDouble(getOption(args, "--step", "0.25")));
+        double tolerance = Double.parseDouble(getOption(args, "--tolerance", "3"));
+        Random random = new Random(Long.parseLong(getOption(args, "--seed", "42")));
+        String filename = getOption(args, "--file", null);
+
+        FixedPointCheck check = new FixedPointCheck();
+        long maxCentavos = Centavos.of(maxSalary);
+        for (long salary = 0; salary <= maxCentavos; salary += Math.max(1, step)) {
+            Employee emp = new Employee(1, "Sweep", "Salary", "01/01/1990", Centavos.toPesos(salary));
+            double[] clockIns = new double[Employee.WORK_DAYS];
+            double[] clockOuts = new double[Employee.WORK_DAYS];
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                // Any minute from 6:00 to 10:00 in, 14:00 to 21:00 out
+                clockIns[day] = 6 + random.nextInt(241) / 60.0;
+                clockOuts[day] = 14 + random.nextInt(421) / 60.0;
+            }
+            check.compare(emp, clockIns, clockOuts);
+        }
+
+        if (filename != null) {
+            for (Employee emp : MotorPHEmployeeSystem.readEmployeesFromFile(filename)) {
+                MotorPHEmployeeSystem.setWeeklyTimesheet(emp);
+                double[] clockIns = new double[Employee.WORK_DAYS];
+                double[] clockOuts = new double[Employee.WORK_DAYS];
+                for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                    clockIns[day] = emp.getClockInTime(day);
+                    clockOuts[day] = emp.getClockOutTime(day);
+                }
+                check.compare(emp, clockIns, clockOuts);
+            }
+        }
+
+        boolean passed = check.printSummary(tolerance);
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Calculates one employee with double and with fixed-point arithmetic and compares the amounts
+     */
+    private void compare(Employee info, double[] clockIns, double[] clockOuts) {
+        double[] doubles = calculate(info, clockIns, clockOuts, false);
+        double[] fixed = calculate(info, clockIns, clockOuts, true);
+        cases++;
+
+        for (int i = 0; i < AMOUNTS.length; i++) {
+            double difference = Math.abs(fixed[i] - doubles[i]) * 100;
+            if (difference > maxDifference[i]) {
+                maxDifference[i] = difference;
+                worstCase[i] = String.format("salary %.2f: double %.6f, fixed %.2f",
+                        info.getMonthlySalary(), doubles[i], fixed[i]);
+            }
+            if (Centavos.of(doubles[i]) != Centavos.of(fixed[i])) {
+                printedDifferently[i]++;
+            }
+        }
+
+        // The fixed-point amounts must be whole centavos that add up exactly
+        for (double amount : fixed) {
+            if (Math.abs(amount * 100 - Centavos.of(amount)) > 1e-6) {
+                sumErrors++;
+                return;
+            }
+        }
+        long regular = Centavos.of(fixed[0]);
+        long overtime = Centavos.of(fixed[1]);
+        long gross = Centavos.of(fixed[2]);
+        long weeklyParts = Centavos.of(fixed[8]) + Centavos.of(fixed[9]) + Centavos.of(fixed[10]) + Centavos.of(fixed[11]);
+        long total = Centavos.of(fixed[12]);
+        long net = Centavos.of(fixed[13]);
+        if (gross != regular + overtime || total != weeklyParts || net != gross - total) {
+            sumErrors++;
+        }
+    }
+
+    private static double[] calculate(Employee info, double[] clockIns, double[] clockOuts, boolean fixedPoint) {
+        Centavos.enabled = fixedPoint;
+        try {
+            Employee emp = new Employee(info.getEmployeeId(), info.getLastName(), info.getFirstName(),
+                    info.getBirthday(), info.getMonthlySalary());
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                emp.addWorkDay(day, clockIns[day], clockOuts[day]);
+            }
+            emp.calculateWeeklySalary();
+            emp.calculateDeductions();
+            return new double[] {
+                emp.getRegularPay(), emp.getOvertimePay(), emp.getWeeklySalary(), emp.getMonthlySSS(),
+                emp.getMonthlyPhilHealth(), emp.getMonthlyPagibig(), emp.getTaxableIncome(), emp.getMonthlyTax(),
+                emp.getWeeklySSS(), emp.getWeeklyPhilHealth(), emp.getWeeklyPagibig(), emp.getWeeklyTax(),
+                emp.getTotalDeductions(), emp.getNetSalary()
+            };
+        } finally {
+            Centavos.enabled = false;
+        }
+    }
+
+    /**
+     * Prints the differences per amount
+     * @return true if every amount is within the tolerance and every sum adds up
+     */
+    private boolean printSummary(double tolerance) {
+        System.out.println("FIXED-POINT vs DOUBLE PAYROLL (" + cases + " cases)");
+        System.out.println("========================================================================");
+        System.out.printf("%-20s %16s %18s\n", "Amount", "Max diff (c)", "Printed diff (%)");
+        System.out.println("------------------------------------------------------------------------");
+        boolean passed = sumErrors == 0;
+        for (int i = 0; i < AMOUNTS.length; i++) {
+            System.out.printf("%-20s %16.4f %18.4f\n", AMOUNTS[i], maxDifference[i],
+                    100.0 * printedDifferently[i] / Math.max(1, cases));
+            if (maxDifference[i] > tolerance) {
+                passed = false;
+                System.out.println("  over the tolerance of " + tolerance + " centavos, e.g. " + worstCase[i]);
+            }
+        }
+        System.out.println("------------------------------------------------------------------------");
+        System.out.println("Sums that do not add up exactly: " + sumErrors);
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.out.println("========================================================================");
+        return passed;
+    }
+
+    private static String getOption(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * IncrementalPayroll.java
+ *
+ * Keeps a calculated roster and its report totals up to date as timesheets are
+ * corrected. The roster is calculated in full once; after that, every employee
+ * whose timesheet changes (through Employee.addWorkDay) is put on a list of
+ * changed employees, and recalculate() only calculates those employees again.
+ * The totals are updated by taking out each changed employee's old amounts and
+ * adding the new ones, so a run after a few corrections costs time in proportion
+ * to the number of corrections, not the size of the roster.
+ *
+ * Corrections file format (one correction per line, decimal hours):
+ * employeeId,dayIndex,clockInTime,clockOutTime
+ *
+ * Example (Tuesday 8:00 AM to 7:00 PM for employee 10001):
+ * 10001,1,8.0,19.0
+ *
+ * The roster is not thread safe: corrections and recalculate() must not run at
+ * the same time as each other.
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+class IncrementalPayroll implements Employee.TimesheetListener {
+    private final Employee[] employees;
+    private final EmployeeIndex index;
+
+    // Positions of employees whose timesheet changed since the last calculation
+    private int[] changedPositions = new int[64];
+    private int changedCount;
+    private int lastRecalculated;
+
+    // Report totals
+    private final CompensatedTotal totalHours = new CompensatedTotal();
+    private final CompensatedTotal totalGross = new CompensatedTotal();
+    private final CompensatedTotal totalDeductions = new CompensatedTotal();
+    private final CompensatedTotal totalNet = new CompensatedTotal();
+
+    /**
+     * Calculates the whole roster and starts tracking timesheet changes
+     * @param employees The roster, with timesheets already set
+     * @param index Index from employee ID to position in the roster
+     * @param parallelism Number of threads for the first full calculation
+     */
+    IncrementalPayroll(Employee[] employees, EmployeeIndex index, int parallelism) {
+        this.employees = employees;
+        this.index = index;
+
+        PayrollEngine.calculateParallel(employees, parallelism);
+        for (int i = 0; i < employees.length; i++) {
+            if (employees[i] != null) {
+                addToTotals(employees[i], 1);
+                employees[i].setTimesheetListener(this, i);
+            }
+        }
+        lastRecalculated = employees.length;
+    }
+
+    /**
+     * Called by Employee.addWorkDay the first time a calculated employee's timesheet changes
+     * @param position The employee's position in the roster
+     */
+    @Override
+    public void timesheetChanged(int position) {
+        if (changedCount == changedPositions.length) {
+            changedPositions = Arrays.copyOf(changedPositions, changedCount * 2);
+        }
+        changedPositions[changedCount++] = position;
+    }
+
+    /**
+     * Changes one day of an employee's timesheet
+     * @param employeeId The employee ID
+     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
+     * @param clockInTime Clock in time in decimal hours
+     * @param clockOutTime Clock out time in decimal hours
+     * @return false if the ID is not in the roster
+     */
+    boolean correctWorkDay(int employeeId, int dayIndex, double clockInTime, double clockOutTime) {
+        int position = index.find(employeeId);
+        if (position < 0) {
+            return false;
+        }
+        employees[position].addWorkDay(dayIndex, clockInTime, clockOutTime);
+        return true;
+    }
+
+    /**
+     * Reads a corrections file and applies each correction to the roster
+     * Lines that cannot be used print a warning and are skipped.
+     * @param filename The name of the corrections file
+     * @return Number of corrections applied
+     * @throws IOException If there's an error reading the file
+     */
+    int applyCorrections(String filename) throws IOException {
+        int applied = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Skip empty lines
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] data = line.split(",");
+                if (data.length != 4) {
+                    System.out.println("Warning: Invalid correction format: " + line);
+                    continue;
+                }
+
+                try {
+                    int employeeId = Integer.parseInt(data[0].trim());
+                    int dayIndex = Integer.parseInt(data[1].trim());
+                    double clockInTime = Double.parseDouble(data[2].trim());
+                    double clockOutTime = Double.parseDouble(data[3].trim());
+
+                    if (dayIndex < 0 || dayIndex >= Employee.WORK_DAYS) {
+                        System.out.println("Warning: Invalid day in correction: " + line);
+                    } else if (!correctWorkDay(employeeId, dayIndex, clockInTime, clockOutTime)) {
+                        System.out.println("Warning: Unknown employee ID in correction: " + line);
+                    } else {
+                        applied++;
+                    }
+                } catch (NumberFormatException e) {
+                    System.out.println("Warning: Invalid number format in correction: " + line);
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Calculates again only the employees whose timesheet changed, and updates the totals
+     * @return Number of employees calculated
+     */
+    int recalculate() {
+        int recalculated = 0;
+        for (int i = 0; i < changedCount; i++) {
+            Employee emp = employees[changedPositions[i]];
+
+            // The employee still holds the old amounts until it is calculated again
+            addToTotals(emp, -1);
+            emp.calculateWeeklySalary();
+            emp.calculateDeductions();
+            addToTotals(emp, 1);
+            recalculated++;
+        }
+        changedCount = 0;
+        lastRecalculated = recalculated;
+        return recalculated;
+    }
+
+    private void addToTotals(Employee emp, int sign) {
+        totalHours.add(sign * emp.getTotalHoursWorked());
+        totalGross.add(sign * emp.getWeeklySalary());
+        totalDeductions.add(sign * emp.getTotalDeductions());
+        totalNet.add(sign * emp.getNetSalary());
+    }
+
+    /**
+     * Number of employees calculated by the last calculation (the whole roster at first)
+     */
+    int getLastRecalculated() {
+        return lastRecalculated;
+    }
+
+    // Getters for the report totals
+    double getTotalHoursWorked() {
+        return totalHours.value();
+    }
+
+    double getTotalGross() {
+        return totalGross.value();
+    }
+
+    double getTotalDeductions() {
+        return totalDeductions.value();
+    }
+
+    double getTotalNet() {
+        return totalNet.value();
+    }
+}
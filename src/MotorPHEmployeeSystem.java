@@ -6,17 +6,96 @@
  * Government deductions include SSS, PhilHealth, Pag-IBIG, and Withholding Tax.
  * 
  * Enhancement: Added file handling to read employee data from a text file.
+ * Enhancement: Added a streaming mode (--stream) that calculates and prints each
+ * employee as soon as its line is parsed, without keeping the whole roster in memory.
+ * Enhancement: Added a parallel payroll mode (--parallel / --threads) and phase timings (--timings).
+ * Enhancement: Added a column-oriented roster mode (--columnar) for large employee files.
+ * Enhancement: Contribution and tax tables can be loaded from a schedule file (--schedule).
+ * Enhancement: Deductions are cached per monthly salary (--deduction-cache sets the size).
+ * Enhancement: The report can be written through a buffered writer (--report-file) while
+ * the payroll is still being calculated.
+ * Enhancement: The roster and its calculated payroll can be saved as a binary snapshot
+ * (--convert) and the report printed straight from the snapshot (--snapshot).
+ * Enhancement: Any employee's detailed calculation can be looked up by ID (--employee)
+ * through an EmployeeIndex built while the roster is read.
+ * Enhancement: Timesheet corrections (--corrections) are applied to a calculated payroll,
+ * and only the corrected employees and the report totals are calculated again.
+ * Enhancement: Timesheets can be read from a DTR/biometric attendance log (--dtr)
+ * instead of the sample timesheet.
+ * Enhancement: A pipeline mode (--pipeline) reads, calculates and prints the report at
+ * the same time, with bounded queues between the stages.
+ * Enhancement: The roster can be served as a local HTTP payslip service (--serve).
+ * Enhancement: Built-in metrics (--metrics): counters, latency histograms, GC and cache
+ * figures, available over JMX and printed as JSON at the end of the run.
+ * Enhancement: Many pay periods (e.g. a whole year) can be calculated in one run (--periods),
+ * with totals per period and year-to-date totals per employee.
+ * Enhancement: Pay and deductions can be calculated in exact fixed-point centavos (--fixed-point).
+ * Enhancement: The roster can be split into shards calculated by separate worker processes
+ * and merged back into one report (--shards).
+ * Enhancement: The columnar payroll can be calculated with the Java Vector API (--vector,
+ * see VectorPayrollKernel), falling back to the scalar loops when it is not available.
+ * Enhancement: Employee keeps a reference to its shared DeductionResult instead of a copy
+ * of every amount, and with --lazy looks it up only when a deduction is first read.
+ * Enhancement: The work week, overtime rate, lunch break and night/rest-day premiums come from
+ * a pay policy (--pay-policy, see PayPolicy) compiled into method handles by PayRules.
+ * Enhancement: The report can end with company-wide totals, a salary band histogram and
+ * the top earners (--aggregates, see PayrollAggregates), also for a saved snapshot.
+ * Enhancement: A served roster can follow changes to the employee file without a restart
+ * (--serve with --watch, see RosterReloader).
+ * Enhancement: A long run can save checkpoints and resume after a crash (--checkpoint,
+ * see CheckpointedPayroll) with the same report as an uninterrupted run.
  */
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 public class MotorPHEmployeeSystem {
     /**
      * Main method to run the Motor PH payroll system
+     * Options:
+     *   --file <path>   Employee data file (default: Employee Data.txt)
+     *   --schedule <path> Contribution schedule file (default: built-in tables)
+     *   --pay-policy <path> Pay policy file (default: built-in rules, see "Pay Policy.txt")
+     *   --stream        Calculate and print each employee while the file is being read
+     *   --parallel      Calculate the payroll on all available processors
+     *   --threads <n>   Calculate the payroll on n threads
+     *   --pipeline      Read, calculate and write the report as concurrent stages
+     *   --columnar      Store the roster as primitive columns instead of Employee objects
+     *   --vector        Columnar roster calculated with the Vector API (compile vector/ and start
+     *                   Java with --add-modules jdk.incubator.vector, see VectorPayrollKernel)
+     *   --deduction-cache <n> Number of salaries to cache deductions for (0 turns the cache off)
+     *   --fixed-point   Calculate pay and deductions in whole centavos (see Centavos)
+     *   --lazy          Look up each employee's deductions only when they are first read
+     *   --report-file <path> Write the report through PayrollReportWriter ("-" for the console)
+     *   --aggregates    Add totals, salary bands and top earners after the report (see PayrollAggregates)
+     *                   (not with --checkpoint or --periods)
+     *   --top <n>       Number of top earners for --aggregates (default: 10)
+     *   --bands <list>  Monthly salary band bounds for --aggregates, e.g. 20000,40000,60000
+     *   --convert <path> Calculate the payroll and save it as a PayrollSnapshot file
+     *   --snapshot <path> Print the report from a PayrollSnapshot file instead of the text file
+     *   --dtr <path>    Set the timesheets from an attendance log instead of the sample times
+     *                   (default run, --convert, --corrections and --periods)
+     *   --week <date>   Payroll week for --dtr, any date in it as MM/dd/yyyy (default: week of first punch)
+     *   --employee <id> Show only the detailed calculation for one employee ID
+     *   --corrections <path> Apply timesheet corrections and recalculate only the changed employees
+     *   --periods <n>   Calculate n weekly pay periods and print year-to-date totals
+     *                   (with --dtr, n consecutive weeks of the log starting with --week)
+     *   --serve <port>  Keep the roster in memory and answer payslip requests over HTTP
+     *   --watch         With --serve, reload changed employees when the employee file changes
+     *   --shards <n>    Calculate the payroll in n worker processes and merge their results
+     *   --shard-by <hash|range> Assign employees to shards by ID hash (default) or ID range
+     *   --shard-attempts <n> Times a failed shard is started before the run fails (default: 3)
+     *   --shard-timeout <s> Restart a shard that runs longer than s seconds (default: no limit)
+     *   --shard-dir <path> Folder for the shard files (default: a new temporary folder)
+     *   --checkpoint <path> Keep results and checkpoints in this folder and resume from it if
+     *                   a previous run stopped (see CheckpointedPayroll)
+     *   --checkpoint-interval <n> Employees between checkpoints (default: 100000)
+     *   --metrics       Record payroll metrics (JMX) and print them as JSON at the end
+     *   --timings       Print how long each phase of the run took
      * @param args Command line arguments
      */
     public static void main(String[] args) {
@@ -25,21 +104,295 @@ public class MotorPHEmployeeSystem {
         System.out.println("                         MOTOR PH PAYROLL SYSTEM                        ");
         System.out.println("========================================================================");
         
+        String filename = getOptionValue(args, "--file", "Employee Data.txt");
+        int parallelism = getParallelism(args);
+        PhaseTimer timer = new PhaseTimer();
+        if (hasOption(args, "--metrics")) {
+            PayrollMetrics.enable();
+        }
+        
         try {
-            // Read employee data from text file
-            Employee[] employees = readEmployeesFromFile("Employee Data.txt");
+            // Use a different year's contribution and tax tables if a schedule file is given
+            String scheduleFile = getOptionValue(args, "--schedule", null);
+            if (scheduleFile != null) {
+                try {
+                    ContributionSchedule.setCurrent(ContributionSchedule.load(scheduleFile));
+                } catch (IOException e) {
+                    System.out.println("Error reading contribution schedule: " + e.getMessage());
+                    return;
+                }
+            }
             
-            // For demonstration, set sample weekly timesheet data
-            setWeeklyTimesheet(employees);
+            // A business unit's own pay rules instead of the built-in ones
+            String policyFile = getOptionValue(args, "--pay-policy", null);
+            if (policyFile != null) {
+                try {
+                    PayPolicy.setCurrent(PayPolicy.load(policyFile));
+                } catch (IOException e) {
+                    System.out.println("Error reading pay policy: " + e.getMessage());
+                    return;
+                }
+                if (!PayPolicy.current().isStandard()) {
+                    for (String option : new String[] {"--columnar", "--vector", "--fixed-point", "--periods"}) {
+                        if (hasOption(args, option)) {
+                            System.out.println("Error: " + option + " only supports the built-in pay policy");
+                            return;
+                        }
+                    }
+                }
+            }
             
-            // Calculate weekly salary for all employees
-            calculateWeeklySalaries(employees);
+            // The checkpoint results and the multi-period totals do not keep what the aggregates need
+            if (hasOption(args, "--aggregates")) {
+                for (String option : new String[] {"--checkpoint", "--periods"}) {
+                    if (hasOption(args, option)) {
+                        System.out.println("Error: --aggregates cannot be used with " + option);
+                        return;
+                    }
+                }
+            }
             
-            // Display weekly payroll report
-            displayWeeklyPayrollReport(employees);
+            // These modes use the sample timesheets or stored results, not an attendance log
+            if (hasOption(args, "--dtr")) {
+                for (String option : new String[] {"--serve", "--employee", "--snapshot", "--shards", "--checkpoint",
+                        "--stream", "--pipeline", "--columnar", "--vector"}) {
+                    if (hasOption(args, option)) {
+                        System.out.println("Error: --dtr cannot be used with " + option);
+                        return;
+                    }
+                }
+            }
+            
+            // Exact centavo arithmetic instead of doubles
+            Centavos.enabled = hasOption(args, "--fixed-point");
+            
+            // Deductions looked up on first read instead of in calculateDeductions()
+            Employee.lazyDeductions = hasOption(args, "--lazy");
+            
+            String cacheSize = getOptionValue(args, "--deduction-cache", null);
+            if (cacheSize != null) {
+                DeductionCache.setShared(new DeductionCache(Integer.parseInt(cacheSize)));
+            }
+            
+            String servePort = getOptionValue(args, "--serve", null);
+            if (servePort != null) {
+                // Keep running and answer payslip requests (see PayrollService)
+                PayrollService service = new PayrollService(readEmployeesFromFile(filename));
+                int port = service.start(Integer.parseInt(servePort));
+                System.out.println("Payroll service listening on http://localhost:" + port
+                        + "/payslip?id=<employee ID> (" + service.getExecutorName() + ")");
+                RosterReloader reloader = null;
+                if (hasOption(args, "--watch")) {
+                    // Swap in a new roster whenever the employee file is saved
+                    reloader = new RosterReloader(filename, service);
+                    reloader.start();
+                    System.out.println("Watching " + filename + " for roster changes");
+                }
+                // Close the file watcher and the server when the service is stopped (e.g. Ctrl+C)
+                RosterReloader watching = reloader;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    if (watching != null) {
+                        try {
+                            watching.stop();
+                        } catch (IOException e) {
+                            System.out.println("Error closing the roster watcher: " + e.getMessage());
+                        }
+                    }
+                    service.stop();
+                }, "payroll-service-shutdown"));
+                return;
+            }
+            
+            String snapshotFile = getOptionValue(args, "--snapshot", null);
+            String employeeId = getOptionValue(args, "--employee", null);
+            if (employeeId != null) {
+                // Look up one employee instead of printing the whole report
+                int count = runEmployeeLookup(filename, snapshotFile, Integer.parseInt(employeeId), timer);
+                if (hasOption(args, "--timings")) {
+                    timer.printSummary(count + " employees, lookup of ID " + employeeId);
+                }
+                return;
+            }
+            
+            if (snapshotFile != null) {
+                // Start from a saved snapshot: nothing is parsed or calculated
+                int count = runSnapshotPayroll(snapshotFile, getOptionValue(args, "--report-file", null), timer);
+                if (hasOption(args, "--aggregates")) {
+                    timer.start("Aggregate");
+                    try (PayrollSnapshot snapshot = new PayrollSnapshot(snapshotFile)) {
+                        aggregate(snapshot, parallelism, args).print();
+                    }
+                    timer.stop();
+                }
+                if (hasOption(args, "--timings")) {
+                    timer.printSummary(count + " employees, snapshot");
+                }
+                return;
+            }
+            
+            String shards = getOptionValue(args, "--shards", null);
+            if (shards != null) {
+                // Split the roster, calculate the shards in worker processes and merge the report
+                int shardCount = parseCount("--shards", shards, 1, ShardedPayroll.MAX_SHARDS);
+                if (shardCount < 0) {
+                    return;
+                }
+                PayrollAggregates aggregates = hasOption(args, "--aggregates") ? newAggregates(args) : null;
+                int count = runShardedPayroll(filename, shardCount, args, aggregates, timer);
+                if (aggregates != null) {
+                    aggregates.print();
+                }
+                if (hasOption(args, "--timings")) {
+                    timer.printSummary(count + " employees, " + shards + " shards");
+                }
+                return;
+            }
+            
+            String checkpointFolder = getOptionValue(args, "--checkpoint", null);
+            if (checkpointFolder != null) {
+                // Save progress as the run goes, and carry on from the last checkpoint of an earlier run
+                CheckpointedPayroll payroll = runCheckpointedPayroll(filename, checkpointFolder, args, timer);
+                if (hasOption(args, "--timings")) {
+                    payroll.printStatistics();
+                    timer.printSummary(payroll.getEmployeeCount() + " employees, checkpointed");
+                }
+                return;
+            }
+            
+            if (hasOption(args, "--stream")) {
+                // Process employees one at a time as the file is read
+                PayrollAggregates aggregates = hasOption(args, "--aggregates") ? newAggregates(args) : null;
+                runStreamingPayroll(filename, aggregates);
+                if (aggregates != null) {
+                    aggregates.print();
+                }
+                return;
+            }
+            
+            if (hasOption(args, "--pipeline")) {
+                // Read, calculate and report at the same time through bounded queues
+                PayrollAggregates aggregates = hasOption(args, "--aggregates") ? newAggregates(args) : null;
+                PayrollPipeline pipeline = runPipelinePayroll(filename, getOptionValue(args, "--report-file", "-"),
+                        parallelism, aggregates, timer);
+                if (aggregates != null) {
+                    aggregates.print();
+                }
+                if (hasOption(args, "--timings")) {
+                    pipeline.printStatistics();
+                }
+                return;
+            }
+            
+            if (hasOption(args, "--columnar") || hasOption(args, "--vector")) {
+                // Keep the roster in primitive arrays instead of Employee objects
+                String kernel = "columnar";
+                if (hasOption(args, "--vector")) {
+                    // Whole vectors of employees at a time, if this Java runtime has the Vector API
+                    EmployeeColumns.kernel = PayrollKernel.loadVectorKernel();
+                    if (EmployeeColumns.kernel != null) {
+                        kernel = "columnar, " + EmployeeColumns.kernel.getDescription();
+                    } else {
+                        System.out.println("Vector API not available (start Java with --add-modules "
+                                + "jdk.incubator.vector). Using the scalar loops.");
+                    }
+                }
+                int count = runColumnarPayroll(filename, parallelism, args, timer);
+                if (hasOption(args, "--timings")) {
+                    timer.printSummary(count + " employees, " + parallelism + " thread(s), " + kernel);
+                }
+                return;
+            }
+            
+            String correctionsFile = getOptionValue(args, "--corrections", null);
+            if (correctionsFile != null) {
+                // Preliminary payroll, then corrections and a final payroll
+                int count = runCorrectedPayroll(filename, correctionsFile, parallelism, args, timer);
+                if (hasOption(args, "--timings")) {
+                    timer.printSummary(count + " employees, " + parallelism + " thread(s), with corrections");
+                }
+                return;
+            }
+            
+            String attendanceFile = getOptionValue(args, "--dtr", null);
+            String periods = getOptionValue(args, "--periods", null);
+            if (periods != null) {
+                // Many pay periods in one pass, with year-to-date totals
+                int periodCount = parseCount("--periods", periods, 1, Integer.MAX_VALUE);
+                if (periodCount < 0) {
+                    return;
+                }
+                int count = runMultiPeriodPayroll(filename, periodCount, attendanceFile,
+                        getOptionValue(args, "--week", null), parallelism, timer);
+                if (hasOption(args, "--timings")) {
+                    timer.printSummary(count + " employees, " + periods + " periods, " + parallelism + " thread(s)");
+                }
+                return;
+            }
+            
+            // Read employee data from text file (with an ID index if the attendance log needs one)
+            timer.start("Read employee file");
+            EmployeeIndex index = attendanceFile != null ? new EmployeeIndex() : null;
+            Employee[] employees = readEmployeesFromFile(filename, index);
+            
+            if (attendanceFile != null) {
+                // Set the timesheets from the attendance log
+                timer.start("Read attendance log");
+                readAttendanceLog(attendanceFile, getOptionValue(args, "--week", null), employees, index, parallelism);
+            } else {
+                // For demonstration, set sample weekly timesheet data
+                timer.start("Set timesheets");
+                setWeeklyTimesheet(employees);
+            }
+            
+            String convertFile = getOptionValue(args, "--convert", null);
+            String reportFile = getOptionValue(args, "--report-file", null);
+            if (convertFile != null) {
+                // Calculate the payroll and save it as a snapshot instead of printing the report
+                timer.start("Calculate payroll");
+                PayrollEngine.calculateParallel(employees, parallelism);
+                timer.start("Write snapshot");
+                int count = PayrollSnapshot.write(convertFile, employees);
+                System.out.println("Wrote " + count + " employees to " + convertFile);
+            } else if (reportFile != null) {
+                // Calculate the payroll and write the report at the same time
+                timer.start("Calculate and write report");
+                try (PayrollReportWriter writer = PayrollReportWriter.open(reportFile)) {
+                    writer.writeReportHeader();
+                    PayrollEngine.calculateAndWrite(employees, parallelism, writer);
+                    writer.writeReportFooter(employees.length > 0 ? employees[0] : null);
+                }
+            } else {
+                // Calculate weekly salary for all employees
+                timer.start("Calculate payroll");
+                if (parallelism > 1) {
+                    PayrollEngine.calculateParallel(employees, parallelism);
+                } else {
+                    calculateWeeklySalaries(employees);
+                }
+                
+                // Display weekly payroll report
+                timer.start("Print report");
+                displayWeeklyPayrollReport(employees);
+            }
+            
+            if (convertFile == null && hasOption(args, "--aggregates")) {
+                // Company-wide totals after the report
+                timer.start("Aggregate");
+                aggregate(employees, parallelism, args).print();
+            }
+            timer.stop();
+            
+            if (hasOption(args, "--timings")) {
+                timer.printSummary(employees.length + " employees, " + parallelism + " thread(s)");
+            }
         } catch (IOException e) {
             System.out.println("Error reading employee data: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            // A service keeps running after main returns; JMX shows its metrics instead
+            if (PayrollMetrics.enabled && getOptionValue(args, "--serve", null) == null) {
+                PayrollMetrics.printSummary();
+            }
         }
     }
     
@@ -56,61 +409,569 @@ public class MotorPHEmployeeSystem {
      * @return Array of Employee objects with data from the file
      * @throws IOException If there's an error reading the file
      */
-    private static Employee[] readEmployeesFromFile(String filename) throws IOException {
+    static Employee[] readEmployeesFromFile(String filename) throws IOException {
+        return readEmployeesFromFile(filename, null);
+    }
+    
+    /**
+     * Reads employee data from a text file and indexes the employees by ID while reading
+     * @param filename The name of the text file to read
+     * @param index Receives each employee's ID and array position (may be null)
+     * @return Array of Employee objects with data from the file
+     * @throws IOException If there's an error reading the file
+     */
+    static Employee[] readEmployeesFromFile(String filename, EmployeeIndex index) throws IOException {
         List<Employee> employeeList = new ArrayList<>();
         
-        // Open the file and read line by line
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            
-            // Read the header line (if present) and discard it
-            // Uncomment the next line if your file has a header
-            // reader.readLine();
-            
-            // Read each line and parse the employee data
-            while ((line = reader.readLine()) != null) {
-                // Skip empty lines
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                
-                // Split the line by comma
-                String[] data = line.split(",");
-                
-                // Validate data format
-                if (data.length < 5) {
-                    System.out.println("Warning: Invalid data format: " + line);
-                    continue;
-                }
-                
-                try {
-                    // Parse the data into Employee object
-                    int employeeId = Integer.parseInt(data[0].trim());
-                    String lastName = data[1].trim();
-                    String firstName = data[2].trim();
-                    String birthday = data[3].trim();
-                    double monthlySalary = Double.parseDouble(data[4].trim());
-                    
-                    // Create and add the employee to the list
-                    Employee employee = new Employee(employeeId, lastName, firstName, birthday, monthlySalary);
-                    employeeList.add(employee);
-                    
-                } catch (NumberFormatException e) {
-                    System.out.println("Warning: Invalid number format in line: " + line);
-                }
+        // Parse the file line by line (empty lines are skipped, malformed lines print a warning)
+        EmployeeFileParser.parse(filename, emp -> {
+            if (index != null) {
+                index.add(emp.getEmployeeId(), employeeList.size());
             }
-        }
+            employeeList.add(emp);
+        });
         
         // If no employees were read, provide fallback sample data
         if (employeeList.isEmpty()) {
             System.out.println("No valid employee data found in file. Using sample data.");
-            return initializeEmployeeDatabase();
+            Employee[] employees = initializeEmployeeDatabase();
+            if (index != null) {
+                for (int i = 0; i < employees.length; i++) {
+                    index.add(employees[i].getEmployeeId(), i);
+                }
+            }
+            return employees;
         }
         
         // Convert list to array and return
         return employeeList.toArray(new Employee[0]);
     }
     
+    /**
+     * Runs the weekly payroll while the employee file is being read
+     * Each employee is given a timesheet, calculated and printed as soon as its line
+     * is parsed, so memory use does not grow with the size of the file. Only the
+     * first employee is kept for the detailed calculation at the end.
+     * @param filename The name of the text file to read
+     * @param aggregates Receives each employee after it is printed (may be null)
+     * @throws IOException If there's an error reading the file
+     */
+    private static void runStreamingPayroll(String filename, PayrollAggregates aggregates) throws IOException {
+        Employee[] firstEmployee = new Employee[1];
+        
+        long count = EmployeeFileParser.parse(filename, emp -> {
+            if (firstEmployee[0] == null) {
+                firstEmployee[0] = emp;
+                printPayrollReportHeader();
+            }
+            processEmployee(emp);
+            if (aggregates != null) {
+                aggregates.add(emp);
+            }
+        });
+        
+        // If no employees were read, run the report on the fallback sample data
+        if (count == 0) {
+            System.out.println("No valid employee data found in file. Using sample data.");
+            Employee[] employees = initializeEmployeeDatabase();
+            setWeeklyTimesheet(employees);
+            calculateWeeklySalaries(employees);
+            displayWeeklyPayrollReport(employees);
+            addAll(aggregates, employees);
+            return;
+        }
+        
+        System.out.println("========================================================================");
+        displayDetailedCalculation(firstEmployee[0]);
+    }
+    
+    /**
+     * Runs the weekly payroll as a PayrollPipeline
+     * @param filename The name of the text file to read
+     * @param reportFile Where to write the report ("-" for the console)
+     * @param parallelism Number of threads in the calculate stage
+     * @param aggregates Receives each employee as its report row is written (may be null)
+     * @param timer Records how long each phase takes
+     * @return The pipeline, for its statistics
+     * @throws IOException If there's an error reading the file or writing the report
+     */
+    private static PayrollPipeline runPipelinePayroll(String filename, String reportFile, int parallelism,
+            PayrollAggregates aggregates, PhaseTimer timer) throws IOException {
+        timer.start("Pipeline");
+        PayrollPipeline pipeline = new PayrollPipeline(parallelism, MotorPHEmployeeSystem::setWeeklyTimesheet);
+        pipeline.setAggregates(aggregates);
+        long count;
+        try (PayrollReportWriter writer = PayrollReportWriter.open(reportFile)) {
+            count = pipeline.run(filename, writer);
+            if (count > 0) {
+                writer.writeReportFooter(pipeline.getFirstEmployee());
+            }
+        }
+        
+        // If no employees were read, run the report on the fallback sample data
+        if (count == 0) {
+            System.out.println("No valid employee data found in file. Using sample data.");
+            Employee[] employees = initializeEmployeeDatabase();
+            setWeeklyTimesheet(employees);
+            calculateWeeklySalaries(employees);
+            displayWeeklyPayrollReport(employees);
+            addAll(aggregates, employees);
+        }
+        timer.stop();
+        return pipeline;
+    }
+    
+    /**
+     * Runs the weekly payroll as a CheckpointedPayroll, resuming from the folder's last checkpoint
+     * @param filename The name of the employee text file
+     * @param folder Folder for the results and checkpoints
+     * @param args Command line arguments (checkpoint interval, report file and the options that change results)
+     * @param timer Records how long each phase takes
+     * @return The run, for its statistics
+     * @throws IOException If a file cannot be read or written, or the checkpoint is for other input or options
+     */
+    private static CheckpointedPayroll runCheckpointedPayroll(String filename, String folder, String[] args,
+            PhaseTimer timer) throws IOException {
+        // A checkpoint can only be resumed with the options (and versions of their files) that calculated its results
+        String settings = "fixed-point=" + Centavos.enabled
+                + ";schedule=" + describeFile(getOptionValue(args, "--schedule", null))
+                + ";pay-policy=" + describeFile(getOptionValue(args, "--pay-policy", null));
+        int interval = Integer.parseInt(getOptionValue(args, "--checkpoint-interval",
+                String.valueOf(CheckpointedPayroll.DEFAULT_INTERVAL)));
+        CheckpointedPayroll payroll = new CheckpointedPayroll(folder, interval, settings);
+        
+        timer.start("Calculate with checkpoints");
+        long count = payroll.calculate(filename, MotorPHEmployeeSystem::setWeeklyTimesheet);
+        
+        // If no employees were read, run the report on the fallback sample data
+        if (count == 0) {
+            System.out.println("No valid employee data found in file. Using sample data.");
+            Employee[] employees = initializeEmployeeDatabase();
+            setWeeklyTimesheet(employees);
+            calculateWeeklySalaries(employees);
+            displayWeeklyPayrollReport(employees);
+            timer.stop();
+            return payroll;
+        }
+        
+        timer.start("Write report from results");
+        try (PayrollReportWriter writer = PayrollReportWriter.open(getOptionValue(args, "--report-file", "-"))) {
+            payroll.writeReport(writer);
+        }
+        timer.stop();
+        return payroll;
+    }
+    
+    /**
+     * Describes a version of a file by its absolute path, size and modification time
+     * @param filename The file (may be null)
+     * @return The description, or an empty string for no file
+     * @throws IOException If the file cannot be read
+     */
+    private static String describeFile(String filename) throws IOException {
+        if (filename == null) {
+            return "";
+        }
+        Path path = Paths.get(filename).toAbsolutePath();
+        return path + "," + Files.size(path) + "," + Files.getLastModifiedTime(path).toMillis();
+    }
+    
+    /**
+     * Runs the weekly payroll as a ShardedPayroll: split, worker processes, merge
+     * @param filename The name of the employee text file
+     * @param shardCount Number of shards
+     * @param args Command line arguments (shard options and options for the workers)
+     * @param aggregates Receives each employee's results as the shards are merged (may be null)
+     * @param timer Records how long each phase takes
+     * @return Number of employees in the roster
+     * @throws IOException If a file cannot be read or written, or a shard keeps failing
+     */
+    private static int runShardedPayroll(String filename, int shardCount, String[] args,
+            PayrollAggregates aggregates, PhaseTimer timer) throws IOException {
+        String timeout = getOptionValue(args, "--shard-timeout", "0");
+        ShardedPayroll payroll = new ShardedPayroll(shardCount,
+                ShardedPayroll.ShardBy.valueOf(getOptionValue(args, "--shard-by", "hash").toUpperCase()),
+                Integer.parseInt(getOptionValue(args, "--shard-attempts", "3")), Long.parseLong(timeout),
+                getOptionValue(args, "--shard-dir", null), args);
+        
+        timer.start("Split into shards");
+        int count = payroll.split(filename);
+        
+        // If no employees were read, run the report on the fallback sample data
+        if (count == 0) {
+            System.out.println("No valid employee data found in file. Using sample data.");
+            Employee[] employees = initializeEmployeeDatabase();
+            setWeeklyTimesheet(employees);
+            calculateWeeklySalaries(employees);
+            displayWeeklyPayrollReport(employees);
+            addAll(aggregates, employees);
+            payroll.deleteWorkFiles();
+            timer.stop();
+            return employees.length;
+        }
+        
+        timer.start("Run shard workers");
+        payroll.runWorkers();
+        
+        timer.start("Merge and write report");
+        try (PayrollReportWriter writer = PayrollReportWriter.open(getOptionValue(args, "--report-file", "-"))) {
+            writer.writeReportHeader();
+            Employee firstEmployee = payroll.merge(writer, aggregates);
+            writer.writeReportFooter(firstEmployee);
+        }
+        payroll.printTotals();
+        payroll.deleteWorkFiles();
+        timer.stop();
+        return count;
+    }
+    
+    /**
+     * Runs the weekly payroll using the column-oriented EmployeeColumns roster
+     * @param filename The name of the text file to read
+     * @param parallelism Number of threads for the payroll calculation
+     * @param args Command line arguments (--aggregates with --top and --bands)
+     * @param timer Records how long each phase takes
+     * @return Number of employees in the roster
+     * @throws IOException If there's an error reading the file
+     */
+    private static int runColumnarPayroll(String filename, int parallelism, String[] args, PhaseTimer timer)
+            throws IOException {
+        // Read employee data from text file straight into the columns
+        timer.start("Read employee file");
+        EmployeeColumns columns = new EmployeeColumns();
+        EmployeeFileParser.parseRecords(filename, columns::add);
+        
+        // If no employees were read, provide fallback sample data
+        if (columns.size() == 0) {
+            System.out.println("No valid employee data found in file. Using sample data.");
+            for (Employee emp : initializeEmployeeDatabase()) {
+                columns.add(emp);
+            }
+        }
+        
+        // For demonstration, set sample weekly timesheet data
+        timer.start("Set timesheets");
+        for (int i = 0; i < columns.size(); i++) {
+            columns.addWorkDay(i, 0, 8.0, 17.0);  // Monday: 8:00 AM to 5:00 PM
+            columns.addWorkDay(i, 1, 8.0, 17.5);  // Tuesday: 8:00 AM to 5:30 PM
+            columns.addWorkDay(i, 2, 8.5, 17.0);  // Wednesday: 8:30 AM to 5:00 PM
+            columns.addWorkDay(i, 3, 8.0, 18.0);  // Thursday: 8:00 AM to 6:00 PM
+            columns.addWorkDay(i, 4, 8.0, 17.0);  // Friday: 8:00 AM to 5:00 PM
+        }
+        
+        // Calculate weekly salary for all employees
+        timer.start("Calculate payroll");
+        PayrollEngine.calculateParallel(columns, parallelism);
+        
+        // Display weekly payroll report
+        timer.start("Print report");
+        printPayrollReportHeader();
+        for (int i = 0; i < columns.size(); i++) {
+            printPayrollReportRow(columns.getEmployeeId(i), columns.getLastName(i), columns.getFirstName(i),
+                    columns.getTotalHoursWorked(i), columns.getHourlyRate(i),
+                    columns.getWeeklySalary(i), columns.getNetSalary(i));
+        }
+        System.out.println("========================================================================");
+        displayDetailedCalculation(columns.getEmployee(0));
+        
+        if (hasOption(args, "--aggregates")) {
+            // Company-wide totals after the report
+            timer.start("Aggregate");
+            PayrollAggregates.aggregate(columns, parallelism, getBands(args), getTopCount(args)).print();
+        }
+        timer.stop();
+        
+        return columns.size();
+    }
+    
+    /**
+     * Runs the payroll, applies timesheet corrections and prints the final report
+     * The first calculation covers the whole roster; after the corrections only
+     * the employees whose timesheets changed are calculated again.
+     * @param filename The name of the employee text file
+     * @param correctionsFile The name of the corrections file
+     * @param parallelism Number of threads for the first calculation
+     * @param args Command line arguments (--dtr with --week, and --aggregates with --top and --bands)
+     * @param timer Records how long each phase takes
+     * @return Number of employees in the roster
+     * @throws IOException If there's an error reading the employee, attendance or corrections file
+     */
+    private static int runCorrectedPayroll(String filename, String correctionsFile, int parallelism,
+            String[] args, PhaseTimer timer) throws IOException {
+        timer.start("Read employee file");
+        EmployeeIndex index = new EmployeeIndex();
+        Employee[] employees = readEmployeesFromFile(filename, index);
+        
+        String attendanceFile = getOptionValue(args, "--dtr", null);
+        if (attendanceFile != null) {
+            // Set the timesheets from the attendance log
+            timer.start("Read attendance log");
+            readAttendanceLog(attendanceFile, getOptionValue(args, "--week", null), employees, index, parallelism);
+        } else {
+            timer.start("Set timesheets");
+            setWeeklyTimesheet(employees);
+        }
+        
+        // Preliminary payroll for everyone
+        timer.start("Calculate payroll");
+        IncrementalPayroll payroll = new IncrementalPayroll(employees, index, parallelism);
+        
+        timer.start("Apply corrections");
+        int corrections = payroll.applyCorrections(correctionsFile);
+        
+        // Final payroll: only the corrected employees
+        timer.start("Recalculate corrected employees");
+        payroll.recalculate();
+        
+        timer.start("Print report");
+        displayWeeklyPayrollReport(employees);
+        displayPayrollTotals(payroll, corrections, employees.length);
+        
+        if (hasOption(args, "--aggregates")) {
+            // Company-wide totals of the final payroll
+            timer.start("Aggregate");
+            aggregate(employees, parallelism, args).print();
+        }
+        timer.stop();
+        
+        return employees.length;
+    }
+    
+    /**
+     * Calculates a number of weekly pay periods for the whole roster and prints the
+     * year-to-date report and the totals of every period
+     * @param filename The name of the employee text file
+     * @param periods Number of pay periods
+     * @param attendanceFile An attendance log with the hours of every period, or null for the sample timesheet
+     * @param weekOf Any date in the first period (MM/dd/yyyy), or null for the week of the first punch
+     * @param parallelism Number of threads for the calculation
+     * @param timer Records how long each phase takes
+     * @return Number of employees in the roster
+     * @throws IOException If there's an error reading either file
+     */
+    private static int runMultiPeriodPayroll(String filename, int periods, String attendanceFile, String weekOf,
+            int parallelism, PhaseTimer timer) throws IOException {
+        if (periods < 1) {
+            throw new IllegalArgumentException("The number of periods must be at least 1: " + periods);
+        }
+        timer.start("Read employee file");
+        EmployeeIndex index = attendanceFile != null ? new EmployeeIndex() : null;
+        Employee[] employees = readEmployeesFromFile(filename, index);
+        
+        double[][] hours;
+        if (attendanceFile != null) {
+            timer.start("Read attendance log");
+            AttendanceLog log = new AttendanceLog(employees, index, weekOf, parallelism);
+            hours = log.readWeeklyHours(attendanceFile, periods);
+            System.out.println("\nAttendance log: " + log.getPunchCount() + " punches in "
+                    + String.format("%.1f", log.getElapsedNanos() / 1e6) + " ms, "
+                    + log.getSkippedCount() + " outside the " + periods + " weeks or skipped");
+        } else {
+            // For demonstration, the sample timesheet is used for every period
+            timer.start("Set timesheets");
+            setWeeklyTimesheet(employees);
+            hours = MultiPeriodPayroll.sameHoursEveryPeriod(employees, periods);
+        }
+        
+        timer.start("Calculate periods");
+        MultiPeriodPayroll payroll = new MultiPeriodPayroll(employees, hours);
+        payroll.calculate(parallelism);
+        
+        timer.start("Print report");
+        displayYearToDateReport(employees, payroll);
+        timer.stop();
+        return employees.length;
+    }
+    
+    /**
+     * Displays each employee's year-to-date totals and the roster's totals per period
+     * @param employees Array of Employee objects
+     * @param payroll The calculated periods
+     */
+    private static void displayYearToDateReport(Employee[] employees, MultiPeriodPayroll payroll) {
+        System.out.println("\nYEAR-TO-DATE PAYROLL REPORT (" + payroll.getPeriods() + " pay periods)");
+        System.out.println("========================================================================");
+        System.out.printf("%-8s %-25s %-10s %-12s %-12s %-12s\n",
+                "ID", "Name", "Hours", "Gross (₱)", "Deduct. (₱)", "Net (₱)");
+        System.out.println("------------------------------------------------------------------------");
+        for (int i = 0; i < employees.length; i++) {
+            if (employees[i] == null) {
+                continue;
+            }
+            double deductions = payroll.getYearToDate(i, MultiPeriodPayroll.SSS)
+                    + payroll.getYearToDate(i, MultiPeriodPayroll.PHILHEALTH)
+                    + payroll.getYearToDate(i, MultiPeriodPayroll.PAGIBIG)
+                    + payroll.getYearToDate(i, MultiPeriodPayroll.TAX);
+            System.out.printf("%-8d %-25s %-10.2f %-12.2f %-12.2f %-12.2f\n",
+                    employees[i].getEmployeeId(),
+                    employees[i].getLastName() + ", " + employees[i].getFirstName(),
+                    payroll.getYearToDate(i, MultiPeriodPayroll.HOURS),
+                    payroll.getYearToDate(i, MultiPeriodPayroll.GROSS),
+                    deductions,
+                    payroll.getYearToDate(i, MultiPeriodPayroll.NET));
+        }
+        System.out.println("========================================================================");
+        
+        System.out.println("\nPAY PERIOD TOTALS");
+        System.out.println("========================================================================");
+        System.out.printf("%-7s %14s %12s %12s %12s %12s %14s\n",
+                "Period", "Gross (₱)", "SSS (₱)", "PhilHealth", "Pag-IBIG", "Tax (₱)", "Net (₱)");
+        System.out.println("------------------------------------------------------------------------");
+        for (int period = 0; period < payroll.getPeriods(); period++) {
+            printPeriodTotalsRow(String.valueOf(period + 1), payroll.getPeriodTotal(period, MultiPeriodPayroll.GROSS),
+                    payroll.getPeriodTotal(period, MultiPeriodPayroll.SSS),
+                    payroll.getPeriodTotal(period, MultiPeriodPayroll.PHILHEALTH),
+                    payroll.getPeriodTotal(period, MultiPeriodPayroll.PAGIBIG),
+                    payroll.getPeriodTotal(period, MultiPeriodPayroll.TAX),
+                    payroll.getPeriodTotal(period, MultiPeriodPayroll.NET));
+        }
+        System.out.println("------------------------------------------------------------------------");
+        printPeriodTotalsRow("YTD", payroll.getYearTotal(MultiPeriodPayroll.GROSS),
+                payroll.getYearTotal(MultiPeriodPayroll.SSS),
+                payroll.getYearTotal(MultiPeriodPayroll.PHILHEALTH),
+                payroll.getYearTotal(MultiPeriodPayroll.PAGIBIG),
+                payroll.getYearTotal(MultiPeriodPayroll.TAX),
+                payroll.getYearTotal(MultiPeriodPayroll.NET));
+        System.out.println("========================================================================");
+    }
+    
+    /**
+     * Prints one line of the pay period totals
+     */
+    private static void printPeriodTotalsRow(String period, double gross, double sss, double philHealth,
+            double pagibig, double tax, double net) {
+        System.out.printf("%-7s %14.2f %12.2f %12.2f %12.2f %12.2f %14.2f\n",
+                period, gross, sss, philHealth, pagibig, tax, net);
+    }
+    
+    /**
+     * Displays the report totals kept by an IncrementalPayroll
+     * @param payroll The payroll holding the totals
+     * @param corrections Number of corrections that were applied
+     * @param employeeCount Number of employees in the roster
+     */
+    private static void displayPayrollTotals(IncrementalPayroll payroll, int corrections, int employeeCount) {
+        System.out.println("\nPAYROLL TOTALS");
+        System.out.println("========================================================================");
+        System.out.println("  Corrections Applied: " + corrections);
+        System.out.println("  Employees Recalculated: " + payroll.getLastRecalculated() + " of " + employeeCount);
+        System.out.println("  Total Hours: " + String.format("%.2f", payroll.getTotalHoursWorked()));
+        System.out.println("  Total Gross: ₱" + String.format("%.2f", payroll.getTotalGross()));
+        System.out.println("  Total Deductions: ₱" + String.format("%.2f", payroll.getTotalDeductions()));
+        System.out.println("  Total Net: ₱" + String.format("%.2f", payroll.getTotalNet()));
+        System.out.println("========================================================================");
+    }
+    
+    /**
+     * Shows the detailed calculation for one employee, found by ID
+     * The employee is found through an EmployeeIndex, and only that employee's
+     * payroll is calculated.
+     * @param filename The name of the employee text file
+     * @param snapshotFile A PayrollSnapshot file to read instead of the text file (may be null)
+     * @param employeeId The ID to look up
+     * @param timer Records how long each phase takes
+     * @return Number of employees in the roster
+     * @throws IOException If there's an error reading the file
+     */
+    private static int runEmployeeLookup(String filename, String snapshotFile, int employeeId, PhaseTimer timer)
+            throws IOException {
+        Employee emp = null;
+        int count;
+        if (snapshotFile != null) {
+            timer.start("Open snapshot and build index");
+            try (PayrollSnapshot snapshot = new PayrollSnapshot(snapshotFile)) {
+                EmployeeIndex index = EmployeeIndex.of(snapshot);
+                count = snapshot.size();
+                
+                timer.start("Look up employee");
+                int position = index.find(employeeId);
+                if (position >= 0) {
+                    timer.start("Read employee record");
+                    emp = snapshot.getEmployee(position);
+                }
+            }
+        } else {
+            timer.start("Read employee file and build index");
+            EmployeeIndex index = new EmployeeIndex();
+            Employee[] employees = readEmployeesFromFile(filename, index);
+            count = employees.length;
+            
+            timer.start("Look up employee");
+            int position = index.find(employeeId);
+            if (position >= 0) {
+                timer.start("Calculate employee");
+                emp = employees[position];
+                setWeeklyTimesheet(emp);
+                emp.calculateWeeklySalary();
+                emp.calculateDeductions();
+            }
+        }
+        
+        timer.start("Print detailed calculation");
+        if (emp != null) {
+            displayDetailedCalculation(emp, false);
+        } else {
+            System.out.println("\nEmployee ID " + employeeId + " was not found.");
+        }
+        timer.stop();
+        return count;
+    }
+    
+    /**
+     * Prints the weekly payroll report from a PayrollSnapshot file
+     * The snapshot already holds the calculated payroll, so the rows are printed
+     * from the stored values without reading the text file.
+     * @param filename The name of the snapshot file
+     * @param reportFile Where to write the report with PayrollReportWriter, or null for System.out
+     * @param timer Records how long each phase takes
+     * @return Number of employees in the snapshot
+     * @throws IOException If the snapshot cannot be read
+     */
+    private static int runSnapshotPayroll(String filename, String reportFile, PhaseTimer timer) throws IOException {
+        timer.start("Open snapshot");
+        try (PayrollSnapshot snapshot = new PayrollSnapshot(filename)) {
+            timer.start("Print report");
+            Employee sampleEmployee = snapshot.size() > 0 ? snapshot.getEmployee(0) : null;
+            if (reportFile != null) {
+                try (PayrollReportWriter writer = PayrollReportWriter.open(reportFile)) {
+                    writer.writeReportHeader();
+                    for (int i = 0; i < snapshot.size(); i++) {
+                        writer.writeReportRow(snapshot.getEmployeeId(i), snapshot.getLastName(i),
+                                snapshot.getFirstName(i),
+                                snapshot.getResult(i, PayrollSnapshot.TOTAL_HOURS_WORKED), snapshot.getHourlyRate(i),
+                                snapshot.getResult(i, PayrollSnapshot.WEEKLY_SALARY),
+                                snapshot.getResult(i, PayrollSnapshot.NET_SALARY));
+                    }
+                    writer.writeReportFooter(sampleEmployee);
+                }
+            } else {
+                printPayrollReportHeader();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    printPayrollReportRow(snapshot.getEmployeeId(i), snapshot.getLastName(i), snapshot.getFirstName(i),
+                            snapshot.getResult(i, PayrollSnapshot.TOTAL_HOURS_WORKED), snapshot.getHourlyRate(i),
+                            snapshot.getResult(i, PayrollSnapshot.WEEKLY_SALARY),
+                            snapshot.getResult(i, PayrollSnapshot.NET_SALARY));
+                }
+                System.out.println("========================================================================");
+                if (sampleEmployee != null) {
+                    displayDetailedCalculation(sampleEmployee);
+                }
+            }
+            timer.stop();
+            return snapshot.size();
+        }
+    }
+    
+    /**
+     * Sets the timesheet, calculates the pay and prints the report row for one employee
+     * @param emp The employee to process
+     */
+    private static void processEmployee(Employee emp) {
+        setWeeklyTimesheet(emp);
+        PayrollEngine.calculate(emp);
+        printPayrollReportRow(emp);
+    }
+    
     /**
      * Initializes the employee database with test data (fallback if file reading fails)
      * @return Array of Employee objects with test data
@@ -141,63 +1002,81 @@ public class MotorPHEmployeeSystem {
      * In a real application, this data would come from an actual timesheet system
      * @param employees Array of Employee objects
      */
-    private static void setWeeklyTimesheet(Employee[] employees) {
+    static void setWeeklyTimesheet(Employee[] employees) {
         for (Employee emp : employees) {
             if (emp != null) {
-                // Set clock-in and clock-out times for each day of the week
-                // Format: hour value in 24-hour format (e.g., 8.5 = 8:30 AM, 17.75 = 5:45 PM)
-                
-                // Monday
-                emp.addWorkDay(0, 8.0, 17.0);  // 8:00 AM to 5:00 PM
-                
-                // Tuesday
-                emp.addWorkDay(1, 8.0, 17.5);  // 8:00 AM to 5:30 PM
-                
-                // Wednesday
-                emp.addWorkDay(2, 8.5, 17.0);  // 8:30 AM to 5:00 PM
-                
-                // Thursday
-                emp.addWorkDay(3, 8.0, 18.0);  // 8:00 AM to 6:00 PM
-                
-                // Friday
-                emp.addWorkDay(4, 8.0, 17.0);  // 8:00 AM to 5:00 PM
+                setWeeklyTimesheet(emp);
             }
         }
     }
     
     /**
-     * Calculates weekly salaries for all employees
+     * Sets the sample timesheet data for a single employee
+     * @param emp The employee to set the timesheet for
+     */
+    static void setWeeklyTimesheet(Employee emp) {
+        // Set clock-in and clock-out times for each day of the week
+        // Format: hour value in 24-hour format (e.g., 8.5 = 8:30 AM, 17.75 = 5:45 PM)
+        
+        // Monday
+        emp.addWorkDay(0, 8.0, 17.0);  // 8:00 AM to 5:00 PM
+        
+        // Tuesday
+        emp.addWorkDay(1, 8.0, 17.5);  // 8:00 AM to 5:30 PM
+        
+        // Wednesday
+        emp.addWorkDay(2, 8.5, 17.0);  // 8:30 AM to 5:00 PM
+        
+        // Thursday
+        emp.addWorkDay(3, 8.0, 18.0);  // 8:00 AM to 6:00 PM
+        
+        // Friday
+        emp.addWorkDay(4, 8.0, 17.0);  // 8:00 AM to 5:00 PM
+    }
+    
+    /**
+     * Sets every employee's timesheet from a DTR/biometric attendance log and prints how fast it was read
+     * @param filename The name of the attendance log
+     * @param weekOf Any date in the payroll week (MM/dd/yyyy), or null for the week of the first punch
      * @param employees Array of Employee objects
+     * @param index Index from employee ID to array position
+     * @param parallelism Number of threads that add up the punches
+     * @throws IOException If there's an error reading the log
      */
-    private static void calculateWeeklySalaries(Employee[] employees) {
-        for (Employee emp : employees) {
-            if (emp != null) {
-                emp.calculateWeeklySalary();
-                emp.calculateDeductions(); // Calculate government deductions
-            }
+    private static void readAttendanceLog(String filename, String weekOf, Employee[] employees,
+            EmployeeIndex index, int parallelism) throws IOException {
+        AttendanceLog log = new AttendanceLog(employees, index, weekOf, parallelism);
+        log.read(filename);
+        
+        System.out.println("\nAttendance log: " + log.getPunchCount() + " punches in "
+                + String.format("%.1f", log.getElapsedNanos() / 1e6) + " ms ("
+                + String.format("%.0f", log.getPunchesPerSecond()) + " punches/s)");
+        if (log.getSkippedCount() > 0) {
+            System.out.println("Skipped: " + log.getOutsideWeekCount() + " outside the payroll week, "
+                    + log.getUnknownEmployeeCount() + " for unknown employee IDs, "
+                    + (log.getSkippedCount() - log.getOutsideWeekCount() - log.getUnknownEmployeeCount())
+                    + " invalid");
         }
     }
     
+    /**
+     * Calculates weekly salaries for all employees
+     * @param employees Array of Employee objects
+     */
+    static void calculateWeeklySalaries(Employee[] employees) {
+        PayrollEngine.calculateRange(employees, 0, employees.length);
+    }
+    
     /**
      * Displays weekly payroll report for all employees
      * @param employees Array of Employee objects to display
      */
-    private static void displayWeeklyPayrollReport(Employee[] employees) {
-        System.out.println("\nWEEKLY PAYROLL REPORT");
-        System.out.println("========================================================================");
-        System.out.printf("%-8s %-25s %-10s %-10s %-12s %-12s\n", 
-                "ID", "Name", "Hours", "Rate (₱)", "Gross (₱)", "Net (₱)");
-        System.out.println("------------------------------------------------------------------------");
+    static void displayWeeklyPayrollReport(Employee[] employees) {
+        printPayrollReportHeader();
         
         for (Employee emp : employees) {
             if (emp != null) {
-                System.out.printf("%-8d %-25s %-10.2f %-10.2f %-12.2f %-12.2f\n", 
-                        emp.getEmployeeId(), 
-                        emp.getLastName() + ", " + emp.getFirstName(), 
-                        emp.getTotalHoursWorked(),
-                        emp.getHourlyRate(),
-                        emp.getWeeklySalary(),
-                        emp.getNetSalary());
+                printPayrollReportRow(emp);
             }
         }
         System.out.println("========================================================================");
@@ -209,12 +1088,60 @@ public class MotorPHEmployeeSystem {
         }
     }
     
+    /**
+     * Prints the title and column headings of the weekly payroll report
+     */
+    private static void printPayrollReportHeader() {
+        System.out.println("\nWEEKLY PAYROLL REPORT");
+        System.out.println("========================================================================");
+        System.out.printf("%-8s %-25s %-10s %-10s %-12s %-12s\n", 
+                "ID", "Name", "Hours", "Rate (₱)", "Gross (₱)", "Net (₱)");
+        System.out.println("------------------------------------------------------------------------");
+    }
+    
+    /**
+     * Prints one employee's line of the weekly payroll report
+     * @param emp The employee to print
+     */
+    private static void printPayrollReportRow(Employee emp) {
+        printPayrollReportRow(emp.getEmployeeId(), emp.getLastName(), emp.getFirstName(),
+                emp.getTotalHoursWorked(), emp.getHourlyRate(), emp.getWeeklySalary(), emp.getNetSalary());
+    }
+    
+    /**
+     * Prints one line of the weekly payroll report from individual values
+     */
+    private static void printPayrollReportRow(int employeeId, String lastName, String firstName,
+            double totalHoursWorked, double hourlyRate, double weeklySalary, double netSalary) {
+        long rowStart = PayrollMetrics.enabled ? System.nanoTime() : 0;
+        System.out.printf("%-8d %-25s %-10.2f %-10.2f %-12.2f %-12.2f\n", 
+                employeeId, 
+                lastName + ", " + firstName, 
+                totalHoursWorked,
+                hourlyRate,
+                weeklySalary,
+                netSalary);
+        if (PayrollMetrics.enabled) {
+            PayrollMetrics.reportRowWritten(System.nanoTime() - rowStart);
+        }
+    }
+    
     /**
      * Displays detailed calculation for a single employee
      * @param sampleEmployee The employee to display detailed information for
      */
     private static void displayDetailedCalculation(Employee sampleEmployee) {
-        System.out.println("\nDETAILED CALCULATION (Sample - Employee ID: " + sampleEmployee.getEmployeeId() + ")");
+        displayDetailedCalculation(sampleEmployee, true);
+    }
+    
+    /**
+     * Displays detailed calculation for a single employee
+     * @param sampleEmployee The employee to display detailed information for
+     * @param sample Whether the employee is the report's sample (false for an employee looked up by ID)
+     */
+    private static void displayDetailedCalculation(Employee sampleEmployee, boolean sample) {
+        System.out.println("\nDETAILED CALCULATION (" + (sample ? "Sample - " : "") + "Employee ID: "
+                + sampleEmployee.getEmployeeId() + ")");
         System.out.println("========================================================================");
         System.out.println("Employee: " + sampleEmployee.getLastName() + ", " + sampleEmployee.getFirstName());
         System.out.println("Monthly Salary: ₱" + String.format("%.2f", sampleEmployee.getMonthlySalary()));
@@ -227,12 +1154,16 @@ public class MotorPHEmployeeSystem {
         System.out.println("  Friday:    " + String.format("%.2f", sampleEmployee.getDailyHours(4)));
         System.out.println("  Total:     " + String.format("%.2f", sampleEmployee.getTotalHoursWorked()) + " hours");
         System.out.println("\nSalary Calculation:");
-        System.out.println("  Regular Hours: " + String.format("%.2f", Math.min(40, sampleEmployee.getTotalHoursWorked())));
+        double standardHours = PayPolicy.current().getStandardWeeklyHours();
+        System.out.println("  Regular Hours: " + String.format("%.2f", Math.min(standardHours, sampleEmployee.getTotalHoursWorked())));
         System.out.println("  Regular Pay: ₱" + String.format("%.2f", sampleEmployee.getRegularPay()));
         
-        double overtimeHours = Math.max(0, sampleEmployee.getTotalHoursWorked() - 40);
+        double overtimeHours = Math.max(0, sampleEmployee.getTotalHoursWorked() - standardHours);
         System.out.println("  Overtime Hours: " + String.format("%.2f", overtimeHours));
         System.out.println("  Overtime Pay: ₱" + String.format("%.2f", sampleEmployee.getOvertimePay()));
+        if (sampleEmployee.getPremiumPay() != 0) {
+            System.out.println("  Premium Pay: ₱" + String.format("%.2f", sampleEmployee.getPremiumPay()));
+        }
         System.out.println("  GROSS WEEKLY SALARY: ₱" + String.format("%.2f", sampleEmployee.getWeeklySalary()));
         
         System.out.println("\nMonthly Government Deductions Calculation:");
@@ -254,336 +1185,123 @@ public class MotorPHEmployeeSystem {
         System.out.println("  NET WEEKLY SALARY: ₱" + String.format("%.2f", sampleEmployee.getNetSalary()));
         System.out.println("========================================================================");
     }
-}
-
-/**
- * Employee class to represent employee information and weekly salary calculations
- */
-class Employee {
-    private int employeeId;
-    private String lastName;
-    private String firstName;
-    private String birthday;
-    private double monthlySalary;
-    
-    // Arrays to store time data for each work day (index 0-4 for Monday-Friday)
-    private double[] clockInTimes = new double[5];
-    private double[] clockOutTimes = new double[5];
-    private double[] hoursPerDay = new double[5];
-    private double totalHoursWorked;
-    
-    // Salary calculation properties
-    private double hourlyRate;
-    private double regularPay;    // Pay for first 40 hours
-    private double overtimePay;   // Pay for hours over 40
-    private double weeklySalary;  // Total weekly salary
-    
-    // Government deduction properties
-    private double monthlySSS;          // Monthly SSS contribution
-    private double monthlyPhilHealth;   // Monthly PhilHealth contribution
-    private double monthlyPagibig;      // Monthly Pag-IBIG contribution
-    private double totalMonthlyDeductions; // Total monthly deductions before tax
-    private double taxableIncome;       // Taxable income after deductions
-    private double monthlyTax;          // Monthly withholding tax
-    
-    private double weeklySSS;           // Weekly SSS contribution
-    private double weeklyPhilHealth;    // Weekly PhilHealth contribution
-    private double weeklyPagibig;       // Weekly Pag-IBIG contribution
-    private double weeklyTax;           // Weekly withholding tax
-    private double totalDeductions;     // Total weekly deductions
-    private double netSalary;           // Net weekly salary after deductions
-    
-    // Standard work week constants
-    private static final double STANDARD_WEEKLY_HOURS = 40.0;
-    private static final double OVERTIME_RATE_MULTIPLIER = 1.5;
-    private static final double STANDARD_MONTHLY_HOURS = 160.0; // 40 hours × 4 weeks
-    private static final double WEEKS_PER_MONTH = 4.33;        // Average weeks per month
-    
-    /**
-     * Constructor for Employee class with basic information
-     */
-    public Employee(int employeeId, String lastName, String firstName, String birthday, double monthlySalary) {
-        this.employeeId = employeeId;
-        this.lastName = lastName;
-        this.firstName = firstName;
-        this.birthday = birthday;
-        this.monthlySalary = monthlySalary;
-        
-        // Calculate the hourly rate based on monthly salary
-        this.hourlyRate = monthlySalary / STANDARD_MONTHLY_HOURS;
-    }
-    
-    /**
-     * Add a work day to the employee's timesheet
-     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
-     * @param clockInTime Clock in time in decimal hours (e.g., 8.5 = 8:30 AM)
-     * @param clockOutTime Clock out time in decimal hours (e.g., 17.5 = 5:30 PM)
-     */
-    public void addWorkDay(int dayIndex, double clockInTime, double clockOutTime) {
-        if (dayIndex >= 0 && dayIndex < 5) {
-            clockInTimes[dayIndex] = clockInTime;
-            clockOutTimes[dayIndex] = clockOutTime;
-            
-            // Calculate hours worked for this day
-            double hoursWorked = clockOutTime - clockInTime;
-            
-            // Deduct 1 hour lunch break if the employee worked more than 5 hours
-            if (hoursWorked > 5) {
-                hoursWorked -= 1;
-            }
-            
-            hoursPerDay[dayIndex] = hoursWorked;
-        }
-    }
     
     /**
-     * Calculate the employee's weekly salary based on hours worked
+     * Checks whether a command line option was given
+     * @param args Command line arguments
+     * @param option The option to look for (e.g. "--stream")
+     * @return true if the option is present
      */
-    public void calculateWeeklySalary() {
-        // Reset total hours
-        totalHoursWorked = 0;
-        
-        // Sum up hours from all work days
-        for (double hours : hoursPerDay) {
-            totalHoursWorked += hours;
+    private static boolean hasOption(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.equals(option)) {
+                return true;
+            }
         }
-        
-        // Calculate regular pay (up to standard 40 hours)
-        double regularHours = Math.min(STANDARD_WEEKLY_HOURS, totalHoursWorked);
-        regularPay = regularHours * hourlyRate;
-        
-        // Calculate overtime pay (hours beyond standard 40 hours at overtime rate)
-        double overtimeHours = Math.max(0, totalHoursWorked - STANDARD_WEEKLY_HOURS);
-        overtimePay = overtimeHours * hourlyRate * OVERTIME_RATE_MULTIPLIER;
-        
-        // Calculate total weekly salary
-        weeklySalary = regularPay + overtimePay;
+        return false;
     }
     
     /**
-     * Calculate government deductions based on monthly salary
+     * Gets the number of threads to use for the payroll calculation
+     * @param args Command line arguments
+     * @return The --threads value, all available processors for --parallel, otherwise 1
      */
-    public void calculateDeductions() {
-        // Calculate monthly SSS contribution (using the provided SSS contribution table)
-        calculateSSSContribution();
-        
-        // Calculate monthly PhilHealth contribution (using the provided PhilHealth rates)
-        calculatePhilHealthContribution();
-        
-        // Calculate monthly Pag-IBIG contribution (using the provided Pag-IBIG rates)
-        calculatePagibigContribution();
-        
-        // Calculate total monthly deductions (before tax)
-        totalMonthlyDeductions = monthlySSS + monthlyPhilHealth + monthlyPagibig;
-        
-        // Calculate taxable income
-        taxableIncome = monthlySalary - totalMonthlyDeductions;
-        
-        // Calculate monthly withholding tax
-        calculateWithholdingTax();
-        
-        // Convert monthly deductions to weekly
-        weeklySSS = monthlySSS / WEEKS_PER_MONTH;
-        weeklyPhilHealth = monthlyPhilHealth / WEEKS_PER_MONTH;
-        weeklyPagibig = monthlyPagibig / WEEKS_PER_MONTH;
-        weeklyTax = monthlyTax / WEEKS_PER_MONTH;
-        
-        // Calculate total deductions and net salary
-        totalDeductions = weeklySSS + weeklyPhilHealth + weeklyPagibig + weeklyTax;
-        netSalary = weeklySalary - totalDeductions;
-    }
-    
-private void calculateSSSContribution() {
-    // Handle the special case for salaries below 3250
-    if (monthlySalary < 3250) {
-        monthlySSS = 135.00;
-        return; // Exit the method as the contribution is fixed for this range
-    }
-
-    // Handle the case for salaries at or above 24750, which have a fixed maximum contribution
-    if (monthlySalary >= 24750) {
-        monthlySSS = 1125.00;
-        return; // Exit the method as the contribution is fixed for this range
-    }
-
-    // Calculate the bracket number for salaries between 3250 and 24749
-    // We subtract 3250 because the brackets effectively start from this value.
-    // We divide by 500 because each bracket has a width of 500.
-    // The (int) cast truncates the decimal part to get the integer bracket index.
-    int bracket = (int) ((monthlySalary - 3250) / 500);
-
-    // Calculate the monthly SSS contribution based on the bracket.
-    // The base contribution for the first bracket (3250-3749, which corresponds to bracket 0) is 157.50.
-    // Each subsequent bracket increases the contribution by a fixed amount of 22.50.
-    monthlySSS = 157.50 + (bracket * 22.50);
-}
-
-    /**
-     * Calculate PhilHealth contribution based on monthly salary
-     * Using the provided 3% rate with equal sharing between employer and employee
-     */
-    private void calculatePhilHealthContribution() {
-        // 3% total rate with 50% paid by employee (1.5%)
-        if (monthlySalary <= 10000) {
-            // For salaries at 10,000 or below (fixed amount)
-            monthlyPhilHealth = 300.00 / 2; // 150.00 (employee share)
-        } else if (monthlySalary < 60000) {
-            // For salaries between 10,000.01 and 59,999.99
-            monthlyPhilHealth = (monthlySalary * 0.03) / 2; // 1.5% of monthly salary
-        } else {
-            // For salaries 60,000 and above (fixed amount)
-            monthlyPhilHealth = 1800.00 / 2; // 900.00 (employee share)
+    private static int getParallelism(String[] args) {
+        String threads = getOptionValue(args, "--threads", null);
+        if (threads != null) {
+            return Math.max(1, Integer.parseInt(threads));
         }
+        return hasOption(args, "--parallel") ? Runtime.getRuntime().availableProcessors() : 1;
     }
     
     /**
-     * Calculate Pag-IBIG contribution based on monthly salary
-     * Using the provided Pag-IBIG contribution table
+     * Parses a whole-number option value and checks its range
+     * @param option The option the value belongs to (for the error message)
+     * @param value The value given on the command line
+     * @param min Smallest allowed value (at least 0)
+     * @param max Largest allowed value
+     * @return The value, or -1 after printing an error if it is not a whole number from min to max
      */
-    private void calculatePagibigContribution() {
-        if (monthlySalary <= 1500) {
-            // 1% employee contribution for salaries up to 1,500
-            monthlyPagibig = monthlySalary * 0.01;
-        } else {
-            // 2% employee contribution for salaries over 1,500
-            monthlyPagibig = monthlySalary * 0.02;
-            
-            // Cap at 100 pesos as per standard Pag-IBIG rule
-            if (monthlyPagibig > 100) {
-                monthlyPagibig = 100;
+    private static int parseCount(String option, String value, int min, int max) {
+        try {
+            int count = Integer.parseInt(value.trim());
+            if (count >= min && count <= max) {
+                return count;
             }
+        } catch (NumberFormatException e) {
+            // Reported below
         }
+        System.out.println("Error: " + option + " must be a whole number "
+                + (max == Integer.MAX_VALUE ? "of at least " + min : "from " + min + " to " + max) + ": " + value);
+        return -1;
     }
     
     /**
-     * Calculate withholding tax based on monthly salary after deductions
-     * Using the provided withholding tax table
+     * Creates empty aggregates with the --top and --bands options, for a run that adds one employee at a time
      */
-    private void calculateWithholdingTax() {
-        // Already calculated taxable income = monthlySalary - totalMonthlyDeductions
-        
-        if (taxableIncome <= 20832) {
-            // No withholding tax for income up to 20,832
-            monthlyTax = 0;
-        } else if (taxableIncome < 33333) {
-            // 20% of the excess over 20,833
-            monthlyTax = (taxableIncome - 20833) * 0.20;
-        } else if (taxableIncome < 66667) {
-            // 2,500 plus 25% of the excess over 33,333
-            monthlyTax = 2500 + ((taxableIncome - 33333) * 0.25);
-        } else if (taxableIncome < 166667) {
-            // 10,833 plus 30% of the excess over 66,667
-            monthlyTax = 10833 + ((taxableIncome - 66667) * 0.30);
-        } else if (taxableIncome < 666667) {
-            // 40,833.33 plus 32% of the excess over 166,667
-            monthlyTax = 40833.33 + ((taxableIncome - 166667) * 0.32);
-        } else {
-            // 200,833.33 plus 35% of the excess over 666,667
-            monthlyTax = 200833.33 + ((taxableIncome - 666667) * 0.35);
-        }
+    private static PayrollAggregates newAggregates(String[] args) {
+        return new PayrollAggregates(getBands(args), getTopCount(args));
     }
     
     /**
-     * Get hours worked for a specific day
-     * @param dayIndex Day index (0=Monday, 1=Tuesday, etc.)
-     * @return Hours worked for that day
+     * Adds the fallback sample employees to aggregates that are being filled one employee at a time
+     * @param aggregates The aggregates (nothing is done if null)
+     * @param employees The calculated sample employees
      */
-    public double getDailyHours(int dayIndex) {
-        if (dayIndex >= 0 && dayIndex < 5) {
-            return hoursPerDay[dayIndex];
+    private static void addAll(PayrollAggregates aggregates, Employee[] employees) {
+        if (aggregates != null) {
+            for (Employee emp : employees) {
+                aggregates.add(emp);
+            }
         }
-        return 0;
     }
     
-    // Getters for salary calculations
-    public double getTotalHoursWorked() {
-        return totalHoursWorked;
-    }
-    
-    public double getRegularPay() {
-        return regularPay;
-    }
-    
-    public double getOvertimePay() {
-        return overtimePay;
-    }
-    
-    public double getWeeklySalary() {
-        return weeklySalary;
-    }
-    
-    // Getters for monthly deductions
-    public double getMonthlySSS() {
-        return monthlySSS;
-    }
-    
-    public double getMonthlyPhilHealth() {
-        return monthlyPhilHealth;
-    }
-    
-    public double getMonthlyPagibig() {
-        return monthlyPagibig;
-    }
-    
-    public double getTotalMonthlyDeductions() {
-        return totalMonthlyDeductions;
-    }
-    
-    public double getTaxableIncome() {
-        return taxableIncome;
-    }
-    
-    public double getMonthlyTax() {
-        return monthlyTax;
-    }
-    
-    // Getters for weekly deductions
-    public double getWeeklySSS() {
-        return weeklySSS;
-    }
-    
-    public double getWeeklyPhilHealth() {
-        return weeklyPhilHealth;
-    }
-    
-    public double getWeeklyPagibig() {
-        return weeklyPagibig;
-    }
-    
-    public double getWeeklyTax() {
-        return weeklyTax;
-    }
-    
-    public double getTotalDeductions() {
-        return totalDeductions;
-    }
-    
-    public double getNetSalary() {
-        return netSalary;
-    }
-    
-    // Getters for basic employee information
-    public int getEmployeeId() {
-        return employeeId;
-    }
-    
-    public String getLastName() {
-        return lastName;
+    /**
+     * Aggregates a calculated roster with the --top and --bands options
+     */
+    private static PayrollAggregates aggregate(Employee[] employees, int parallelism, String[] args) {
+        return PayrollAggregates.aggregate(employees, parallelism, getBands(args), getTopCount(args));
     }
     
-    public String getFirstName() {
-        return firstName;
+    /**
+     * Aggregates a snapshot with the --top and --bands options
+     */
+    private static PayrollAggregates aggregate(PayrollSnapshot snapshot, int parallelism, String[] args) {
+        return PayrollAggregates.aggregate(snapshot, parallelism, getBands(args), getTopCount(args));
     }
     
-    public String getBirthday() {
-        return birthday;
+    /**
+     * Gets the monthly salary band bounds for the aggregates
+     * @param args Command line arguments
+     * @return The --bands bounds, or the default bands
+     */
+    private static double[] getBands(String[] args) {
+        String bands = getOptionValue(args, "--bands", null);
+        return bands != null ? PayrollAggregates.parseBands(bands) : PayrollAggregates.DEFAULT_BANDS;
     }
     
-    public double getMonthlySalary() {
-        return monthlySalary;
+    /**
+     * Gets the number of top earners for the aggregates
+     * @param args Command line arguments
+     * @return The --top value, or the default count
+     */
+    private static int getTopCount(String[] args) {
+        return Integer.parseInt(getOptionValue(args, "--top", String.valueOf(PayrollAggregates.DEFAULT_TOP_COUNT)));
     }
     
-    public double getHourlyRate() {
-        return hourlyRate;
+    /**
+     * Gets the value that follows a command line option
+     * @param args Command line arguments
+     * @param option The option to look for (e.g. "--file")
+     * @param defaultValue Value to use if the option is not present
+     * @return The option value or the default value
+     */
+    private static String getOptionValue(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
     }
-}
\ No newline at end of file
+}
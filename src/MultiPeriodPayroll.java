@@ -0,0 +1,295 @@
+/**
+ * MultiPeriodPayroll.java
+ *
+ * Calculates many weekly pay periods for a whole roster in one run, e.g. the 52
+ * weeks of a year for year-end or back-pay recomputation, instead of running the
+ * program (and reading the employee file) once per week.
+ *
+ * Hours and weekly pay are kept in period-major primitive buffers: one array per
+ * pay period, indexed by the employee's position in the roster ([period][position]).
+ * Each period uses the same formulas, in the same order, as Employee, and the
+ * weekly deductions come from the DeductionCache, so a period's pay is the same
+ * as a single-week run with the same hours.
+ *
+ * The work is split two ways:
+ *   1. Weekly pay: tiles of a block of employees times a few periods, so even a
+ *      small roster with many periods keeps every thread busy
+ *   2. Totals: blocks of employees, each adding up its employees' periods in order
+ * Every sum is added in the same order whatever the number of threads, so the
+ * totals do not depend on --threads.
+ */
+
+import java.util.Arrays;
+
+class MultiPeriodPayroll {
+    // Employees per block, and periods per tile of the weekly pay calculation
+    private static final int BLOCK_SIZE = 2048;
+    private static final int PERIODS_PER_TILE = 4;
+
+    // Kinds of total (used with getYearToDate, getPeriodTotal and getYearTotal)
+    static final int HOURS = 0;
+    static final int GROSS = 1;
+    static final int SSS = 2;
+    static final int PHILHEALTH = 3;
+    static final int PAGIBIG = 4;
+    static final int TAX = 5;
+    static final int NET = 6;
+    private static final int TOTAL_COUNT = 7;
+
+    private final Employee[] employees;
+    private final int periods;
+    private final int blocks;
+    private final int periodGroups;
+
+    // Hours worked and gross weekly pay per period (index [period][position])
+    private final double[][] hours;
+    private final double[][] gross;
+
+    // Per employee values that are the same in every period
+    private final double[] hourlyRates;
+    private final long[] hourlyRatesCentavos;  // In 1/100 centavo, with Centavos.enabled
+    private final double[] weeklySSS;
+    private final double[] weeklyPhilHealth;
+    private final double[] weeklyPagibig;
+    private final double[] weeklyTax;
+    private final double[] totalDeductions;
+
+    // Year-to-date totals per employee (index [total][position])
+    private final double[][] yearToDate;
+
+    // Totals of each block of employees per period (index [block][total][period]),
+    // and of the whole roster per period (index [total][period])
+    private final double[][][] blockTotals;
+    private final double[][] periodTotals = new double[TOTAL_COUNT][];
+
+    /**
+     * Creates a multi-period payroll
+     * @param employees The roster (null entries are skipped)
+     * @param hours Hours worked per period and employee (index [period][position]);
+     *              periods may share the same array when the hours are the same every week
+     */
+    MultiPeriodPayroll(Employee[] employees, double[][] hours) {
+        this.employees = employees;
+        this.hours = hours;
+        this.periods = hours.length;
+        this.blocks = (employees.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.periodGroups = (periods + PERIODS_PER_TILE - 1) / PERIODS_PER_TILE;
+
+        int count = employees.length;
+        gross = new double[periods][count];
+        hourlyRates = new double[count];
+        hourlyRatesCentavos = new long[count];
+        weeklySSS = new double[count];
+        weeklyPhilHealth = new double[count];
+        weeklyPagibig = new double[count];
+        weeklyTax = new double[count];
+        totalDeductions = new double[count];
+        yearToDate = new double[TOTAL_COUNT][count];
+        blockTotals = new double[blocks][TOTAL_COUNT][periods];
+        for (int total = 0; total < TOTAL_COUNT; total++) {
+            periodTotals[total] = new double[periods];
+        }
+    }
+
+    /**
+     * Gives every employee the same hours in each of a number of periods
+     * (the sample timesheet from setWeeklyTimesheet, when there is no attendance log)
+     * @param employees The roster, with each employee's timesheet already set
+     * @param periods Number of pay periods
+     * @return Hours per period and employee; every period shares one array
+     */
+    static double[][] sameHoursEveryPeriod(Employee[] employees, int periods) {
+        double[] weekHours = new double[employees.length];
+        for (int i = 0; i < employees.length; i++) {
+            if (employees[i] != null) {
+                double total = 0;
+                for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                    total += employees[i].getDailyHours(day);
+                }
+                weekHours[i] = total;
+            }
+        }
+        double[][] hours = new double[Math.max(1, periods)][];
+        Arrays.fill(hours, weekHours);
+        return hours;
+    }
+
+    /**
+     * Calculates every period's pay and the period and year-to-date totals
+     * @param parallelism Number of worker threads to use
+     */
+    void calculate(int parallelism) {
+        // Deductions depend only on the monthly salary, so they are looked up once per employee
+        PayrollEngine.runParallel(this::lookUpDeductions, employees.length, parallelism);
+
+        // Weekly pay: every tile is one block of employees and a group of periods
+        PayrollEngine.runParallel((from, to) -> {
+            for (int tile = from; tile < to; tile++) {
+                calculateTile(tile / periodGroups, tile % periodGroups);
+            }
+        }, blocks * periodGroups, parallelism, 1);
+
+        // Totals: every block adds up its own employees
+        PayrollEngine.runParallel((from, to) -> {
+            for (int block = from; block < to; block++) {
+                addUpBlock(block);
+            }
+        }, blocks, parallelism, 1);
+
+        // Roster totals per period, adding the blocks in roster order
+        for (int total = 0; total < TOTAL_COUNT; total++) {
+            Arrays.fill(periodTotals[total], 0);
+            for (int block = 0; block < blocks; block++) {
+                double[] blockTotal = blockTotals[block][total];
+                for (int period = 0; period < periods; period++) {
+                    periodTotals[total][period] += blockTotal[period];
+                }
+            }
+        }
+    }
+
+    private void lookUpDeductions(int from, int to) {
+        DeductionCache cache = DeductionCache.shared();
+        for (int i = from; i < to; i++) {
+            Employee emp = employees[i];
+            if (emp == null) {
+                continue;
+            }
+            DeductionResult deductions = cache.lookup(emp.getMonthlySalary());
+            hourlyRates[i] = emp.getHourlyRate();
+            hourlyRatesCentavos[i] = Centavos.hourlyRate(Centavos.of(emp.getMonthlySalary()));
+            weeklySSS[i] = deductions.weeklySSS;
+            weeklyPhilHealth[i] = deductions.weeklyPhilHealth;
+            weeklyPagibig[i] = deductions.weeklyPagibig;
+            weeklyTax[i] = deductions.weeklyTax;
+            totalDeductions[i] = deductions.totalDeductions;
+        }
+    }
+
+    /**
+     * Calculates the gross weekly pay of one block of employees in a group of periods
+     * (same formulas as Employee.calculateWeeklySalary)
+     */
+    private void calculateTile(int block, int periodGroup) {
+        int from = block * BLOCK_SIZE;
+        int to = Math.min(employees.length, from + BLOCK_SIZE);
+        int lastPeriod = Math.min(periods, (periodGroup + 1) * PERIODS_PER_TILE);
+        for (int period = periodGroup * PERIODS_PER_TILE; period < lastPeriod; period++) {
+            double[] periodHours = hours[period];
+            double[] periodGross = gross[period];
+            if (Centavos.enabled) {
+                // Same as Employee.calculateWeeklySalary in whole centavos
+                for (int i = from; i < to; i++) {
+                    long minutes = Centavos.minutes(periodHours[i]);
+                    long rate = hourlyRatesCentavos[i];
+                    periodGross[i] = Centavos.toPesos(Centavos.regularPay(minutes, rate)
+                            + Centavos.overtimePay(minutes, rate));
+                }
+                continue;
+            }
+            for (int i = from; i < to; i++) {
+                // Regular pay (up to standard 40 hours)
+                double regularHours = Math.min(Employee.STANDARD_WEEKLY_HOURS, periodHours[i]);
+                double regularPay = regularHours * hourlyRates[i];
+
+                // Overtime pay (hours beyond standard 40 hours at overtime rate)
+                double overtimeHours = Math.max(0, periodHours[i] - Employee.STANDARD_WEEKLY_HOURS);
+                double overtimePay = overtimeHours * hourlyRates[i] * Employee.OVERTIME_RATE_MULTIPLIER;
+
+                periodGross[i] = regularPay + overtimePay;
+            }
+        }
+    }
+
+    /**
+     * Adds up the year-to-date totals of one block of employees, and the block's
+     * totals per period (periods in order, employees in roster order)
+     */
+    private void addUpBlock(int block) {
+        int from = block * BLOCK_SIZE;
+        int to = Math.min(employees.length, from + BLOCK_SIZE);
+        for (double[] ytd : yearToDate) {
+            Arrays.fill(ytd, from, to, 0);
+        }
+        double[][] totals = blockTotals[block];
+        for (int period = 0; period < periods; period++) {
+            double[] periodHours = hours[period];
+            double[] periodGross = gross[period];
+            for (int i = from; i < to; i++) {
+                if (employees[i] == null) {
+                    continue;
+                }
+                double net = getNet(period, i);
+                yearToDate[HOURS][i] += periodHours[i];
+                yearToDate[GROSS][i] += periodGross[i];
+                yearToDate[SSS][i] += weeklySSS[i];
+                yearToDate[PHILHEALTH][i] += weeklyPhilHealth[i];
+                yearToDate[PAGIBIG][i] += weeklyPagibig[i];
+                yearToDate[TAX][i] += weeklyTax[i];
+                yearToDate[NET][i] += net;
+
+                totals[HOURS][period] += periodHours[i];
+                totals[GROSS][period] += periodGross[i];
+                totals[SSS][period] += weeklySSS[i];
+                totals[PHILHEALTH][period] += weeklyPhilHealth[i];
+                totals[PAGIBIG][period] += weeklyPagibig[i];
+                totals[TAX][period] += weeklyTax[i];
+                totals[NET][period] += net;
+            }
+        }
+    }
+
+    /**
+     * Number of pay periods
+     */
+    int getPeriods() {
+        return periods;
+    }
+
+    /**
+     * One employee's gross weekly pay in one period
+     */
+    double getGross(int period, int position) {
+        return gross[period][position];
+    }
+
+    /**
+     * One employee's net weekly pay in one period
+     */
+    double getNet(int period, int position) {
+        if (Centavos.enabled) {
+            return Centavos.toPesos(Centavos.of(gross[period][position]) - Centavos.of(totalDeductions[position]));
+        }
+        return gross[period][position] - totalDeductions[position];
+    }
+
+    /**
+     * One employee's year-to-date total
+     * @param position Position of the employee in the roster
+     * @param total One of the total constants (e.g. NET)
+     */
+    double getYearToDate(int position, int total) {
+        return yearToDate[total][position];
+    }
+
+    /**
+     * The whole roster's total in one period
+     * @param period The pay period (0 = first)
+     * @param total One of the total constants (e.g. GROSS)
+     */
+    double getPeriodTotal(int period, int total) {
+        return periodTotals[total][period];
+    }
+
+    /**
+     * The whole roster's total over all periods (the period totals added in order)
+     * @param total One of the total constants (e.g. TAX)
+     */
+    double getYearTotal(int total) {
+        double sum = 0;
+        for (int period = 0; period < periods; period++) {
+            sum += periodTotals[total][period];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * PayPolicy.java
+ *
+ * The pay rules of a business unit: the standard work week and overtime rate,
+ * the lunch break taken off long days, and optional premiums for night work and
+ * rest days. A policy is read once (from a file like "Pay Policy.txt" or the
+ * built-in defaults, which are the rules this payroll has always used) and then
+ * compiled by PayRules into method handle chains that contain only the rules the
+ * policy uses, with its numbers as constants.
+ *
+ * The timesheet still has five days (Monday to Friday), so a rest day is one of
+ * those five days paid at the rest-day rate. Only the Employee calculation uses
+ * the policy; the columnar, vector, fixed-point and multi-period modes have the
+ * built-in rules written into their loops and need the standard policy.
+ *
+ * A policy never changes after it is built. A new one can be swapped in with
+ * setCurrent(), which recompiles the rules for all threads.
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+class PayPolicy {
+    // The built-in policy, in the same format as "Pay Policy.txt"
+    private static final String[] DEFAULT_POLICY = {
+        "standardWeeklyHours = 40",
+        "overtimeMultiplier = 1.5",
+        "lunchBreak.after = 5",
+        "lunchBreak.hours = 1",
+        "nightDifferential.rate = 0",
+        "nightDifferential.start = 22",
+        "nightDifferential.end = 6",
+        "restDays = none",
+        "restDayMultiplier = 1.3"
+    };
+
+    private static final String[] KEYS = {
+        "standardWeeklyHours", "overtimeMultiplier", "lunchBreak.after", "lunchBreak.hours",
+        "nightDifferential.rate", "nightDifferential.start", "nightDifferential.end", "restDays",
+        "restDayMultiplier"
+    };
+
+    private static final String[] DAY_NAMES = {"monday", "tuesday", "wednesday", "thursday", "friday"};
+
+    // Policy compiled into PayRules (shared by all threads)
+    private static volatile PayPolicy current = defaultPolicy();
+
+    private final double standardWeeklyHours;
+    private final double overtimeMultiplier;
+    private final double lunchBreakAfter;     // A day longer than this many hours...
+    private final double lunchBreakHours;     // ...has this many hours taken off (0 for no lunch break)
+    private final double nightRate;           // Extra rate for night hours (0 for no night differential)
+    private final double nightStart;          // Night hours start at this time of day...
+    private final double nightEnd;            // ...and end at this time the next morning
+    private final int restDays;               // Bit per day index (bit 0 = Monday)
+    private final double restDayMultiplier;   // Rate for hours worked on a rest day
+
+    private PayPolicy(double[] values, int restDays) {
+        this.standardWeeklyHours = values[0];
+        this.overtimeMultiplier = values[1];
+        this.lunchBreakAfter = values[2];
+        this.lunchBreakHours = values[3];
+        this.nightRate = values[4];
+        this.nightStart = values[5];
+        this.nightEnd = values[6];
+        this.restDays = restDays;
+        this.restDayMultiplier = values[8];
+    }
+
+    /**
+     * Gets the policy currently compiled into PayRules
+     */
+    static PayPolicy current() {
+        return current;
+    }
+
+    /**
+     * Replaces the policy used for payroll calculations and compiles its rules
+     * @param policy The new policy
+     */
+    static void setCurrent(PayPolicy policy) {
+        current = policy;
+        PayRules.install(policy);
+    }
+
+    /**
+     * Gets the built-in policy (the rules this payroll system has always used)
+     */
+    static PayPolicy defaultPolicy() {
+        StringBuilder text = new StringBuilder();
+        for (String line : DEFAULT_POLICY) {
+            text.append(line).append('\n');
+        }
+        try {
+            return parse(new BufferedReader(new StringReader(text.toString())), "built-in policy");
+        } catch (IOException e) {
+            throw new IllegalStateException("Built-in pay policy is invalid", e);
+        }
+    }
+
+    /**
+     * Loads a policy from a text file
+     * @param filename The name of the policy file
+     * @return The policy
+     * @throws IOException If the file cannot be read or has an invalid line
+     */
+    static PayPolicy load(String filename) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            return parse(reader, filename);
+        }
+    }
+
+    /**
+     * Whether this policy has exactly the built-in rules (which every calculation mode supports)
+     */
+    boolean isStandard() {
+        return standardWeeklyHours == Employee.STANDARD_WEEKLY_HOURS
+                && overtimeMultiplier == Employee.OVERTIME_RATE_MULTIPLIER
+                && lunchBreakAfter == 5 && lunchBreakHours == 1 && !hasPremiums();
+    }
+
+    /**
+     * Whether any hours are paid more than the hourly rate apart from overtime
+     */
+    boolean hasPremiums() {
+        return nightRate != 0 || (restDays != 0 && restDayMultiplier != 1);
+    }
+
+    double getStandardWeeklyHours() {
+        return standardWeeklyHours;
+    }
+
+    double getOvertimeMultiplier() {
+        return overtimeMultiplier;
+    }
+
+    double getLunchBreakAfter() {
+        return lunchBreakAfter;
+    }
+
+    double getLunchBreakHours() {
+        return lunchBreakHours;
+    }
+
+    double getNightRate() {
+        return nightRate;
+    }
+
+    double getNightStart() {
+        return nightStart;
+    }
+
+    double getNightEnd() {
+        return nightEnd;
+    }
+
+    /**
+     * Rest days as one bit per day index (bit 0 = Monday)
+     */
+    int getRestDays() {
+        return restDays;
+    }
+
+    double getRestDayMultiplier() {
+        return restDayMultiplier;
+    }
+
+    /**
+     * Reads the lines of a policy
+     * Lines are "key = value", one for each key; blank lines and lines starting with # are ignored.
+     */
+    private static PayPolicy parse(BufferedReader reader, String source) throws IOException {
+        double[] values = new double[KEYS.length];
+        boolean[] found = new boolean[KEYS.length];
+        int restDays = 0;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            int index = equals < 0 ? -1 : indexOf(KEYS, line.substring(0, equals).trim());
+            if (index < 0 || found[index]) {
+                // Unknown or repeated key
+                throw invalidLine(source, lineNumber, line);
+            }
+            String value = line.substring(equals + 1).trim();
+
+            try {
+                if (KEYS[index].equals("restDays")) {
+                    restDays = parseDays(value);
+                } else {
+                    values[index] = Double.parseDouble(value);
+                }
+                found[index] = true;
+            } catch (NumberFormatException e) {
+                throw invalidLine(source, lineNumber, line);
+            }
+        }
+
+        for (int i = 0; i < KEYS.length; i++) {
+            if (!found[i]) {
+                throw new IOException(source + ": missing " + KEYS[i]);
+            }
+        }
+        if (!(values[0] > 0) || values[1] < 0 || values[2] < 0 || values[3] < 0 || values[4] < 0
+                || values[8] < 0) {
+            throw new IOException(source + ": hours, rates and multipliers must not be negative"
+                    + " (and standardWeeklyHours must be more than 0)");
+        }
+        if (!(values[5] >= 0 && values[5] <= 24 && values[6] >= 0 && values[6] <= 24)) {
+            throw new IOException(source + ": nightDifferential.start and .end must be times from 0 to 24");
+        }
+        if (values[5] == values[6]) {
+            // Would read as either no night hours or the whole day
+            throw new IOException(source + ": nightDifferential.start and .end must not be the same time");
+        }
+        return new PayPolicy(values, restDays);
+    }
+
+    /**
+     * Parses a list of days such as "monday, friday" ("none" for no days)
+     */
+    private static int parseDays(String value) {
+        if (value.equalsIgnoreCase("none")) {
+            return 0;
+        }
+        int days = 0;
+        for (String part : value.split(",")) {
+            int day = indexOf(DAY_NAMES, part.trim().toLowerCase());
+            if (day < 0) {
+                throw new NumberFormatException("Unknown day: " + part.trim());
+            }
+            days |= 1 << day;
+        }
+        return days;
+    }
+
+    private static IOException invalidLine(String source, int lineNumber, String line) {
+        return new IOException(source + ": invalid line " + lineNumber + ": " + line);
+    }
+
+    private static int indexOf(String[] keys, String key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * PayRules.java
+ *
+ * The compiled form of the current PayPolicy, used by Employee for every
+ * employee and day. Each rule is a method handle chain built once from the
+ * policy: the policy's numbers are bound in as constants, and rules the policy
+ * does not use (no lunch break, no premiums) are left out of the chain instead
+ * of being checked each time.
+ *
+ * The chains sit behind MutableCallSites held in static final fields, so the JIT
+ * compiler treats the current chain as a constant and inlines it into the
+ * caller, the same as the hard-coded arithmetic it replaces (PayrollBenchmark
+ * compares the two). Installing a new policy swaps the targets; code compiled
+ * for the old chain is thrown away and compiled again.
+ *
+ * The built-in policy does the same operations, in the same order, as the
+ * original Employee code, so its results are exactly the same.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+final class PayRules {
+    // (clock in, clock out) -> hours worked that day
+    private static final MethodType HOURS_TYPE = MethodType.methodType(double.class, double.class, double.class);
+    // (total hours, hourly rate) -> pay
+    private static final MethodType PAY_TYPE = MethodType.methodType(double.class, double.class, double.class);
+    // (day index, clock in, clock out, hours worked, hourly rate) -> premium pay for that day
+    private static final MethodType PREMIUM_TYPE = MethodType.methodType(double.class, int.class, double.class,
+            double.class, double.class, double.class);
+
+    private static final MutableCallSite HOURS_WORKED = new MutableCallSite(HOURS_TYPE);
+    private static final MutableCallSite REGULAR_PAY = new MutableCallSite(PAY_TYPE);
+    private static final MutableCallSite OVERTIME_PAY = new MutableCallSite(PAY_TYPE);
+    private static final MutableCallSite PREMIUM_PAY = new MutableCallSite(PREMIUM_TYPE);
+
+    private static final MethodHandle HOURS_WORKED_INVOKER = HOURS_WORKED.dynamicInvoker();
+    private static final MethodHandle REGULAR_PAY_INVOKER = REGULAR_PAY.dynamicInvoker();
+    private static final MethodHandle OVERTIME_PAY_INVOKER = OVERTIME_PAY.dynamicInvoker();
+    private static final MethodHandle PREMIUM_PAY_INVOKER = PREMIUM_PAY.dynamicInvoker();
+
+    static {
+        install(PayPolicy.current());
+    }
+
+    private PayRules() {
+    }
+
+    /**
+     * Hours worked in one day under the current policy (less the lunch break)
+     */
+    static double hoursWorked(double clockInTime, double clockOutTime) {
+        try {
+            return (double) HOURS_WORKED_INVOKER.invokeExact(clockInTime, clockOutTime);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Pay for the hours up to the standard week
+     */
+    static double regularPay(double totalHours, double hourlyRate) {
+        try {
+            return (double) REGULAR_PAY_INVOKER.invokeExact(totalHours, hourlyRate);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Pay for the hours beyond the standard week, at the overtime rate
+     */
+    static double overtimePay(double totalHours, double hourlyRate) {
+        try {
+            return (double) OVERTIME_PAY_INVOKER.invokeExact(totalHours, hourlyRate);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Extra pay for one day's night hours and rest-day hours (0 if the policy has no premiums)
+     */
+    static double premiumPay(int dayIndex, double clockInTime, double clockOutTime, double hoursWorked,
+            double hourlyRate) {
+        try {
+            return (double) PREMIUM_PAY_INVOKER.invokeExact(dayIndex, clockInTime, clockOutTime, hoursWorked,
+                    hourlyRate);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Compiles a policy and makes it the one every thread uses
+     * @param policy The policy to compile
+     */
+    static synchronized void install(PayPolicy policy) {
+        HOURS_WORKED.setTarget(compileHoursWorked(policy));
+        REGULAR_PAY.setTarget(MethodHandles.insertArguments(
+                find("regularPay", double.class, double.class, double.class), 0, policy.getStandardWeeklyHours()));
+        OVERTIME_PAY.setTarget(MethodHandles.insertArguments(
+                find("overtimePay", double.class, double.class, double.class, double.class), 0,
+                policy.getStandardWeeklyHours(), policy.getOvertimeMultiplier()));
+        PREMIUM_PAY.setTarget(compilePremiumPay(policy));
+        MutableCallSite.syncAll(new MutableCallSite[] {HOURS_WORKED, REGULAR_PAY, OVERTIME_PAY, PREMIUM_PAY});
+    }
+
+    private static MethodHandle compileHoursWorked(PayPolicy policy) {
+        MethodHandle hours = find("span", double.class, double.class);
+        if (policy.getLunchBreakHours() != 0) {
+            MethodHandle lunchBreak = MethodHandles.insertArguments(
+                    find("lunchBreak", double.class, double.class, double.class), 0,
+                    policy.getLunchBreakAfter(), policy.getLunchBreakHours());
+            hours = MethodHandles.filterReturnValue(hours, lunchBreak);
+        }
+        return hours;
+    }
+
+    private static MethodHandle compilePremiumPay(PayPolicy policy) {
+        MethodHandle premium = null;
+        if (policy.getNightRate() != 0) {
+            premium = MethodHandles.insertArguments(find("nightPremium", double.class, double.class, double.class,
+                    int.class, double.class, double.class, double.class, double.class), 0,
+                    policy.getNightStart(), policy.getNightEnd(), policy.getNightRate());
+        }
+        if (policy.getRestDays() != 0 && policy.getRestDayMultiplier() != 1) {
+            MethodHandle restDay = MethodHandles.insertArguments(find("restDayPremium", int.class, double.class,
+                    int.class, double.class, double.class, double.class, double.class), 0,
+                    policy.getRestDays(), policy.getRestDayMultiplier() - 1);
+            premium = premium == null ? restDay : sum(premium, restDay);
+        }
+        if (premium == null) {
+            // No premiums: the chain is just the constant 0
+            return MethodHandles.dropArguments(MethodHandles.constant(double.class, 0.0), 0,
+                    PREMIUM_TYPE.parameterList());
+        }
+        return premium;
+    }
+
+    /**
+     * Combines two premium handles into one that returns the sum of both
+     */
+    private static MethodHandle sum(MethodHandle first, MethodHandle second) {
+        // add(first(a...), second(b...)), then a and b are made the same arguments
+        MethodHandle add = find("add", double.class, double.class);
+        MethodHandle both = MethodHandles.collectArguments(MethodHandles.collectArguments(add, 1, second), 0, first);
+        int count = PREMIUM_TYPE.parameterCount();
+        int[] order = new int[2 * count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            order[count + i] = i;
+        }
+        return MethodHandles.permuteArguments(both, PREMIUM_TYPE, order);
+    }
+
+    private static MethodHandle find(String name, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.lookup().findStatic(PayRules.class, name,
+                    MethodType.methodType(double.class, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing pay rule " + name, e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IllegalStateException(e);
+    }
+
+    // The rules themselves; the policy's numbers are bound to the leading parameters
+
+    private static double span(double clockInTime, double clockOutTime) {
+        return clockOutTime - clockInTime;
+    }
+
+    private static double lunchBreak(double after, double breakHours, double hoursWorked) {
+        // Deduct the lunch break if the employee worked more than the policy's hours
+        if (hoursWorked > after) {
+            hoursWorked -= breakHours;
+        }
+        return hoursWorked;
+    }
+
+    private static double regularPay(double standardHours, double totalHours, double hourlyRate) {
+        double regularHours = Math.min(standardHours, totalHours);
+        return regularHours * hourlyRate;
+    }
+
+    private static double overtimePay(double standardHours, double multiplier, double totalHours, double hourlyRate) {
+        double overtimeHours = Math.max(0, totalHours - standardHours);
+        return overtimeHours * hourlyRate * multiplier;
+    }
+
+    private static double nightPremium(double nightStart, double nightEnd, double nightRate, int dayIndex,
+            double clockInTime, double clockOutTime, double hoursWorked, double hourlyRate) {
+        double nightHours;
+        if (nightStart < nightEnd) {
+            // Night within one day (e.g. 0:00 to 6:00), and again the next day for shifts past midnight
+            nightHours = overlap(clockInTime, clockOutTime, nightStart, nightEnd)
+                    + overlap(clockInTime, clockOutTime, 24 + nightStart, 24 + nightEnd);
+        } else {
+            // Night across midnight (e.g. 22:00 to 6:00): the early morning, and the evening into the next day
+            nightHours = overlap(clockInTime, clockOutTime, 0, nightEnd)
+                    + overlap(clockInTime, clockOutTime, nightStart, 24 + nightEnd);
+        }
+        return nightHours * hourlyRate * nightRate;
+    }
+
+    private static double restDayPremium(int restDays, double extraMultiplier, int dayIndex,
+            double clockInTime, double clockOutTime, double hoursWorked, double hourlyRate) {
+        if ((restDays & (1 << dayIndex)) == 0) {
+            return 0;
+        }
+        return hoursWorked * hourlyRate * extraMultiplier;
+    }
+
+    private static double add(double first, double second) {
+        return first + second;
+    }
+
+    private static double overlap(double from, double to, double windowStart, double windowEnd) {
+        return Math.max(0, Math.min(to, windowEnd) - Math.max(from, windowStart));
+    }
+}
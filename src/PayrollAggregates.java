@@ -0,0 +1,442 @@
+/**
+ * PayrollAggregates.java
+ *
+ * Company-wide totals of a calculated payroll: total hours and overtime hours,
+ * regular and overtime pay, gross, each weekly deduction, total deductions and
+ * net pay, a histogram of employees by monthly salary band (with the gross and
+ * net of each band), and the top earners by gross weekly salary.
+ *
+ * The roster is read once. In parallel mode every fork/join leaf fills its own
+ * PayrollAggregates for its range and the halves are merged as the tasks join,
+ * so no thread ever writes to an object another thread uses (no locks).
+ * Amounts are added with CompensatedTotal, so the totals do not depend on how
+ * the roster was split. Top earners with the same gross are ordered by ID.
+ *
+ * It works on Employee results, on an EmployeeColumns roster (--aggregates in
+ * MotorPHEmployeeSystem), one employee at a time as a streaming run goes (add),
+ * and on a saved PayrollSnapshot without recalculating anything:
+ *   java PayrollAggregates payroll.snap [--threads 8] [--top 10] [--bands 20000,40000,60000]
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+class PayrollAggregates {
+    // Monthly salary band bounds: a band holds salaries from its bound up to the next one
+    static final double[] DEFAULT_BANDS = {20000, 30000, 40000, 50000, 60000, 80000, 100000};
+    static final int DEFAULT_TOP_COUNT = 10;
+
+    // Ranges smaller than this are added up directly instead of being split further
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    // Width of the longest histogram bar
+    private static final int BAR_WIDTH = 30;
+
+    // Lowest gross first (ties: highest ID first), so the head is the earner to drop
+    private static final Comparator<Earner> LOWEST_FIRST = Comparator.comparingDouble((Earner e) -> e.grossSalary)
+            .thenComparing(Comparator.comparingInt((Earner e) -> e.employeeId).reversed());
+
+    private final double[] bands;
+    private final int topCount;
+    private final double standardHours = PayPolicy.current().getStandardWeeklyHours();
+
+    private long count;
+    private final CompensatedTotal totalHours = new CompensatedTotal();
+    private final CompensatedTotal overtimeHours = new CompensatedTotal();
+    private final CompensatedTotal regularPay = new CompensatedTotal();
+    private final CompensatedTotal overtimePay = new CompensatedTotal();
+    private final CompensatedTotal grossSalary = new CompensatedTotal();
+    private final CompensatedTotal weeklySSS = new CompensatedTotal();
+    private final CompensatedTotal weeklyPhilHealth = new CompensatedTotal();
+    private final CompensatedTotal weeklyPagibig = new CompensatedTotal();
+    private final CompensatedTotal weeklyTax = new CompensatedTotal();
+    private final CompensatedTotal totalDeductions = new CompensatedTotal();
+    private final CompensatedTotal netSalary = new CompensatedTotal();
+
+    // Per salary band (index = number of bounds less than or equal to the salary)
+    private final long[] bandCounts;
+    private final CompensatedTotal[] bandGross;
+    private final CompensatedTotal[] bandNet;
+
+    private final PriorityQueue<Earner> topEarners;
+
+    /**
+     * Creates empty aggregates
+     * @param bands Ascending monthly salary band bounds
+     * @param topCount Number of top earners to keep
+     */
+    PayrollAggregates(double[] bands, int topCount) {
+        this.bands = bands;
+        this.topCount = Math.max(0, topCount);
+        this.bandCounts = new long[bands.length + 1];
+        this.bandGross = new CompensatedTotal[bands.length + 1];
+        this.bandNet = new CompensatedTotal[bands.length + 1];
+        for (int band = 0; band <= bands.length; band++) {
+            bandGross[band] = new CompensatedTotal();
+            bandNet[band] = new CompensatedTotal();
+        }
+        this.topEarners = new PriorityQueue<>(this.topCount + 1, LOWEST_FIRST);
+    }
+
+    /**
+     * Aggregates calculated Employee results
+     * @param employees The calculated roster (null entries are skipped)
+     * @param parallelism Number of worker threads to use
+     * @param bands Ascending monthly salary band bounds
+     * @param topCount Number of top earners to keep
+     */
+    static PayrollAggregates aggregate(Employee[] employees, int parallelism, double[] bands, int topCount) {
+        return aggregate((into, from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (employees[i] != null) {
+                    into.add(employees[i]);
+                }
+            }
+        }, employees.length, parallelism, bands, topCount);
+    }
+
+    /**
+     * Aggregates the results of a calculated column-oriented roster
+     * @param columns The calculated roster
+     * @param parallelism Number of worker threads to use
+     * @param bands Ascending monthly salary band bounds
+     * @param topCount Number of top earners to keep
+     */
+    static PayrollAggregates aggregate(EmployeeColumns columns, int parallelism, double[] bands, int topCount) {
+        return aggregate((into, from, to) -> {
+            for (int i = from; i < to; i++) {
+                into.add(columns, i);
+            }
+        }, columns.size(), parallelism, bands, topCount);
+    }
+
+    /**
+     * Aggregates the stored results of a payroll snapshot
+     * @param snapshot The snapshot to read
+     * @param parallelism Number of worker threads to use
+     * @param bands Ascending monthly salary band bounds
+     * @param topCount Number of top earners to keep
+     */
+    static PayrollAggregates aggregate(PayrollSnapshot snapshot, int parallelism, double[] bands, int topCount) {
+        return aggregate((into, from, to) -> {
+            for (int i = from; i < to; i++) {
+                into.add(snapshot, i);
+            }
+        }, snapshot.size(), parallelism, bands, topCount);
+    }
+
+    private static PayrollAggregates aggregate(RangeAggregation aggregation, int count, int parallelism,
+            double[] bands, int topCount) {
+        if (parallelism <= 1) {
+            PayrollAggregates aggregates = new PayrollAggregates(bands, topCount);
+            aggregation.addRange(aggregates, 0, count);
+            return aggregates;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new AggregateTask(aggregation, 0, count, bands, topCount));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds one calculated employee
+     */
+    void add(Employee emp) {
+        add(emp.getMonthlySalary(), emp.getTotalHoursWorked(), emp.getRegularPay(), emp.getOvertimePay(),
+                emp.getWeeklySalary(), emp.getWeeklySSS(), emp.getWeeklyPhilHealth(), emp.getWeeklyPagibig(),
+                emp.getWeeklyTax(), emp.getTotalDeductions(), emp.getNetSalary());
+        if (isTopEarner(emp.getWeeklySalary(), emp.getEmployeeId())) {
+            addTopEarner(new Earner(emp.getEmployeeId(), emp.getLastName(), emp.getFirstName(),
+                    emp.getWeeklySalary(), emp.getNetSalary()));
+        }
+    }
+
+    /**
+     * Adds one employee of a column-oriented roster
+     */
+    void add(EmployeeColumns columns, int index) {
+        double gross = columns.weeklySalary[index];
+        double net = columns.netSalary[index];
+        add(columns.monthlySalaries[index], columns.totalHoursWorked[index], columns.regularPay[index],
+                columns.overtimePay[index], gross, columns.weeklySSS[index], columns.weeklyPhilHealth[index],
+                columns.weeklyPagibig[index], columns.weeklyTax[index], columns.totalDeductions[index], net);
+        int employeeId = columns.getEmployeeId(index);
+        if (isTopEarner(gross, employeeId)) {
+            addTopEarner(new Earner(employeeId, columns.getLastName(index), columns.getFirstName(index),
+                    gross, net));
+        }
+    }
+
+    /**
+     * Adds one record of a snapshot (its names are only read if it is a top earner)
+     */
+    void add(PayrollSnapshot snapshot, int index) {
+        double gross = snapshot.getResult(index, PayrollSnapshot.WEEKLY_SALARY);
+        double net = snapshot.getResult(index, PayrollSnapshot.NET_SALARY);
+        add(snapshot.getMonthlySalary(index), snapshot.getResult(index, PayrollSnapshot.TOTAL_HOURS_WORKED),
+                snapshot.getResult(index, PayrollSnapshot.REGULAR_PAY),
+                snapshot.getResult(index, PayrollSnapshot.OVERTIME_PAY), gross,
+                snapshot.getResult(index, PayrollSnapshot.WEEKLY_SSS),
+                snapshot.getResult(index, PayrollSnapshot.WEEKLY_PHILHEALTH),
+                snapshot.getResult(index, PayrollSnapshot.WEEKLY_PAGIBIG),
+                snapshot.getResult(index, PayrollSnapshot.WEEKLY_TAX),
+                snapshot.getResult(index, PayrollSnapshot.TOTAL_DEDUCTIONS), net);
+        int employeeId = snapshot.getEmployeeId(index);
+        if (isTopEarner(gross, employeeId)) {
+            addTopEarner(new Earner(employeeId, snapshot.getLastName(index), snapshot.getFirstName(index),
+                    gross, net));
+        }
+    }
+
+    private void add(double monthlySalary, double hours, double regular, double overtime, double gross,
+            double sss, double philHealth, double pagibig, double tax, double deductions, double net) {
+        count++;
+        totalHours.add(hours);
+        overtimeHours.add(Math.max(0, hours - standardHours));
+        regularPay.add(regular);
+        overtimePay.add(overtime);
+        grossSalary.add(gross);
+        weeklySSS.add(sss);
+        weeklyPhilHealth.add(philHealth);
+        weeklyPagibig.add(pagibig);
+        weeklyTax.add(tax);
+        totalDeductions.add(deductions);
+        netSalary.add(net);
+
+        int band = bandOf(monthlySalary);
+        bandCounts[band]++;
+        bandGross[band].add(gross);
+        bandNet[band].add(net);
+    }
+
+    /**
+     * Adds everything another PayrollAggregates (with the same bands) has collected
+     */
+    void merge(PayrollAggregates other) {
+        count += other.count;
+        totalHours.add(other.totalHours);
+        overtimeHours.add(other.overtimeHours);
+        regularPay.add(other.regularPay);
+        overtimePay.add(other.overtimePay);
+        grossSalary.add(other.grossSalary);
+        weeklySSS.add(other.weeklySSS);
+        weeklyPhilHealth.add(other.weeklyPhilHealth);
+        weeklyPagibig.add(other.weeklyPagibig);
+        weeklyTax.add(other.weeklyTax);
+        totalDeductions.add(other.totalDeductions);
+        netSalary.add(other.netSalary);
+        for (int band = 0; band < bandCounts.length; band++) {
+            bandCounts[band] += other.bandCounts[band];
+            bandGross[band].add(other.bandGross[band]);
+            bandNet[band].add(other.bandNet[band]);
+        }
+        for (Earner earner : other.topEarners) {
+            if (isTopEarner(earner.grossSalary, earner.employeeId)) {
+                addTopEarner(earner);
+            }
+        }
+    }
+
+    // Checked before an Earner is created, so most employees cost no allocation
+    private boolean isTopEarner(double gross, int employeeId) {
+        if (topEarners.size() < topCount) {
+            return true;
+        }
+        Earner lowest = topEarners.peek();
+        return lowest != null && (gross > lowest.grossSalary
+                || (gross == lowest.grossSalary && employeeId < lowest.employeeId));
+    }
+
+    private void addTopEarner(Earner earner) {
+        topEarners.add(earner);
+        if (topEarners.size() > topCount) {
+            topEarners.poll();
+        }
+    }
+
+    /**
+     * Number of bounds less than or equal to the salary, which is the band index
+     */
+    private int bandOf(double monthlySalary) {
+        int low = 0;
+        int high = bands.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bands[middle] <= monthlySalary) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Prints the aggregate section of the payroll report
+     */
+    void print() {
+        System.out.println("\nPAYROLL AGGREGATES (" + count + " employees)");
+        System.out.println("========================================================================");
+        System.out.println("  Total Hours: " + String.format("%.2f", totalHours.value()));
+        System.out.println("  Overtime Hours: " + String.format("%.2f", overtimeHours.value()));
+        System.out.println("  Regular Pay: ₱" + String.format("%.2f", regularPay.value()));
+        System.out.println("  Overtime Pay: ₱" + String.format("%.2f", overtimePay.value()));
+        System.out.println("  Total Gross: ₱" + String.format("%.2f", grossSalary.value()));
+        System.out.println("  SSS Contributions: ₱" + String.format("%.2f", weeklySSS.value()));
+        System.out.println("  PhilHealth Contributions: ₱" + String.format("%.2f", weeklyPhilHealth.value()));
+        System.out.println("  Pag-IBIG Contributions: ₱" + String.format("%.2f", weeklyPagibig.value()));
+        System.out.println("  Withholding Tax: ₱" + String.format("%.2f", weeklyTax.value()));
+        System.out.println("  Total Deductions: ₱" + String.format("%.2f", totalDeductions.value()));
+        System.out.println("  Total Net: ₱" + String.format("%.2f", netSalary.value()));
+
+        System.out.println("\nEmployees by Monthly Salary:");
+        long largest = Arrays.stream(bandCounts).max().orElse(0);
+        for (int band = 0; band < bandCounts.length; band++) {
+            int bar = largest == 0 ? 0 : (int) (BAR_WIDTH * bandCounts[band] / largest);
+            System.out.printf("  %-17s %8d  Gross ₱%-14.2f Net ₱%-14.2f %s\n", bandLabel(band), bandCounts[band],
+                    bandGross[band].value(), bandNet[band].value(), "#".repeat(bar));
+        }
+
+        System.out.println("\nTop " + topEarners.size() + " Earners (gross weekly salary):");
+        List<Earner> earners = new ArrayList<>(topEarners);
+        earners.sort(LOWEST_FIRST.reversed());
+        for (Earner earner : earners) {
+            System.out.printf("  %-8d %-25s Gross ₱%-12.2f Net ₱%.2f\n", earner.employeeId,
+                    earner.lastName + ", " + earner.firstName, earner.grossSalary, earner.netSalary);
+        }
+        System.out.println("========================================================================");
+    }
+
+    private String bandLabel(int band) {
+        if (bands.length == 0) {
+            return "All";
+        }
+        if (band == 0) {
+            return String.format("Under %.0f", bands[0]);
+        }
+        if (band == bands.length) {
+            return String.format("%.0f and over", bands[band - 1]);
+        }
+        return String.format("%.0f - %.0f", bands[band - 1], bands[band]);
+    }
+
+    /**
+     * Parses band bounds such as "20000,40000,60000"
+     * @throws IllegalArgumentException If a bound is not a number or the bounds are not ascending
+     */
+    static double[] parseBands(String text) {
+        String[] parts = text.split(",");
+        double[] bounds = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            bounds[i] = Double.parseDouble(parts[i].trim());
+            if (i > 0 && !(bounds[i] > bounds[i - 1])) {
+                throw new IllegalArgumentException("Salary bands must be in ascending order: " + text);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Prints the aggregates of a saved PayrollSnapshot
+     * @param args The snapshot file, then options (see the file header)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.out.println("Usage: java PayrollAggregates <snapshot file> [--threads <n>] [--top <n>]"
+                    + " [--bands <bound,bound,...>]");
+            System.exit(2);
+        }
+        int parallelism = Integer.parseInt(getOption(args, "--threads", "1"));
+        int topCount = Integer.parseInt(getOption(args, "--top", String.valueOf(DEFAULT_TOP_COUNT)));
+        String bandText = getOption(args, "--bands", null);
+        double[] bands = bandText != null ? parseBands(bandText) : DEFAULT_BANDS;
+
+        try (PayrollSnapshot snapshot = new PayrollSnapshot(args[0])) {
+            long start = System.nanoTime();
+            PayrollAggregates aggregates = aggregate(snapshot, parallelism, bands, topCount);
+            long nanos = System.nanoTime() - start;
+            aggregates.print();
+            System.out.printf("Aggregated in %.3f ms on %d thread(s)\n", nanos / 1_000_000.0, parallelism);
+        }
+    }
+
+    private static String getOption(String[] args, String option, String defaultValue) {
+        for (int i = 1; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Adds the items of a range to a PayrollAggregates
+     */
+    private interface RangeAggregation {
+        void addRange(PayrollAggregates into, int from, int to);
+    }
+
+    /**
+     * Fork/join task that splits a range in half until it is small enough, then merges the halves
+     */
+    private static class AggregateTask extends RecursiveTask<PayrollAggregates> {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeAggregation aggregation;
+        private final int from;
+        private final int to;
+        private final double[] bands;
+        private final int topCount;
+
+        AggregateTask(RangeAggregation aggregation, int from, int to, double[] bands, int topCount) {
+            this.aggregation = aggregation;
+            this.from = from;
+            this.to = to;
+            this.bands = bands;
+            this.topCount = topCount;
+        }
+
+        @Override
+        protected PayrollAggregates compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                PayrollAggregates aggregates = new PayrollAggregates(bands, topCount);
+                aggregation.addRange(aggregates, from, to);
+                return aggregates;
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask right = new AggregateTask(aggregation, middle, to, bands, topCount);
+            right.fork();
+            PayrollAggregates left = new AggregateTask(aggregation, from, middle, bands, topCount).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+
+    /**
+     * One of the top earners
+     */
+    private static class Earner {
+        final int employeeId;
+        final String lastName;
+        final String firstName;
+        final double grossSalary;
+        final double netSalary;
+
+        Earner(int employeeId, String lastName, String firstName, double grossSalary, double netSalary) {
+            this.employeeId = employeeId;
+            this.lastName = lastName;
+            this.firstName = firstName;
+            this.grossSalary = grossSalary;
+            this.netSalary = netSalary;
+        }
+    }
+}
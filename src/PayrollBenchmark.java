@@ -0,0 +1,306 @@
+/**
+ * PayrollBenchmark.java
+ *
+ * Benchmark suite for the payroll pipeline. Each stage is measured on its own
+ * (reading the file, calculateWeeklySalary, calculateDeductions and the report)
+ * and the whole run end to end, on generated rosters of different sizes.
+ * The pay and deduction calculations are measured with both the double and the
+ * fixed-point (Centavos) arithmetic, the deductions also with lazy lookups
+ * (Employee.lazyDeductions), the pay rules hard-coded and compiled from the
+ * PayPolicy (PayRules), and the columnar roster with the scalar
+ * loops and with VectorPayrollKernel (when started with --add-modules jdk.incubator.vector).
+ *
+ * Every benchmark runs a few warm-up iterations (so the JIT compiler has
+ * optimized the code) and then several measured iterations. For each one it
+ * reports throughput in employees per second, the allocation rate and bytes
+ * allocated per employee, and the number of garbage collections and the time
+ * they took.
+ *
+ * Usage: java -Xmx16g PayrollBenchmark [--sizes 10000,1000000,10000000]
+ *            [--warmup 3] [--iterations 5] [--dir <folder for generated rosters>]
+ * Rosters are created with RosterGenerator (seed 42) and reused if they exist.
+ */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class PayrollBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Keeps benchmark results reachable so the JIT cannot remove the work
+    private static volatile Object sink;
+
+    /**
+     * One benchmarked operation
+     */
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs the benchmark suite
+     * @param args Command line options (see the file header)
+     */
+    public static void main(String[] args) throws Exception {
+        String[] sizes = getOption(args, "--sizes", "10000,1000000,10000000").split(",");
+        int warmup = Integer.parseInt(getOption(args, "--warmup", "3"));
+        int iterations = Integer.parseInt(getOption(args, "--iterations", "5"));
+        String folder = getOption(args, "--dir", System.getProperty("java.io.tmpdir"));
+
+        System.out.println("MOTOR PH PAYROLL BENCHMARK");
+        System.out.println("Java " + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " processors, max heap "
+                + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB");
+        System.out.println(warmup + " warm-up and " + iterations + " measured iterations per benchmark");
+        System.out.println();
+        System.out.printf("%-28s %10s %22s %10s %12s %10s %6s %8s\n", "Benchmark", "Employees",
+                "Throughput (emp/s)", "ms/iter", "Alloc MB/s", "B/emp", "GCs", "GC ms");
+
+        for (String size : sizes) {
+            long count = Long.parseLong(size.trim());
+            String filename = Paths.get(folder, "payroll-benchmark-" + count + ".txt").toString();
+            if (!Files.exists(Paths.get(filename))) {
+                RosterGenerator.generate(filename, count, 42);
+            }
+
+            try {
+                runSuite(filename, count, warmup, iterations);
+            } catch (OutOfMemoryError e) {
+                sink = null;
+                System.out.println(count + " employees: skipped, not enough heap (increase -Xmx)");
+            }
+        }
+    }
+
+    /**
+     * Runs every benchmark for one roster file
+     */
+    private static void runSuite(String filename, long count, int warmup, int iterations) throws Exception {
+        // Stage: reading and parsing the employee file
+        benchmark("readEmployeesFromFile", count, warmup, iterations,
+                () -> sink = MotorPHEmployeeSystem.readEmployeesFromFile(filename));
+
+        // The calculation and report stages work on a roster that is already loaded
+        Employee[] employees = MotorPHEmployeeSystem.readEmployeesFromFile(filename);
+        MotorPHEmployeeSystem.setWeeklyTimesheet(employees);
+        sink = null;
+
+        benchmark("calculateWeeklySalary", count, warmup, iterations, () -> {
+            for (Employee emp : employees) {
+                emp.calculateWeeklySalary();
+            }
+        });
+
+        benchmark("calculateDeductions", count, warmup, iterations, () -> {
+            for (Employee emp : employees) {
+                emp.calculateDeductions();
+            }
+        });
+
+        // Lazy deductions: only the net salary is read, as in the summary report
+        benchmark("calculateDeductions (lazy)", count, warmup, iterations, () -> {
+            Employee.lazyDeductions = true;
+            try {
+                double total = 0;
+                for (Employee emp : employees) {
+                    emp.calculateDeductions();
+                    total += emp.getNetSalary();
+                }
+                sink = total;
+            } finally {
+                Employee.lazyDeductions = false;
+            }
+        });
+
+        // Hours and pay with the rules written out (as Employee had them) and with the
+        // policy compiled by PayRules, on the same clock times
+        benchmark("Pay rules (hard-coded)", count, warmup, iterations, () -> {
+            double total = 0;
+            for (Employee emp : employees) {
+                double hours = 0;
+                for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                    double hoursWorked = emp.getClockOutTime(day) - emp.getClockInTime(day);
+                    if (hoursWorked > 5) {
+                        hoursWorked -= 1;
+                    }
+                    hours += hoursWorked;
+                }
+                double regularHours = Math.min(Employee.STANDARD_WEEKLY_HOURS, hours);
+                double overtimeHours = Math.max(0, hours - Employee.STANDARD_WEEKLY_HOURS);
+                total += regularHours * emp.getHourlyRate()
+                        + overtimeHours * emp.getHourlyRate() * Employee.OVERTIME_RATE_MULTIPLIER;
+            }
+            sink = total;
+        });
+
+        benchmark("Pay rules (compiled policy)", count, warmup, iterations, () -> {
+            double total = 0;
+            for (Employee emp : employees) {
+                double hours = 0;
+                double premium = 0;
+                for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                    double hoursWorked = PayRules.hoursWorked(emp.getClockInTime(day), emp.getClockOutTime(day));
+                    premium += PayRules.premiumPay(day, emp.getClockInTime(day), emp.getClockOutTime(day),
+                            hoursWorked, emp.getHourlyRate());
+                    hours += hoursWorked;
+                }
+                total += PayRules.regularPay(hours, emp.getHourlyRate())
+                        + PayRules.overtimePay(hours, emp.getHourlyRate()) + premium;
+            }
+            sink = total;
+        });
+
+        // The same calculations in fixed-point centavos
+        benchmark("calculateWeeklySalary (fixed)", count, warmup, iterations, () -> {
+            Centavos.enabled = true;
+            try {
+                for (Employee emp : employees) {
+                    emp.calculateWeeklySalary();
+                }
+            } finally {
+                Centavos.enabled = false;
+            }
+        });
+
+        // Deductions without the cache, so the bracket arithmetic itself is measured
+        ContributionSchedule schedule = ContributionSchedule.current();
+        benchmark("DeductionResult (double)", count, warmup, iterations, () -> {
+            for (Employee emp : employees) {
+                sink = new DeductionResult(emp.getMonthlySalary(), schedule);
+            }
+        });
+
+        benchmark("DeductionResult (fixed)", count, warmup, iterations, () -> {
+            Centavos.enabled = true;
+            try {
+                for (Employee emp : employees) {
+                    sink = new DeductionResult(emp.getMonthlySalary(), schedule);
+                }
+            } finally {
+                Centavos.enabled = false;
+            }
+        });
+
+        // The whole calculation on a columnar roster, scalar loops and Vector API
+        EmployeeColumns columns = new EmployeeColumns(employees.length);
+        for (Employee emp : employees) {
+            int index = columns.add(emp);
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                columns.addWorkDay(index, day, emp.getClockInTime(day), emp.getClockOutTime(day));
+            }
+        }
+        benchmark("EmployeeColumns (scalar)", count, warmup, iterations, columns::calculatePayroll);
+
+        PayrollKernel vectorKernel = PayrollKernel.loadVectorKernel();
+        if (vectorKernel != null) {
+            benchmark("EmployeeColumns (vector)", count, warmup, iterations, () -> {
+                EmployeeColumns.kernel = vectorKernel;
+                try {
+                    columns.calculatePayroll();
+                } finally {
+                    EmployeeColumns.kernel = null;
+                }
+            });
+        }
+
+        benchmark("displayWeeklyPayrollReport", count, warmup, iterations,
+                () -> withoutConsoleOutput(() -> MotorPHEmployeeSystem.displayWeeklyPayrollReport(employees)));
+
+        // End to end: the whole program as it runs from the command line
+        String[] mainArgs = {"--file", filename};
+        benchmark("endToEnd (main)", count, warmup, iterations,
+                () -> withoutConsoleOutput(() -> MotorPHEmployeeSystem.main(mainArgs)));
+    }
+
+    /**
+     * Runs one benchmark and prints a result line
+     */
+    private static void benchmark(String name, long count, int warmup, int iterations, Operation operation)
+            throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+
+        double[] seconds = new double[iterations];
+        long allocatedBytes = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (int i = 0; i < iterations; i++) {
+            long gcCountBefore = totalGcCount();
+            long gcMillisBefore = totalGcMillis();
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+
+            operation.run();
+
+            seconds[i] = (System.nanoTime() - start) / 1e9;
+            allocatedBytes += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            gcCount += totalGcCount() - gcCountBefore;
+            gcMillis += totalGcMillis() - gcMillisBefore;
+        }
+
+        // Throughput mean and standard deviation over the measured iterations
+        double mean = 0;
+        double totalSeconds = 0;
+        for (double s : seconds) {
+            mean += count / s;
+            totalSeconds += s;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double s : seconds) {
+            variance += (count / s - mean) * (count / s - mean);
+        }
+        double deviation = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+        System.out.printf("%-28s %10d %12.0f +- %6.0f %10.2f %12.1f %10.1f %6d %8d\n",
+                name, count, mean, deviation,
+                totalSeconds * 1000 / iterations,
+                allocatedBytes / (1024.0 * 1024.0) / totalSeconds,
+                (double) allocatedBytes / (count * (double) iterations),
+                gcCount, gcMillis);
+    }
+
+    /**
+     * Runs an operation with System.out sent to a stream that discards everything
+     */
+    private static void withoutConsoleOutput(Operation operation) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            operation.run();
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static String getOption(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * PayrollEngine.java
+ *
+ * Runs the weekly payroll calculation for a whole roster. The calculation for
+ * each employee is independent, so the parallel mode splits the employee array
+ * into ranges and calculates them on a fork/join pool. Every employee still goes
+ * through the same Employee.calculateWeeklySalary() and calculateDeductions()
+ * calls, so the results are exactly the same as the sequential loop.
+ * The same fork/join splitting is used for the column-oriented EmployeeColumns roster.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+class PayrollEngine {
+    // Ranges smaller than this are calculated directly instead of being split further
+    private static final int SEQUENTIAL_THRESHOLD = 2048;
+
+    // Number of employees calculated together before their report rows are written
+    private static final int REPORT_CHUNK_SIZE = 8192;
+
+    /**
+     * Calculates weekly salaries and deductions for a range of employees on the current thread
+     * @param employees Array of Employee objects
+     * @param from Index of the first employee (inclusive)
+     * @param to Index after the last employee (exclusive)
+     */
+    static void calculateRange(Employee[] employees, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Employee emp = employees[i];
+            if (emp != null) {
+                calculate(emp);
+            }
+        }
+    }
+
+    /**
+     * Calculates one employee's weekly salary and deductions
+     * (timed for PayrollMetrics when metrics are turned on)
+     * @param emp The employee to calculate
+     */
+    static void calculate(Employee emp) {
+        if (PayrollMetrics.enabled) {
+            long start = System.nanoTime();
+            emp.calculateWeeklySalary();
+            emp.calculateDeductions();
+            PayrollMetrics.employeeCalculated(System.nanoTime() - start);
+            return;
+        }
+        emp.calculateWeeklySalary();
+        emp.calculateDeductions(); // Calculate government deductions
+    }
+
+    /**
+     * Calculates weekly salaries and deductions for all employees in parallel
+     * @param employees Array of Employee objects
+     * @param parallelism Number of worker threads to use
+     */
+    static void calculateParallel(Employee[] employees, int parallelism) {
+        runParallel((from, to) -> calculateRange(employees, from, to), employees.length, parallelism);
+    }
+
+    /**
+     * Calculates weekly salaries and deductions for a column-oriented roster in parallel
+     * @param columns The roster to calculate
+     * @param parallelism Number of worker threads to use
+     */
+    static void calculateParallel(EmployeeColumns columns, int parallelism) {
+        runParallel(columns::calculateRange, columns.size(), parallelism);
+    }
+
+    /**
+     * Calculates the payroll and writes the report rows at the same time
+     * The roster is split into chunks that worker threads calculate, while the
+     * calling thread writes each finished chunk in order. Writing the report
+     * therefore overlaps with calculating the chunks after it.
+     * @param employees Array of Employee objects
+     * @param parallelism Number of calculation threads
+     * @param writer Receives the report rows in roster order
+     * @throws IOException If the report cannot be written
+     */
+    static void calculateAndWrite(Employee[] employees, int parallelism, PayrollReportWriter writer)
+            throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int start = 0; start < employees.length; start += REPORT_CHUNK_SIZE) {
+                int from = start;
+                int to = Math.min(employees.length, start + REPORT_CHUNK_SIZE);
+                chunks.add(pool.submit(() -> calculateRange(employees, from, to)));
+            }
+
+            for (int chunk = 0; chunk < chunks.size(); chunk++) {
+                waitFor(chunks.get(chunk));
+                int from = chunk * REPORT_CHUNK_SIZE;
+                int to = Math.min(employees.length, from + REPORT_CHUNK_SIZE);
+                for (int i = from; i < to; i++) {
+                    if (employees[i] != null) {
+                        writer.writeReportRow(employees[i]);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void waitFor(Future<?> chunk) throws IOException {
+        try {
+            chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the payroll calculation", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Payroll calculation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Calculation that can be run on any range of employee indexes
+     */
+    interface RangeCalculation {
+        void calculate(int from, int to);
+    }
+
+    /**
+     * Runs a range calculation over employees 0 to count-1 on a fork/join pool
+     * @param calculation The calculation to run
+     * @param count Number of employees
+     * @param parallelism Number of worker threads to use
+     */
+    static void runParallel(RangeCalculation calculation, int count, int parallelism) {
+        runParallel(calculation, count, parallelism, SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Runs a range calculation over items 0 to count-1 on a fork/join pool
+     * @param calculation The calculation to run
+     * @param count Number of items (employees, or larger units of work such as blocks of employees)
+     * @param parallelism Number of worker threads to use
+     * @param threshold Ranges of at most this many items are not split further
+     */
+    static void runParallel(RangeCalculation calculation, int count, int parallelism, int threshold) {
+        if (parallelism <= 1) {
+            calculation.calculate(0, count);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new PayrollTask(calculation, 0, count, Math.max(1, threshold)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Fork/join task that splits a range of employees in half until it is small enough
+     */
+    private static class PayrollTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeCalculation calculation;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        PayrollTask(RangeCalculation calculation, int from, int to, int threshold) {
+            this.calculation = calculation;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                calculation.calculate(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PayrollTask(calculation, from, middle, threshold),
+                    new PayrollTask(calculation, middle, to, threshold));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * PayrollKernel.java
+ *
+ * A replacement for the calculation loops of EmployeeColumns: it fills in the
+ * salary and deduction columns for a range of employees. A kernel must give
+ * exactly the same results as Employee (same formulas, same order of operations).
+ *
+ * The only kernel is VectorPayrollKernel, which uses the Java Vector API
+ * (jdk.incubator.vector). That module is not part of every Java runtime, so the
+ * kernel is kept in its own source folder (vector/, compiled separately) and
+ * loaded by name, and the scalar loops in EmployeeColumns are used when it
+ * cannot be loaded.
+ */
+
+interface PayrollKernel {
+    /**
+     * Short description for the timings (e.g. the vector size)
+     */
+    String getDescription();
+
+    /**
+     * Calculates the total hours, pay, deductions and net pay of a range of employees
+     * @param columns The roster
+     * @param from Index of the first employee (inclusive)
+     * @param to Index after the last employee (exclusive)
+     */
+    void calculateRange(EmployeeColumns columns, int from, int to);
+
+    /**
+     * Loads VectorPayrollKernel
+     * @return The kernel, or null if this Java runtime cannot run it (the program
+     *         was started without --add-modules jdk.incubator.vector, or the
+     *         kernel was not compiled)
+     */
+    static PayrollKernel loadVectorKernel() {
+        try {
+            return (PayrollKernel) Class.forName("VectorPayrollKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
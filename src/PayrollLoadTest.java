@@ -0,0 +1,161 @@
+/**
+ * PayrollLoadTest.java
+ *
+ * Load test for PayrollService. A number of clients each send payslip requests
+ * one after another (each waits for its answer before sending the next), for
+ * random employees from the roster and random clock times. At the end it prints
+ * the requests per second and the latency percentiles.
+ *
+ * Without --port the service is started inside this program on a free port,
+ * using the roster from --file; with --port an already running service is used.
+ *
+ * Usage: java PayrollLoadTest [--file "Employee Data.txt"] [--port <port>]
+ *            [--clients 64] [--requests 500] [--warmup 100]
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+
+public class PayrollLoadTest {
+    /**
+     * Runs the load test
+     * @param args Command line options (see the file header)
+     */
+    public static void main(String[] args) throws Exception {
+        String filename = getOption(args, "--file", "Employee Data.txt");
+        int clients = Integer.parseInt(getOption(args, "--clients", "64"));
+        int requests = Integer.parseInt(getOption(args, "--requests", "500"));
+        int warmup = Integer.parseInt(getOption(args, "--warmup", "100"));
+
+        Employee[] employees = MotorPHEmployeeSystem.readEmployeesFromFile(filename);
+        int[] ids = new int[employees.length];
+        for (int i = 0; i < employees.length; i++) {
+            ids[i] = employees[i].getEmployeeId();
+        }
+
+        PayrollService service = null;
+        String port = getOption(args, "--port", null);
+        if (port == null) {
+            service = new PayrollService(employees);
+            port = String.valueOf(service.start(0));
+            System.out.println("Started payroll service on port " + port + " (" + service.getExecutorName() + ")");
+        }
+        String baseUrl = "http://localhost:" + port + "/payslip";
+
+        try {
+            // Warm-up so the JIT has compiled the server and client code
+            runClients(baseUrl, ids, clients, warmup);
+
+            long start = System.nanoTime();
+            long[][] latencies = runClients(baseUrl, ids, clients, requests);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] all = new long[clients * requests];
+            for (int c = 0; c < clients; c++) {
+                System.arraycopy(latencies[c], 0, all, c * requests, requests);
+            }
+            Arrays.sort(all);
+
+            System.out.println("PAYROLL SERVICE LOAD TEST");
+            System.out.println("========================================================================");
+            System.out.println("Java " + System.getProperty("java.version") + ", "
+                    + Runtime.getRuntime().availableProcessors() + " processors");
+            System.out.println(clients + " clients x " + requests + " requests = " + all.length + " requests");
+            System.out.printf("Throughput:  %.0f requests/s\n", all.length / seconds);
+            System.out.printf("Latency p50: %.3f ms\n", percentile(all, 0.50) / 1e6);
+            System.out.printf("Latency p90: %.3f ms\n", percentile(all, 0.90) / 1e6);
+            System.out.printf("Latency p99: %.3f ms\n", percentile(all, 0.99) / 1e6);
+            System.out.printf("Latency max: %.3f ms\n", all[all.length - 1] / 1e6);
+            System.out.println("========================================================================");
+        } finally {
+            if (service != null) {
+                service.stop();
+            }
+        }
+    }
+
+    /**
+     * Runs the clients until each has sent its requests
+     * @return Latency of every request in nanoseconds, per client
+     */
+    private static long[][] runClients(String baseUrl, int[] ids, int clients, int requests) throws Exception {
+        long[][] latencies = new long[clients][requests];
+        Thread[] threads = new Thread[clients];
+        Exception[] failure = new Exception[1];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            threads[c] = new Thread(() -> {
+                Random random = new Random(client);
+                try {
+                    for (int r = 0; r < requests; r++) {
+                        String url = baseUrl + "?id=" + ids[random.nextInt(ids.length)] + randomTimesheet(random);
+                        long start = System.nanoTime();
+                        get(url);
+                        latencies[client][r] = System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return latencies;
+    }
+
+    // Clock times between 7:30-9:00 in and 16:30-18:30 out, in 15 minute steps
+    private static String randomTimesheet(Random random) {
+        StringBuilder ins = new StringBuilder("&in=");
+        StringBuilder outs = new StringBuilder("&out=");
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            if (day > 0) {
+                ins.append(',');
+                outs.append(',');
+            }
+            int in = 7 * 60 + 30 + 15 * random.nextInt(7);
+            int out = 16 * 60 + 30 + 15 * random.nextInt(9);
+            ins.append(in / 60).append(':').append(in % 60 < 10 ? "0" : "").append(in % 60);
+            outs.append(out / 60).append(':').append(out % 60 < 10 ? "0" : "").append(out % 60);
+        }
+        return ins.append(outs).toString();
+    }
+
+    /**
+     * Sends one GET request and reads the whole answer (so the connection can be reused)
+     */
+    private static void get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            throw new IOException("HTTP " + status + " for " + url);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            in.readAllBytes();
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int i = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    private static String getOption(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * PayrollMetrics.java
+ *
+ * Built-in instrumentation for payroll runs. When it is turned on (--metrics)
+ * the payroll code records:
+ *   - counters: rows parsed, rows rejected, employees calculated, report rows
+ *   - latency histograms for calculating one employee and writing one report row
+ *   - the time of each PhaseTimer phase (reading the file, calculating, printing, ...)
+ *   - GC count and time, memory allocated by the main thread, deduction cache hits
+ *
+ * The figures can be read over JMX while the program runs (MotorPH:type=PayrollMetrics)
+ * and are printed as one JSON object at the end of the run.
+ *
+ * When metrics are off (the default) every recording point is a single check of
+ * the static enabled flag, so the payroll runs at full speed.
+ */
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+class PayrollMetrics implements PayrollMetricsMBean {
+    /** Checked by every recording point; set once by enable() before the run starts */
+    static boolean enabled;
+
+    private static final PayrollMetrics INSTANCE = new PayrollMetrics();
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Counters
+    private final LongAdder rowsParsed = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
+    private final LongAdder employeesCalculated = new LongAdder();
+    private final LongAdder reportRows = new LongAdder();
+
+    // Latency histograms
+    private final Histogram calculateEmployee = new Histogram();
+    private final Histogram reportRow = new Histogram();
+
+    // Phase durations in nanoseconds, in the order the phases first ran
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    // Figures at the start of the run, to report only what the run itself did
+    private long startNanos;
+    private long startGcCount;
+    private long startGcMillis;
+    private long mainThreadId;
+    private long startAllocatedBytes;
+    private long startCacheHits;
+    private long startCacheMisses;
+
+    /**
+     * Turns metrics on for this run and registers the JMX bean
+     */
+    static void enable() {
+        INSTANCE.startNanos = System.nanoTime();
+        INSTANCE.startGcCount = totalGcCount();
+        INSTANCE.startGcMillis = totalGcMillis();
+        // Read by thread ID: JMX reads the bean from its own threads
+        INSTANCE.mainThreadId = Thread.currentThread().getId();
+        INSTANCE.startAllocatedBytes = THREADS.getThreadAllocatedBytes(INSTANCE.mainThreadId);
+        INSTANCE.startCacheHits = DeductionCache.shared().getHits();
+        INSTANCE.startCacheMisses = DeductionCache.shared().getMisses();
+        enabled = true;
+
+        try {
+            ObjectName name = new ObjectName("MotorPH:type=PayrollMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            System.out.println("Warning: Could not register payroll metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    // Recording points (callers check PayrollMetrics.enabled first)
+    static void rowParsed() {
+        INSTANCE.rowsParsed.increment();
+    }
+
+    static void rowRejected() {
+        INSTANCE.rowsRejected.increment();
+    }
+
+    static void employeeCalculated(long nanos) {
+        INSTANCE.employeesCalculated.increment();
+        INSTANCE.calculateEmployee.record(nanos);
+    }
+
+    static void employeesCalculated(int count) {
+        INSTANCE.employeesCalculated.add(count);
+    }
+
+    static void reportRowWritten(long nanos) {
+        INSTANCE.reportRows.increment();
+        INSTANCE.reportRow.record(nanos);
+    }
+
+    static void phaseFinished(String phase, long nanos) {
+        synchronized (INSTANCE.phaseNanos) {
+            INSTANCE.phaseNanos.merge(phase, nanos, Long::sum);
+        }
+    }
+
+    /**
+     * Prints the machine-readable summary of the run
+     */
+    static void printSummary() {
+        System.out.println("\nPAYROLL METRICS");
+        System.out.println(INSTANCE.getSummaryJson());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long getRowsParsed() {
+        return rowsParsed.sum();
+    }
+
+    @Override
+    public long getRowsRejected() {
+        return rowsRejected.sum();
+    }
+
+    @Override
+    public long getEmployeesCalculated() {
+        return employeesCalculated.sum();
+    }
+
+    @Override
+    public long getReportRows() {
+        return reportRows.sum();
+    }
+
+    /**
+     * Employees calculated per second of run time so far
+     */
+    @Override
+    public double getEmployeesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? getEmployeesCalculated() / seconds : 0;
+    }
+
+    @Override
+    public long getCalculateP50Nanos() {
+        return calculateEmployee.percentile(0.50);
+    }
+
+    @Override
+    public long getCalculateP99Nanos() {
+        return calculateEmployee.percentile(0.99);
+    }
+
+    @Override
+    public long getReportRowP99Nanos() {
+        return reportRow.percentile(0.99);
+    }
+
+    @Override
+    public long getDeductionCacheHits() {
+        return DeductionCache.shared().getHits() - startCacheHits;
+    }
+
+    @Override
+    public long getDeductionCacheMisses() {
+        return DeductionCache.shared().getMisses() - startCacheMisses;
+    }
+
+    @Override
+    public double getDeductionCacheHitRate() {
+        long lookups = getDeductionCacheHits() + getDeductionCacheMisses();
+        return lookups > 0 ? (double) getDeductionCacheHits() / lookups : 0;
+    }
+
+    @Override
+    public long getGcCount() {
+        return totalGcCount() - startGcCount;
+    }
+
+    @Override
+    public long getGcMillis() {
+        return totalGcMillis() - startGcMillis;
+    }
+
+    /**
+     * Bytes allocated by the thread that started the run (worker threads are not included,
+     * -1 once that thread has ended)
+     */
+    @Override
+    public long getMainThreadAllocatedBytes() {
+        long allocated = THREADS.getThreadAllocatedBytes(mainThreadId);
+        return allocated < 0 ? -1 : allocated - startAllocatedBytes;
+    }
+
+    /**
+     * All figures as one JSON object
+     */
+    @Override
+    public String getSummaryJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"elapsedMs\":").append(format((System.nanoTime() - startNanos) / 1e6));
+        json.append(",\"employeesPerSecond\":").append(format(getEmployeesPerSecond()));
+        json.append(",\"counters\":{\"rowsParsed\":").append(getRowsParsed())
+                .append(",\"rowsRejected\":").append(getRowsRejected())
+                .append(",\"employeesCalculated\":").append(getEmployeesCalculated())
+                .append(",\"reportRows\":").append(getReportRows()).append('}');
+
+        json.append(",\"phasesMs\":{");
+        synchronized (phaseNanos) {
+            boolean first = true;
+            for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+                json.append(first ? "" : ",").append('"').append(phase.getKey()).append("\":")
+                        .append(format(phase.getValue() / 1e6));
+                first = false;
+            }
+        }
+        json.append('}');
+
+        json.append(",\"histogramsNanos\":{\"calculateEmployee\":");
+        calculateEmployee.appendJson(json);
+        json.append(",\"reportRow\":");
+        reportRow.appendJson(json);
+        json.append('}');
+
+        json.append(",\"memory\":{\"mainThreadAllocatedBytes\":").append(getMainThreadAllocatedBytes())
+                .append(",\"gcCount\":").append(getGcCount())
+                .append(",\"gcMillis\":").append(getGcMillis()).append('}');
+        json.append(",\"deductionCache\":{\"hits\":").append(getDeductionCacheHits())
+                .append(",\"misses\":").append(getDeductionCacheMisses())
+                .append(",\"hitRate\":").append(format(getDeductionCacheHitRate())).append("}}");
+        return json.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Latency histogram with four buckets per power of two (about 20% resolution),
+     * safe to record into from several threads at once
+     */
+    private static class Histogram {
+        private static final int BUCKETS = 4 + 62 * 4;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            counts.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        // Values 0-3 have their own bucket; above that, the top three bits pick the bucket
+        private static int bucketOf(long value) {
+            if (value < 4) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - 2)) & 3;
+            return 4 + (exponent - 2) * 4 + subBucket;
+        }
+
+        // Largest value that falls into a bucket
+        private static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int exponent = (bucket - 4) / 4 + 2;
+            int subBucket = (bucket - 4) % 4;
+            return ((5L + subBucket) << (exponent - 2)) - 1;
+        }
+
+        /**
+         * Value below which the given fraction of the recorded values fall (bucket upper bound)
+         */
+        long percentile(double fraction) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * n);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank) {
+                    return Math.min(upperBound(bucket), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void appendJson(StringBuilder json) {
+            long n = count.sum();
+            json.append("{\"count\":").append(n)
+                    .append(",\"mean\":").append(format(n > 0 ? (double) total.sum() / n : 0))
+                    .append(",\"p50\":").append(percentile(0.50))
+                    .append(",\"p90\":").append(percentile(0.90))
+                    .append(",\"p99\":").append(percentile(0.99))
+                    .append(",\"max\":").append(max.get()).append('}');
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * PayrollMetricsMBean.java
+ *
+ * JMX view of PayrollMetrics (shown by jconsole/VisualVM under MotorPH:type=PayrollMetrics).
+ * JMX only accepts public management interfaces, so this interface is public.
+ */
+
+public interface PayrollMetricsMBean {
+    boolean isEnabled();
+
+    long getRowsParsed();
+
+    long getRowsRejected();
+
+    long getEmployeesCalculated();
+
+    long getReportRows();
+
+    double getEmployeesPerSecond();
+
+    long getCalculateP50Nanos();
+
+    long getCalculateP99Nanos();
+
+    long getReportRowP99Nanos();
+
+    long getDeductionCacheHits();
+
+    long getDeductionCacheMisses();
+
+    double getDeductionCacheHitRate();
+
+    long getGcCount();
+
+    long getGcMillis();
+
+    long getMainThreadAllocatedBytes();
+
+    String getSummaryJson();
+}
@@ -0,0 +1,362 @@
+/**
+ * PayrollPipeline.java
+ *
+ * Runs the weekly payroll as three stages that work at the same time:
+ *   1. Read:      parse the employee file into batches of employees
+ *   2. Calculate: set each employee's timesheet and calculate the pay (one or more threads)
+ *   3. Report:    write the report rows, in file order, with PayrollReportWriter
+ *
+ * The stages are connected by bounded queues of batches. When a later stage
+ * falls behind, its queue fills up and the stage before it waits (backpressure),
+ * so only a fixed number of batches is ever in memory, however large the file
+ * is, and the run takes about as long as the slowest stage.
+ *
+ * Each stage counts the employees it handled and the time it spent working, and
+ * each queue records how full it was, so printStatistics shows which stage is
+ * the bottleneck.
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+class PayrollPipeline {
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 8;
+
+    // Sent down the pipeline after the last batch
+    private static final Batch END = new Batch(0, 0);
+
+    private final int calculateThreads;
+    private final Consumer<Employee> timesheet;
+
+    // Batches anywhere between the read stage and the end of the report stage. Out-of-order
+    // batches waiting in the report stage count too, so memory stays bounded in every case.
+    private final Semaphore batchesInFlight;
+
+    private final StageQueue parsed = new StageQueue("Read -> Calculate");
+    private final StageQueue calculated = new StageQueue("Calculate -> Report");
+    private final Stage readStage = new Stage("Read");
+    private final Stage calculateStage = new Stage("Calculate");
+    private final Stage reportStage = new Stage("Report");
+
+    private PayrollAggregates aggregates;
+    private volatile Throwable failure;
+    private Employee firstEmployee;
+    private long wallNanos;
+
+    /**
+     * Creates a pipeline
+     * @param calculateThreads Number of threads in the calculate stage
+     * @param timesheet Sets an employee's timesheet before the pay is calculated
+     */
+    PayrollPipeline(int calculateThreads, Consumer<Employee> timesheet) {
+        this.calculateThreads = Math.max(1, calculateThreads);
+        this.timesheet = timesheet;
+        this.batchesInFlight = new Semaphore(2 * QUEUE_CAPACITY + this.calculateThreads + 1);
+    }
+
+    /**
+     * Adds every employee to company-wide aggregates as the report stage writes it
+     * @param aggregates Receives the calculated employees in file order (null for none)
+     */
+    void setAggregates(PayrollAggregates aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Runs the whole pipeline for one employee file
+     * The report header is written before the first row; the closing line and
+     * the detailed calculation are left to the caller (see getFirstEmployee).
+     * @param filename The name of the employee file
+     * @param writer Receives the report
+     * @return Number of employees in the report
+     * @throws IOException If the file cannot be read or the report cannot be written
+     */
+    long run(String filename, PayrollReportWriter writer) throws IOException {
+        long start = System.nanoTime();
+
+        Thread reader = new Thread(() -> read(filename), "payroll-pipeline-read");
+        Thread[] calculators = new Thread[calculateThreads];
+        for (int i = 0; i < calculators.length; i++) {
+            calculators[i] = new Thread(this::calculate, "payroll-pipeline-calculate-" + i);
+        }
+
+        reader.setDaemon(true);
+        reader.start();
+        for (Thread calculator : calculators) {
+            calculator.setDaemon(true);
+            calculator.start();
+        }
+
+        long count;
+        try {
+            // The report stage runs on this thread
+            count = report(writer);
+        } finally {
+            // Stop the other stages if the report stage failed
+            reader.interrupt();
+            for (Thread calculator : calculators) {
+                calculator.interrupt();
+            }
+        }
+        wallNanos = System.nanoTime() - start;
+
+        Throwable error = failure;
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IllegalStateException("Payroll pipeline failed", error);
+        }
+        return count;
+    }
+
+    /**
+     * Stage 1: parses the file and sends batches of employees to the calculate stage
+     */
+    private void read(String filename) {
+        long[] sequence = {0};
+        long[] busyStart = {System.nanoTime()};
+        Batch[] batch = {new Batch(0, BATCH_SIZE)};
+        try {
+            EmployeeFileParser.parse(filename, emp -> {
+                batch[0].add(emp);
+                if (batch[0].size == BATCH_SIZE) {
+                    // Time spent waiting for room in the queue does not count as work
+                    readStage.worked(BATCH_SIZE, System.nanoTime() - busyStart[0]);
+                    acquireBatch();
+                    parsed.put(batch[0]);
+                    batch[0] = new Batch(++sequence[0], BATCH_SIZE);
+                    busyStart[0] = System.nanoTime();
+                }
+            });
+            if (batch[0].size > 0) {
+                readStage.worked(batch[0].size, System.nanoTime() - busyStart[0]);
+                acquireBatch();
+                parsed.put(batch[0]);
+            }
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            // One end marker for every calculate thread
+            for (int i = 0; i < calculateThreads; i++) {
+                parsed.putQuietly(END);
+            }
+        }
+    }
+
+    /**
+     * Stage 2: sets the timesheets and calculates each batch
+     */
+    private void calculate() {
+        try {
+            while (true) {
+                Batch batch = parsed.take();
+                if (batch == END) {
+                    break;
+                }
+                long busyStart = System.nanoTime();
+                for (int i = 0; i < batch.size; i++) {
+                    Employee emp = batch.employees[i];
+                    timesheet.accept(emp);
+                    PayrollEngine.calculate(emp);
+                }
+                calculateStage.worked(batch.size, System.nanoTime() - busyStart);
+                calculated.put(batch);
+            }
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            calculated.putQuietly(END);
+        }
+    }
+
+    /**
+     * Stage 3: writes the calculated batches in file order
+     * Batches from several calculate threads can arrive out of order, so early
+     * ones wait in a small map until the batches before them have been written.
+     * A stage that fails posts an end marker, so this stage wakes up and stops.
+     */
+    private long report(PayrollReportWriter writer) throws IOException {
+        Map<Long, Batch> waiting = new HashMap<>();
+        long nextSequence = 0;
+        long count = 0;
+        int ended = 0;
+        while (ended < calculateThreads) {
+            Batch batch = calculated.take();
+            if (failure != null) {
+                // Another stage failed and its batch will never arrive: stop waiting for it
+                // (run() then stops the other stages and throws the failure)
+                break;
+            }
+            if (batch == END) {
+                ended++;
+                continue;
+            }
+            waiting.put(batch.sequence, batch);
+
+            while ((batch = waiting.remove(nextSequence)) != null) {
+                long busyStart = System.nanoTime();
+                if (nextSequence == 0) {
+                    firstEmployee = batch.employees[0];
+                    writer.writeReportHeader();
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    writer.writeReportRow(batch.employees[i]);
+                    if (aggregates != null) {
+                        aggregates.add(batch.employees[i]);
+                    }
+                }
+                count += batch.size;
+                nextSequence++;
+                batchesInFlight.release();
+                reportStage.worked(batch.size, System.nanoTime() - busyStart);
+            }
+        }
+        return count;
+    }
+
+    private void acquireBatch() {
+        try {
+            batchesInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payroll pipeline stopped", e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * The first employee in the file (for the detailed calculation), or null if there were none
+     */
+    Employee getFirstEmployee() {
+        return firstEmployee;
+    }
+
+    /**
+     * Prints the work done by each stage and how full each queue was
+     */
+    void printStatistics() {
+        System.out.println("\nPIPELINE STAGES (" + calculateThreads + " calculate thread(s), batches of "
+                + BATCH_SIZE + ", queues of " + QUEUE_CAPACITY + ")");
+        System.out.println("========================================================================");
+        System.out.printf("  %-22s %12s %12s %16s\n", "Stage", "Employees", "Busy (ms)", "Employees/s");
+        for (Stage stage : new Stage[] {readStage, calculateStage, reportStage}) {
+            stage.print();
+        }
+        System.out.println("------------------------------------------------------------------------");
+        System.out.printf("  %-22s %12s %12s %12s\n", "Queue", "Batches", "Avg depth", "Max depth");
+        parsed.print();
+        calculated.print();
+        System.out.println("------------------------------------------------------------------------");
+        System.out.printf("  %-22s %12.3f ms\n", "Wall clock", wallNanos / 1e6);
+        System.out.println("========================================================================");
+    }
+
+    /**
+     * A numbered batch of employees in file order
+     */
+    private static class Batch {
+        final long sequence;
+        final Employee[] employees;
+        int size;
+
+        Batch(long sequence, int capacity) {
+            this.sequence = sequence;
+            this.employees = new Employee[capacity];
+        }
+
+        void add(Employee emp) {
+            employees[size++] = emp;
+        }
+    }
+
+    /**
+     * Work counters for one stage (a stage with several threads adds them all up)
+     */
+    private static class Stage {
+        private final String name;
+        private long employees;
+        private long busyNanos;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        synchronized void worked(int count, long nanos) {
+            employees += count;
+            busyNanos += nanos;
+        }
+
+        synchronized void print() {
+            double seconds = busyNanos / 1e9;
+            System.out.printf("  %-22s %12d %12.3f %16.0f\n", name, employees, busyNanos / 1e6,
+                    seconds > 0 ? employees / seconds : 0);
+        }
+    }
+
+    /**
+     * Bounded queue between two stages that records its depth on every put
+     */
+    private static class StageQueue {
+        private final String name;
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private long puts;
+        private long depthTotal;
+        private int maxDepth;
+
+        StageQueue(String name) {
+            this.name = name;
+        }
+
+        void put(Batch batch) {
+            try {
+                queue.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Payroll pipeline stopped", e);
+            }
+            if (batch != END) {
+                recordDepth(queue.size());
+            }
+        }
+
+        // Used for end markers, which must not throw while a stage is shutting down
+        void putQuietly(Batch batch) {
+            try {
+                queue.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Batch take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Payroll pipeline stopped", e);
+            }
+        }
+
+        private synchronized void recordDepth(int depth) {
+            puts++;
+            depthTotal += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        synchronized void print() {
+            System.out.printf("  %-22s %12d %12.2f %12d\n", name, puts,
+                    puts > 0 ? (double) depthTotal / puts : 0, maxDepth);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/**
+ * PayrollReportWriter.java
+ *
+ * Writes the weekly payroll report to a file or channel through one large,
+ * reusable byte buffer. Numbers are turned into text by hand instead of with
+ * printf/String.format, so writing a row does not create any objects.
+ *
+ * The output is byte-for-byte the same as displayWeeklyPayrollReport and
+ * displayDetailedCalculation:
+ *   - "%.2f" rounds the shortest decimal form of a double half-up, so the rare
+ *     amounts that fall on (or within rounding error of) a half centavo are
+ *     checked exactly, and passed to String.format when it is still unclear
+ *   - if the default locale does not use '0'-'9' and '.', every number goes
+ *     through String.format, because printf would print it that way too
+ */
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+class PayrollReportWriter implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    // Amounts at or above this use String.format (the fast path's rounding check needs small values)
+    private static final double FAST_FORMAT_LIMIT = 1e7;
+
+    // How close to a half centavo an amount must be before it needs the exact check
+    private static final double HALF_CENTAVO_TOLERANCE = 1e-6;
+
+    private static final String DOUBLE_LINE = "========================================================================";
+    private static final String SINGLE_LINE = "------------------------------------------------------------------------";
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final ByteBuffer buffer;
+    private final Charset charset;
+    private final CharsetEncoder encoder;
+    private final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    private final boolean plainDigits;
+
+    // Text that never changes, encoded once
+    private final byte[] lineSeparator;
+    private final byte[] reportHeader;
+    private final byte[] doubleLine;
+    private final byte[] nameSeparator;
+
+    /**
+     * Creates a writer for a channel
+     * @param channel Where the report is written
+     * @param closeChannel Whether close() should also close the channel
+     * @param charset Character set for the text (same as the console's for identical output)
+     * @param bufferSize Size of the output buffer in bytes
+     */
+    PayrollReportWriter(WritableByteChannel channel, boolean closeChannel, Charset charset, int bufferSize) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.charset = charset;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        plainDigits = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.'
+                && symbols.getMinusSign() == '-';
+
+        lineSeparator = System.lineSeparator().getBytes(charset);
+        reportHeader = ("\nWEEKLY PAYROLL REPORT" + System.lineSeparator()
+                + DOUBLE_LINE + System.lineSeparator()
+                + String.format("%-8s %-25s %-10s %-10s %-12s %-12s\n",
+                        "ID", "Name", "Hours", "Rate (₱)", "Gross (₱)", "Net (₱)")
+                + SINGLE_LINE + System.lineSeparator()).getBytes(charset);
+        doubleLine = DOUBLE_LINE.getBytes(charset);
+        nameSeparator = ", ".getBytes(charset);
+    }
+
+    /**
+     * Opens a writer for a report file, or for standard output when the name is "-"
+     * @param filename The name of the report file, or "-"
+     * @return A writer with the default buffer size
+     * @throws IOException If the file cannot be created
+     */
+    static PayrollReportWriter open(String filename) throws IOException {
+        if (filename.equals("-")) {
+            // Anything already printed with System.out must come first
+            System.out.flush();
+            String consoleEncoding = System.getProperty("sun.stdout.encoding");
+            Charset charset = consoleEncoding != null ? Charset.forName(consoleEncoding) : Charset.defaultCharset();
+            return new PayrollReportWriter(Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+                    false, charset, DEFAULT_BUFFER_SIZE);
+        }
+        FileChannel file = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new PayrollReportWriter(file, true, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the title and column headings of the weekly payroll report
+     */
+    void writeReportHeader() throws IOException {
+        put(reportHeader);
+    }
+
+    /**
+     * Writes one employee's line of the weekly payroll report
+     * @param emp The employee to write
+     */
+    void writeReportRow(Employee emp) throws IOException {
+        writeReportRow(emp.getEmployeeId(), emp.getLastName(), emp.getFirstName(),
+                emp.getTotalHoursWorked(), emp.getHourlyRate(), emp.getWeeklySalary(), emp.getNetSalary());
+    }
+
+    /**
+     * Writes one line of the weekly payroll report from individual values
+     * Same layout as "%-8d %-25s %-10.2f %-10.2f %-12.2f %-12.2f\n".
+     */
+    void writeReportRow(int employeeId, String lastName, String firstName,
+            double totalHoursWorked, double hourlyRate, double weeklySalary, double netSalary) throws IOException {
+        long rowStart = PayrollMetrics.enabled ? System.nanoTime() : 0;
+        ensureSpace(128 + 4 * (lastName.length() + firstName.length()));
+
+        padCharacters(putInt(employeeId), 8);
+        putByte(' ');
+
+        // %-25s pads by number of characters, not bytes
+        putText(lastName);
+        put(nameSeparator);
+        putText(firstName);
+        padCharacters(lastName.length() + 2 + firstName.length(), 25);
+        putByte(' ');
+
+        putAmount(totalHoursWorked, 10);
+        putByte(' ');
+        putAmount(hourlyRate, 10);
+        putByte(' ');
+        putAmount(weeklySalary, 12);
+        putByte(' ');
+        putAmount(netSalary, 12);
+        putByte('\n');
+
+        if (PayrollMetrics.enabled) {
+            PayrollMetrics.reportRowWritten(System.nanoTime() - rowStart);
+        }
+    }
+
+    /**
+     * Writes the closing line of the report and the detailed calculation for the sample employee
+     * @param sampleEmployee The employee to show in detail (null to skip the detail)
+     */
+    void writeReportFooter(Employee sampleEmployee) throws IOException {
+        put(doubleLine);
+        put(lineSeparator);
+        if (sampleEmployee != null) {
+            writeDetailedCalculation(sampleEmployee);
+        }
+    }
+
+    /**
+     * Writes the detailed calculation for a single employee (same text as displayDetailedCalculation)
+     * @param emp The employee to write
+     */
+    void writeDetailedCalculation(Employee emp) throws IOException {
+        line("\nDETAILED CALCULATION (Sample - Employee ID: " + emp.getEmployeeId() + ")");
+        line(DOUBLE_LINE);
+        line("Employee: " + emp.getLastName() + ", " + emp.getFirstName());
+        amountLine("Monthly Salary: ₱", emp.getMonthlySalary(), "");
+        amountLine("Hourly Rate: ₱", emp.getHourlyRate(), "");
+        line("\nHours Worked:");
+        amountLine("  Monday:    ", emp.getDailyHours(0), "");
+        amountLine("  Tuesday:   ", emp.getDailyHours(1), "");
+        amountLine("  Wednesday: ", emp.getDailyHours(2), "");
+        amountLine("  Thursday:  ", emp.getDailyHours(3), "");
+        amountLine("  Friday:    ", emp.getDailyHours(4), "");
+        amountLine("  Total:     ", emp.getTotalHoursWorked(), " hours");
+        line("\nSalary Calculation:");
+        double standardHours = PayPolicy.current().getStandardWeeklyHours();
+        amountLine("  Regular Hours: ", Math.min(standardHours, emp.getTotalHoursWorked()), "");
+        amountLine("  Regular Pay: ₱", emp.getRegularPay(), "");
+
+        double overtimeHours = Math.max(0, emp.getTotalHoursWorked() - standardHours);
+        amountLine("  Overtime Hours: ", overtimeHours, "");
+        amountLine("  Overtime Pay: ₱", emp.getOvertimePay(), "");
+        if (emp.getPremiumPay() != 0) {
+            amountLine("  Premium Pay: ₱", emp.getPremiumPay(), "");
+        }
+        amountLine("  GROSS WEEKLY SALARY: ₱", emp.getWeeklySalary(), "");
+
+        line("\nMonthly Government Deductions Calculation:");
+        amountLine("  Monthly Salary: ₱", emp.getMonthlySalary(), "");
+        amountLine("  SSS Contribution: ₱", emp.getMonthlySSS(), "");
+        amountLine("  PhilHealth Contribution: ₱", emp.getMonthlyPhilHealth(), "");
+        amountLine("  Pag-IBIG Contribution: ₱", emp.getMonthlyPagibig(), "");
+        amountLine("  Total Deductions: ₱", emp.getTotalMonthlyDeductions(), "");
+        amountLine("  Taxable Income: ₱", emp.getTaxableIncome(), "");
+        amountLine("  Withholding Tax: ₱", emp.getMonthlyTax(), "");
+
+        line("\nWeekly Government Deductions:");
+        amountLine("  SSS Contribution: ₱", emp.getWeeklySSS(), "");
+        amountLine("  PhilHealth Contribution: ₱", emp.getWeeklyPhilHealth(), "");
+        amountLine("  Pag-IBIG Contribution: ₱", emp.getWeeklyPagibig(), "");
+        amountLine("  Withholding Tax: ₱", emp.getWeeklyTax(), "");
+        amountLine("  Total Deductions: ₱", emp.getTotalDeductions(), "");
+        line(SINGLE_LINE);
+        amountLine("  NET WEEKLY SALARY: ₱", emp.getNetSalary(), "");
+        line(DOUBLE_LINE);
+    }
+
+    /**
+     * Writes everything in the buffer to the channel
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the buffer and closes the file (standard output is left open)
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    // Detail lines are written once per report, so they can simply use Strings
+    private void line(String text) throws IOException {
+        ensureSpace(4 * text.length() + lineSeparator.length);
+        putText(text);
+        put(lineSeparator);
+    }
+
+    private void amountLine(String label, double amount, String suffix) throws IOException {
+        ensureSpace(4 * (label.length() + suffix.length()) + 64 + lineSeparator.length);
+        putText(label);
+        putAmount(amount, 0);
+        putText(suffix);
+        put(lineSeparator);
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        ensureSpace(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void putByte(char c) {
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Writes text in the report's charset (ASCII characters are copied directly)
+     */
+    private void putText(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Not plain ASCII: let the charset encoder handle the rest of the text
+                encoder.reset();
+                encoder.encode(CharBuffer.wrap(text, i, length), buffer, true);
+                encoder.flush(buffer);
+                return;
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private void padCharacters(int characters, int width) {
+        for (; characters < width; characters++) {
+            buffer.put((byte) ' ');
+        }
+    }
+
+    /**
+     * Writes an int like "%d"
+     * @return Number of characters written
+     */
+    private int putInt(int value) {
+        if (!plainDigits) {
+            String text = String.format(locale, "%d", value);
+            putText(text);
+            return text.length();
+        }
+        int start = buffer.position();
+        long remaining = value;
+        if (remaining < 0) {
+            buffer.put((byte) '-');
+            remaining = -remaining;
+        }
+        putDigits(remaining, 1);
+        return buffer.position() - start;  // Only ASCII, so one byte per character
+    }
+
+    /**
+     * Writes a non-negative number with at least minDigits digits (zero-padded)
+     */
+    private void putDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Writes an amount like "%-<width>.2f" (width 0 means no padding)
+     * Like printf, the padding counts characters: a locale's digits can take more than one byte.
+     */
+    private void putAmount(double amount, int width) {
+        long centavos = roundToCentavos(amount);
+        if (centavos < 0) {
+            String text = String.format(locale, "%.2f", amount);
+            putText(text);
+            padCharacters(text.length(), width);
+        } else {
+            int start = buffer.position();
+            if (Double.doubleToRawLongBits(amount) < 0) {
+                buffer.put((byte) '-');  // "%.2f" keeps the sign, even for -0.00
+            }
+            putDigits(centavos / 100, 1);
+            buffer.put((byte) '.');
+            putDigits(centavos % 100, 2);
+            padCharacters(buffer.position() - start, width);  // Only ASCII, so one byte per character
+        }
+    }
+
+    /**
+     * Rounds the size of an amount to whole centavos the way "%.2f" does
+     * @return Number of centavos, or -1 if String.format has to decide
+     */
+    private long roundToCentavos(double amount) {
+        double size = Math.abs(amount);
+        if (!plainDigits || !(size < FAST_FORMAT_LIMIT)) {
+            return -1;  // Locale digits, NaN, infinity or a very large amount
+        }
+
+        double scaled = size * 100;
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        if (Math.abs(fraction - 0.5) > HALF_CENTAVO_TOLERANCE) {
+            // Clearly below or above half a centavo
+            return (long) whole + (fraction > 0.5 ? 1 : 0);
+        }
+        if (Math.fma(size, 100, -(whole + 0.5)) == 0) {
+            // Exactly half a centavo: "%.2f" rounds half up
+            return (long) whole + 1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * PayrollService.java
+ *
+ * Long-running local HTTP service that calculates payslips on request.
+ * The roster is read once and kept in memory; each request names an employee
+ * and (optionally) the week's clock times, and gets that employee's weekly pay
+ * and deductions back as JSON.
+ *
+ * Endpoints:
+ *   GET /payslip?id=10001&in=8:00,8:00,8:30,8:00,8:00&out=17:00,17:30,17:00,18:00,17:00
+ *       in/out are Monday to Friday, as HH:mm or decimal hours (e.g. 8.5);
+ *       without them the sample timesheet from setWeeklyTimesheet is used
+ *   GET /health
+ *       also gives the roster version and number of employees
+ *
+ * The roster is an immutable Roster held in a volatile field. Each request reads
+ * the field once and uses that Roster to the end, so a new roster (see
+ * RosterReloader) can be swapped in at any time without locks: requests already
+ * running finish on the old one. Every request builds its own Employee from the
+ * roster's information and runs the usual calculateWeeklySalary/
+ * calculateDeductions on it, so requests do not share any object they write to
+ * (the DeductionCache is safe to share).
+ *
+ * Requests run on virtual threads when the Java runtime has them (Java 21 and
+ * later); on older runtimes a pool of platform threads is used instead.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class PayrollService {
+    // Connections waiting to be accepted before the operating system refuses new ones
+    private static final int BACKLOG = 1024;
+
+    private volatile Roster roster;
+    private HttpServer server;
+    private ExecutorService executor;
+    private String executorName;
+
+    /**
+     * Creates a service for a roster
+     * @param employees The roster (not changed by the service)
+     */
+    PayrollService(Employee[] employees) {
+        this.roster = new Roster(employees, 1);
+    }
+
+    /**
+     * Gets the roster requests are answered from
+     */
+    Roster getRoster() {
+        return roster;
+    }
+
+    /**
+     * Answers every request that starts from now on from a new roster
+     * (requests already running finish with the roster they started with)
+     * @param roster The new roster
+     */
+    void setRoster(Roster roster) {
+        this.roster = roster;
+    }
+
+    /**
+     * Starts answering requests
+     * @param port TCP port to listen on (0 picks a free port)
+     * @return The port the service listens on
+     * @throws IOException If the port cannot be opened
+     */
+    int start(int port) throws IOException {
+        // Send small answers right away instead of waiting to fill a TCP packet
+        // (otherwise each answer can wait ~40 ms for the client's delayed ACK)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/payslip", this::handlePayslip);
+        server.createContext("/health", this::handleHealth);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the service
+     */
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Describes the threads requests run on ("virtual threads" or "platform thread pool")
+     */
+    String getExecutorName() {
+        return executorName;
+    }
+
+    /**
+     * Creates a virtual-thread-per-request executor if the runtime has one
+     * The method is looked up by name so the code still compiles and runs on Java 17.
+     */
+    private ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService virtualThreads = (ExecutorService) factory.invoke(null);
+            executorName = "virtual threads";
+            return virtualThreads;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            executorName = "platform thread pool";
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        Roster current = roster;
+        respond(exchange, 200, "{\"status\":\"ok\",\"rosterVersion\":" + current.getVersion()
+                + ",\"employees\":" + current.size() + "}");
+    }
+
+    private void handlePayslip(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            URI uri = exchange.getRequestURI();
+            String query = uri.getRawQuery() != null ? uri.getRawQuery() : "";
+            String id = queryParameter(query, "id");
+            if (id == null) {
+                respond(exchange, 400, error("Missing id"));
+                return;
+            }
+
+            Employee rosterEmployee = roster.find(Integer.parseInt(id.trim()));
+            if (rosterEmployee == null) {
+                respond(exchange, 404, error("Employee ID " + id + " was not found"));
+                return;
+            }
+
+            Employee emp = calculatePayslip(rosterEmployee,
+                    queryParameter(query, "in"), queryParameter(query, "out"));
+            respond(exchange, 200, toJson(emp));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            // Still answer the request, and keep the details for the log
+            e.printStackTrace();
+            respond(exchange, 500, error("Internal error"));
+        }
+    }
+
+    /**
+     * Calculates one employee's weekly pay on a private copy of the employee
+     * @param rosterEmployee The employee in the roster (only read)
+     * @param clockIns Comma-separated clock in times, or null for the sample timesheet
+     * @param clockOuts Comma-separated clock out times, or null for the sample timesheet
+     * @return A new, calculated Employee
+     */
+    static Employee calculatePayslip(Employee rosterEmployee, String clockIns, String clockOuts) {
+        Employee emp = new Employee(rosterEmployee.getEmployeeId(), rosterEmployee.getLastName(),
+                rosterEmployee.getFirstName(), rosterEmployee.getBirthday(), rosterEmployee.getMonthlySalary());
+
+        if (clockIns == null && clockOuts == null) {
+            MotorPHEmployeeSystem.setWeeklyTimesheet(emp);
+        } else {
+            if (clockIns == null || clockOuts == null) {
+                throw new IllegalArgumentException("Both in and out times are needed");
+            }
+            String[] ins = clockIns.split(",");
+            String[] outs = clockOuts.split(",");
+            if (ins.length != outs.length || ins.length > Employee.WORK_DAYS) {
+                throw new IllegalArgumentException("Give the same number of in and out times (at most "
+                        + Employee.WORK_DAYS + ")");
+            }
+            for (int day = 0; day < ins.length; day++) {
+                emp.addWorkDay(day, parseTime(ins[day]), parseTime(outs[day]));
+            }
+        }
+
+        emp.calculateWeeklySalary();
+        emp.calculateDeductions();
+        return emp;
+    }
+
+    /**
+     * Parses a time of day as HH:mm or decimal hours
+     * @return The time in decimal hours
+     */
+    static double parseTime(String text) {
+        text = text.trim();
+        int colon = text.indexOf(':');
+        if (colon < 0) {
+            return Double.parseDouble(text);
+        }
+        int hours = Integer.parseInt(text.substring(0, colon));
+        int minutes = Integer.parseInt(text.substring(colon + 1));
+        if (minutes < 0 || minutes > 59) {
+            throw new IllegalArgumentException("Invalid time: " + text);
+        }
+        return hours + minutes / 60.0;
+    }
+
+    /**
+     * Finds a parameter in a raw query string
+     * @return The URL-decoded value, or null if the parameter is not there
+     */
+    private static String queryParameter(String query, String name) {
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a payslip as a JSON object
+     */
+    static String toJson(Employee emp) {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"employeeId\":").append(emp.getEmployeeId());
+        json.append(",\"name\":\"");
+        appendEscaped(json, emp.getLastName() + ", " + emp.getFirstName());
+        json.append('"');
+        appendAmount(json, "hoursWorked", emp.getTotalHoursWorked());
+        appendAmount(json, "hourlyRate", emp.getHourlyRate());
+        appendAmount(json, "regularPay", emp.getRegularPay());
+        appendAmount(json, "overtimePay", emp.getOvertimePay());
+        appendAmount(json, "grossPay", emp.getWeeklySalary());
+        appendAmount(json, "sss", emp.getWeeklySSS());
+        appendAmount(json, "philHealth", emp.getWeeklyPhilHealth());
+        appendAmount(json, "pagibig", emp.getWeeklyPagibig());
+        appendAmount(json, "withholdingTax", emp.getWeeklyTax());
+        appendAmount(json, "totalDeductions", emp.getTotalDeductions());
+        appendAmount(json, "netPay", emp.getNetSalary());
+        return json.append('}').toString();
+    }
+
+    private static void appendAmount(StringBuilder json, String name, double amount) {
+        // Locale.ROOT so the decimal point is always '.', as JSON requires
+        json.append(",\"").append(name).append("\":").append(String.format(Locale.ROOT, "%.2f", amount));
+    }
+
+    private static void appendEscaped(StringBuilder json, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        appendEscaped(json, String.valueOf(message));
+        return json.append("\"}").toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/**
+ * PayrollSnapshot.java
+ *
+ * Binary snapshot of the employee roster together with its calculated payroll.
+ * A snapshot is written once from the text file (see write) and can then be
+ * opened with memory mapping: nothing is parsed or calculated when it is opened,
+ * and any record can be read directly by its index.
+ *
+ * File layout (all numbers little-endian):
+ *   Header (64 bytes)
+ *     int    magic            "MPHS"
+ *     int    version          VERSION
+ *     int    recordSize       bytes per record (RECORD_SIZE)
+ *     int    recordCount      number of employees
+ *     long   recordsOffset    where the first record starts
+ *     long   stringsOffset    where the string table starts
+ *     long   stringsLength    size of the string table in bytes
+ *     double standardWeeklyHours  the pay policy's standard week
+ *     (rest of the header is reserved and zero)
+ *   Records, one per employee, all recordSize bytes:
+ *     int    employeeId
+ *     int    lastName, firstName, birthday   offsets into the string table
+ *     double monthlySalary, hourlyRate
+ *     double clockIn[5], clockOut[5]
+ *     double totalHoursWorked, regularPay, overtimePay, weeklySalary
+ *     double monthlySSS, monthlyPhilHealth, monthlyPagibig, totalMonthlyDeductions,
+ *            taxableIncome, monthlyTax
+ *     double weeklySSS, weeklyPhilHealth, weeklyPagibig, weeklyTax,
+ *            totalDeductions, netSalary
+ *     double premiumPay, hoursPerDay[5]
+ *   String table: each string is an unsigned 2-byte length followed by its UTF-8
+ *   bytes. A name shared by many employees is stored once.
+ *
+ * A file with another version or record size is refused (version 1 files have
+ * no premium pay or daily hours and must be converted again).
+ *
+ * Everything the report and the detailed calculation show is stored, so a
+ * snapshot reads back exactly as it was calculated, whatever schedule or
+ * --fixed-point setting the reading run has. The detailed calculation splits the
+ * hours into regular and overtime with the current pay policy's standard week,
+ * so a snapshot made with a different standard week is refused.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class PayrollSnapshot implements Closeable {
+    static final int MAGIC = 0x5348504D;  // "MPHS" in little-endian order
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+
+    // Field positions inside a record
+    private static final int EMPLOYEE_ID = 0;
+    private static final int LAST_NAME = 4;
+    private static final int FIRST_NAME = 8;
+    private static final int BIRTHDAY = 12;
+    private static final int MONTHLY_SALARY = 16;
+    private static final int HOURLY_RATE = 24;
+    private static final int CLOCK_IN = 32;
+    private static final int CLOCK_OUT = CLOCK_IN + 8 * Employee.WORK_DAYS;
+    private static final int RESULTS = CLOCK_OUT + 8 * Employee.WORK_DAYS;
+    private static final int RESULT_COUNT = 16;
+    private static final int PREMIUM_PAY = RESULTS + 8 * RESULT_COUNT;
+    private static final int DAILY_HOURS = PREMIUM_PAY + 8;
+    static final int RECORD_SIZE = DAILY_HOURS + 8 * Employee.WORK_DAYS;
+
+    // Order of the calculated values in the RESULTS part of a record
+    static final int TOTAL_HOURS_WORKED = 0;
+    static final int REGULAR_PAY = 1;
+    static final int OVERTIME_PAY = 2;
+    static final int WEEKLY_SALARY = 3;
+    static final int MONTHLY_SSS = 4;
+    static final int MONTHLY_PHILHEALTH = 5;
+    static final int MONTHLY_PAGIBIG = 6;
+    static final int TOTAL_MONTHLY_DEDUCTIONS = 7;
+    static final int TAXABLE_INCOME = 8;
+    static final int MONTHLY_TAX = 9;
+    static final int WEEKLY_SSS = 10;
+    static final int WEEKLY_PHILHEALTH = 11;
+    static final int WEEKLY_PAGIBIG = 12;
+    static final int WEEKLY_TAX = 13;
+    static final int TOTAL_DEDUCTIONS = 14;
+    static final int NET_SALARY = 15;
+
+    // A mapping can be at most 2 GB, so large snapshots are mapped in several segments
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final int recordCount;
+    private final int recordsPerSegment;
+    private final MappedByteBuffer[] segments;
+    private final MappedByteBuffer strings;
+
+    /**
+     * Opens a snapshot file for reading
+     * Only the header is read here; records are read from the mapped file on demand.
+     * @param filename The name of the snapshot file
+     * @throws IOException If the file cannot be read or is not a valid snapshot
+     */
+    PayrollSnapshot(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // keep reading until the header is complete
+            }
+            if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IOException(filename + " is not a payroll snapshot");
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported payroll snapshot version " + version + " in " + filename
+                        + " (convert the employee file again)");
+            }
+            recordSize = header.getInt(8);
+            recordCount = header.getInt(12);
+            long recordsOffset = header.getLong(16);
+            long stringsOffset = header.getLong(24);
+            long stringsLength = header.getLong(32);
+            double standardWeeklyHours = header.getDouble(40);
+            if (recordSize != RECORD_SIZE || recordCount < 0 || stringsLength > Integer.MAX_VALUE
+                    || recordsOffset + (long) recordSize * recordCount > stringsOffset
+                    || stringsOffset + stringsLength > channel.size()) {
+                throw new IOException(filename + " is damaged (header does not match the file size)");
+            }
+            if (standardWeeklyHours != PayPolicy.current().getStandardWeeklyHours()) {
+                throw new IOException(filename + " was calculated with a standard week of " + standardWeeklyHours
+                        + " hours; open it with the same --pay-policy");
+            }
+
+            // Map the records in segments that each hold a whole number of records
+            recordsPerSegment = (int) (MAX_SEGMENT_SIZE / recordSize);
+            int segmentCount = (int) ((recordCount + (long) recordsPerSegment - 1) / recordsPerSegment);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long first = (long) s * recordsPerSegment;
+                long records = Math.min(recordsPerSegment, recordCount - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        recordsOffset + first * recordSize, records * recordSize);
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            strings = channel.map(FileChannel.MapMode.READ_ONLY, stringsOffset, stringsLength);
+            strings.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a snapshot of a calculated roster
+     * The employees must already have their timesheets and calculated payroll.
+     * @param filename The name of the snapshot file to create
+     * @param employees The employees to store, in report order
+     * @return Number of records written
+     * @throws IOException If there's an error writing the file
+     */
+    static int write(String filename, Employee[] employees) throws IOException {
+        try (FileChannel out = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringTable stringTable = new StringTable();
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Records come right after the header; the header is written last
+            out.position(HEADER_SIZE);
+            int count = 0;
+            for (Employee emp : employees) {
+                if (emp == null) {
+                    continue;
+                }
+                if (buffer.remaining() < RECORD_SIZE) {
+                    writeFully(out, buffer);
+                }
+                putRecord(buffer, emp, stringTable);
+                count++;
+            }
+            writeFully(out, buffer);
+
+            long stringsOffset = HEADER_SIZE + (long) RECORD_SIZE * count;
+            ByteBuffer stringBytes = stringTable.toByteBuffer();
+            long stringsLength = stringBytes.remaining();
+            while (stringBytes.hasRemaining()) {
+                out.write(stringBytes);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(count)
+                    .putLong(HEADER_SIZE).putLong(stringsOffset).putLong(stringsLength)
+                    .putDouble(PayPolicy.current().getStandardWeeklyHours());
+            header.clear();
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+            return count;
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, Employee emp, StringTable stringTable) {
+        buffer.putInt(emp.getEmployeeId());
+        buffer.putInt(stringTable.offsetOf(emp.getLastName()));
+        buffer.putInt(stringTable.offsetOf(emp.getFirstName()));
+        buffer.putInt(stringTable.offsetOf(emp.getBirthday()));
+        buffer.putDouble(emp.getMonthlySalary());
+        buffer.putDouble(emp.getHourlyRate());
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            buffer.putDouble(emp.getClockInTime(day));
+        }
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            buffer.putDouble(emp.getClockOutTime(day));
+        }
+        // Same order as the result constants above
+        buffer.putDouble(emp.getTotalHoursWorked());
+        buffer.putDouble(emp.getRegularPay());
+        buffer.putDouble(emp.getOvertimePay());
+        buffer.putDouble(emp.getWeeklySalary());
+        buffer.putDouble(emp.getMonthlySSS());
+        buffer.putDouble(emp.getMonthlyPhilHealth());
+        buffer.putDouble(emp.getMonthlyPagibig());
+        buffer.putDouble(emp.getTotalMonthlyDeductions());
+        buffer.putDouble(emp.getTaxableIncome());
+        buffer.putDouble(emp.getMonthlyTax());
+        buffer.putDouble(emp.getWeeklySSS());
+        buffer.putDouble(emp.getWeeklyPhilHealth());
+        buffer.putDouble(emp.getWeeklyPagibig());
+        buffer.putDouble(emp.getWeeklyTax());
+        buffer.putDouble(emp.getTotalDeductions());
+        buffer.putDouble(emp.getNetSalary());
+        buffer.putDouble(emp.getPremiumPay());
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            buffer.putDouble(emp.getDailyHours(day));
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Number of employee records in the snapshot
+     */
+    int size() {
+        return recordCount;
+    }
+
+    int getEmployeeId(int index) {
+        return segmentOf(index).getInt(positionOf(index) + EMPLOYEE_ID);
+    }
+
+    String getLastName(int index) {
+        return stringAt(segmentOf(index).getInt(positionOf(index) + LAST_NAME));
+    }
+
+    String getFirstName(int index) {
+        return stringAt(segmentOf(index).getInt(positionOf(index) + FIRST_NAME));
+    }
+
+    String getBirthday(int index) {
+        return stringAt(segmentOf(index).getInt(positionOf(index) + BIRTHDAY));
+    }
+
+    double getMonthlySalary(int index) {
+        return segmentOf(index).getDouble(positionOf(index) + MONTHLY_SALARY);
+    }
+
+    double getHourlyRate(int index) {
+        return segmentOf(index).getDouble(positionOf(index) + HOURLY_RATE);
+    }
+
+    double getClockInTime(int index, int dayIndex) {
+        return segmentOf(index).getDouble(positionOf(index) + CLOCK_IN + 8 * dayIndex);
+    }
+
+    double getClockOutTime(int index, int dayIndex) {
+        return segmentOf(index).getDouble(positionOf(index) + CLOCK_OUT + 8 * dayIndex);
+    }
+
+    /**
+     * Reads one calculated value of a record
+     * @param index Index of the record
+     * @param result One of the result constants (e.g. NET_SALARY)
+     * @return The stored value
+     */
+    double getResult(int index, int result) {
+        return segmentOf(index).getDouble(positionOf(index) + RESULTS + 8 * result);
+    }
+
+    /**
+     * Builds an Employee object for one record
+     * The Employee gets the stored timesheet and the stored results (nothing is
+     * calculated again), so its detailed calculation matches the report row.
+     * @param index Index of the record
+     * @return A new Employee holding the record's information and results
+     */
+    Employee getEmployee(int index) {
+        double monthlySalary = getMonthlySalary(index);
+        Employee emp = new Employee(getEmployeeId(index), getLastName(index), getFirstName(index),
+                getBirthday(index), monthlySalary);
+        MappedByteBuffer segment = segmentOf(index);
+        int position = positionOf(index);
+        for (int day = 0; day < Employee.WORK_DAYS; day++) {
+            emp.recordWorkDay(day, getClockInTime(index, day), getClockOutTime(index, day),
+                    segment.getDouble(position + DAILY_HOURS + 8 * day));
+        }
+
+        DeductionResult deductions = new DeductionResult(monthlySalary,
+                getResult(index, MONTHLY_SSS), getResult(index, MONTHLY_PHILHEALTH),
+                getResult(index, MONTHLY_PAGIBIG), getResult(index, TOTAL_MONTHLY_DEDUCTIONS),
+                getResult(index, TAXABLE_INCOME), getResult(index, MONTHLY_TAX),
+                getResult(index, WEEKLY_SSS), getResult(index, WEEKLY_PHILHEALTH),
+                getResult(index, WEEKLY_PAGIBIG), getResult(index, WEEKLY_TAX),
+                getResult(index, TOTAL_DEDUCTIONS));
+        emp.restoreResults(getResult(index, TOTAL_HOURS_WORKED), getResult(index, REGULAR_PAY),
+                getResult(index, OVERTIME_PAY), segment.getDouble(position + PREMIUM_PAY), getResult(index, WEEKLY_SALARY), deductions,
+                getResult(index, NET_SALARY));
+        return emp;
+    }
+
+    private MappedByteBuffer segmentOf(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        return segments[index / recordsPerSegment];
+    }
+
+    private int positionOf(int index) {
+        return (index % recordsPerSegment) * recordSize;
+    }
+
+    private String stringAt(int offset) {
+        int length = Short.toUnsignedInt(strings.getShort(offset));
+        byte[] bytes = new byte[length];
+        strings.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the file (the mapped records stay readable until they are garbage collected)
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Collects the distinct strings of a snapshot while its records are written
+     */
+    private static class StringTable {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private byte[] bytes = new byte[1 << 16];
+        private int length;
+
+        int offsetOf(String text) {
+            Integer offset = offsets.get(text);
+            if (offset != null) {
+                return offset;
+            }
+            byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+            if (encoded.length > 0xFFFF) {
+                throw new IllegalArgumentException("Text too long for a payroll snapshot: " + text.length() + " characters");
+            }
+            if (length + 2 + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 2 + encoded.length));
+            }
+            int start = length;
+            bytes[length++] = (byte) encoded.length;
+            bytes[length++] = (byte) (encoded.length >>> 8);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+            offsets.put(text, start);
+            return start;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
+}
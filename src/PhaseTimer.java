@@ -0,0 +1,58 @@
+/**
+ * PhaseTimer.java
+ *
+ * Measures how long each phase of a payroll run takes (reading the file,
+ * calculating the payroll, printing the report, ...) and prints a summary.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class PhaseTimer {
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private String currentPhase;
+    private long phaseStartNanos;
+
+    /**
+     * Starts timing a new phase (the phase currently being timed is stopped first)
+     * @param phase Name of the phase shown in the summary
+     */
+    void start(String phase) {
+        stop();
+        currentPhase = phase;
+        phaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops timing the current phase
+     */
+    void stop() {
+        if (currentPhase != null) {
+            long nanos = System.nanoTime() - phaseStartNanos;
+            phaseNanos.merge(currentPhase, nanos, Long::sum);
+            if (PayrollMetrics.enabled) {
+                PayrollMetrics.phaseFinished(currentPhase, nanos);
+            }
+            currentPhase = null;
+        }
+    }
+
+    /**
+     * Prints the time taken by each phase and the total
+     * @param title Heading for the summary (e.g. the execution mode)
+     */
+    void printSummary(String title) {
+        stop();
+        long totalNanos = 0;
+        System.out.println("\nPHASE TIMINGS (" + title + ")");
+        System.out.println("========================================================================");
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            System.out.printf("  %-30s %12.3f ms\n", phase.getKey(), phase.getValue() / 1_000_000.0);
+            totalNanos += phase.getValue();
+        }
+        System.out.println("------------------------------------------------------------------------");
+        System.out.printf("  %-30s %12.3f ms\n", "Total", totalNanos / 1_000_000.0);
+        DeductionCache.shared().printStatistics();
+        System.out.println("========================================================================");
+    }
+}
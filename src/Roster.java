@@ -0,0 +1,55 @@
+/**
+ * Roster.java
+ *
+ * One version of the roster that PayrollService answers requests from: the
+ * employees in file order and an EmployeeIndex over their IDs. A Roster is
+ * never changed after it is built. A new version of the employee file becomes
+ * a new Roster (see RosterReloader) that replaces the old one in a single
+ * write, so a request reads the current Roster once, without a lock, and
+ * sees either the old roster or the new one, never a mix of the two.
+ *
+ * Employees whose record did not change are shared by consecutive versions;
+ * nothing writes to them (a payslip is calculated on a copy).
+ */
+
+class Roster {
+    private final Employee[] employees;
+    private final EmployeeIndex index;
+    private final int version;
+
+    /**
+     * Creates a roster version
+     * @param employees The employees in file order (not changed afterwards)
+     * @param version Number of the version (1 for the roster read at start-up)
+     */
+    Roster(Employee[] employees, int version) {
+        this.employees = employees;
+        this.index = EmployeeIndex.of(employees);
+        this.version = version;
+    }
+
+    /**
+     * Finds an employee by ID
+     * @param employeeId The employee ID to look for
+     * @return The employee (only to be read), or null if the ID is not in the roster
+     */
+    Employee find(int employeeId) {
+        int position = index.find(employeeId);
+        return position < 0 ? null : employees[position];
+    }
+
+    /**
+     * Gets the employee at a position in file order (only to be read)
+     */
+    Employee get(int position) {
+        return employees[position];
+    }
+
+    int size() {
+        return employees.length;
+    }
+
+    int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * RosterGenerator.java
+ *
+ * Generates a synthetic employee data file in the same format as
+ * "Employee Data.txt", for benchmarking the payroll with large rosters.
+ * The names and salary grades are taken from the sample file and picked with a
+ * fixed random seed, so the same arguments always produce the same file.
+ *
+ * It can also write a matching attendance log (see AttendanceLog) for one week,
+ * with a punch for each employee and work day, to test the --dtr option.
+ *
+ * Usage: java RosterGenerator <employee count> [output file] [seed] [attendance log file]
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+public class RosterGenerator {
+    private static final String[] LAST_NAMES = {
+        "Garcia", "Lim", "Aquino", "Reyes", "Hernandez", "Villanueva", "San Jose", "Romualdez",
+        "Atienza", "Alvaro", "Salcedo", "Lopez", "Farala", "Martinez", "Mata", "De Leon",
+        "Rosario", "Bautista", "Lazaro", "Delos Santos", "Santos", "Del Rosario", "Tolentino",
+        "Gutierrez", "Manalaysay", "Villegas", "Ramos", "Maceda", "Aguilar", "Castro"
+    };
+
+    private static final String[] FIRST_NAMES = {
+        "Manuel III", "Antonio", "Bianca Sofia", "Isabella", "Eduard", "Andrea Mae", "Brad",
+        "Alice", "Rosie", "Roderick", "Anthony", "Josie", "Martha", "Leila", "Fredrick",
+        "Christian", "Selena", "Allison", "Cydney", "Mark", "Darlene", "Kolby", "Vella",
+        "Tomas", "Jacklyn", "Percival", "Garfield", "Lizeth", "Carol", "Emelia", "Delia",
+        "John Rafael", "Carlos Ian", "Beatriz"
+    };
+
+    // Salary grades found in the sample file (most employees share one of these)
+    private static final int[] SALARY_GRADES = {
+        22500, 23250, 24000, 24750, 38475, 41850, 42975, 50825, 52670, 53500, 60000, 90000
+    };
+
+    // Monday of the week the attendance log covers
+    private static final int LOG_YEAR = 2025;
+    private static final int LOG_MONTH = 6;
+    private static final int LOG_FIRST_DAY = 2;
+
+    /**
+     * Generates a roster file from the command line
+     * @param args Employee count, output file (default: Employee Data.txt), random seed
+     *             and attendance log file (optional)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java RosterGenerator <employee count> [output file] [seed] [attendance log file]");
+            return;
+        }
+        long count = Long.parseLong(args[0]);
+        String filename = args.length > 1 ? args[1] : "Employee Data.txt";
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        generate(filename, count, seed);
+        System.out.println("Wrote " + count + " employees to " + filename);
+
+        if (args.length > 3) {
+            long punches = generateAttendanceLog(args[3], count, seed);
+            System.out.println("Wrote " + punches + " punches to " + args[3]);
+        }
+    }
+
+    /**
+     * Writes a synthetic employee data file
+     * Nine out of ten employees get one of the standard salary grades; the rest
+     * get an individual salary between 15,000 and 200,000.
+     * @param filename The name of the file to write
+     * @param count Number of employees
+     * @param seed Random seed
+     * @throws IOException If there's an error writing the file
+     */
+    static void generate(String filename, long count, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            StringBuilder line = new StringBuilder(64);
+            for (long i = 0; i < count; i++) {
+                line.setLength(0);
+                line.append(10001 + i).append(',')
+                        .append(LAST_NAMES[random.nextInt(LAST_NAMES.length)]).append(',')
+                        .append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(',');
+                appendTwoDigits(line, 1 + random.nextInt(12)).append('/');
+                appendTwoDigits(line, 1 + random.nextInt(28)).append('/');
+                line.append(1960 + random.nextInt(45)).append(',');
+                if (random.nextInt(10) < 9) {
+                    line.append(SALARY_GRADES[random.nextInt(SALARY_GRADES.length)]);
+                } else {
+                    line.append(15000 + random.nextInt(185001));
+                }
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Writes an attendance log for the employees of a generated roster (IDs 10001 and up)
+     * The log is sorted by date. Each employee clocks in between 7:30 and 9:00 and
+     * out between 16:30 and 18:30; about one in ten days is split into a morning
+     * and an afternoon punch, and about one in fifty days is missed.
+     * @param filename The name of the log file to write
+     * @param count Number of employees
+     * @param seed Random seed
+     * @return Number of punches written
+     * @throws IOException If there's an error writing the file
+     */
+    static long generateAttendanceLog(String filename, long count, long seed) throws IOException {
+        Random random = new Random(seed);
+        long punches = 0;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            StringBuilder line = new StringBuilder(64);
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                for (long i = 0; i < count; i++) {
+                    int chance = random.nextInt(50);
+                    if (chance == 0) {
+                        continue;
+                    }
+                    int clockIn = 7 * 60 + 30 + 15 * random.nextInt(7);
+                    int clockOut = 16 * 60 + 30 + 15 * random.nextInt(9);
+                    if (chance <= 5) {
+                        // Split day: out for lunch at noon, back at 1:00 PM
+                        appendPunch(line, 10001 + i, day, clockIn, 12 * 60, writer);
+                        appendPunch(line, 10001 + i, day, 13 * 60, clockOut, writer);
+                        punches += 2;
+                    } else {
+                        appendPunch(line, 10001 + i, day, clockIn, clockOut, writer);
+                        punches++;
+                    }
+                }
+            }
+        }
+        return punches;
+    }
+
+    private static void appendPunch(StringBuilder line, long employeeId, int day, int clockIn, int clockOut,
+            BufferedWriter writer) throws IOException {
+        line.setLength(0);
+        line.append(employeeId).append(',');
+        appendTwoDigits(line, LOG_MONTH).append('/');
+        appendTwoDigits(line, LOG_FIRST_DAY + day).append('/');
+        line.append(LOG_YEAR).append(',');
+        appendTwoDigits(line, clockIn / 60).append(':');
+        appendTwoDigits(line, clockIn % 60).append(',');
+        appendTwoDigits(line, clockOut / 60).append(':');
+        appendTwoDigits(line, clockOut % 60).append('\n');
+        writer.append(line);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder line, int value) {
+        if (value < 10) {
+            line.append('0');
+        }
+        return line.append(value);
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * RosterReloader.java
+ *
+ * Keeps the roster of a running PayrollService up to date with the employee
+ * file, so new hires and salary changes are served without a restart.
+ * A WatchService on the file's folder wakes a background thread when the file
+ * is written or replaced. The thread waits until the file has been quiet for a
+ * moment (editors and copy tools write a file in several steps), reads it and
+ * compares each record with the employee of the same ID in the current roster:
+ * unchanged employees are reused as they are, and only new or changed records
+ * become new Employee objects. The new Roster is then swapped into the service
+ * in one write. Requests never wait for a reload, and a request that is running
+ * keeps the roster it started with.
+ *
+ * If the file cannot be read, changes while it is being read, or has no valid
+ * employees, the current roster is kept (a later change is picked up again).
+ */
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class RosterReloader implements Runnable {
+    // The file must be unchanged for this long before it is read
+    private static final long QUIET_MILLIS = 200;
+
+    private final Path file;
+    private final PayrollService service;
+    private final WatchService watcher;
+    private Thread thread;
+
+    // Counts from the last reload
+    private int added;
+    private int changed;
+    private int removed;
+    private int unchanged;
+
+    /**
+     * Creates a reloader for a service's employee file
+     * @param filename The employee file the service's roster was read from
+     * @param service The service to give each new roster to
+     * @throws IOException If the file's folder cannot be watched
+     */
+    RosterReloader(String filename, PayrollService service) throws IOException {
+        this.file = Paths.get(filename).toAbsolutePath();
+        this.service = service;
+        this.watcher = file.getFileSystem().newWatchService();
+        // Watch the folder: saving through a temporary file replaces the file itself
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Starts watching the file on a background (daemon) thread
+     */
+    void start() {
+        thread = new Thread(this, "roster-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file: closes the WatchService and ends the background thread
+     * (called when the service shuts down)
+     * @throws IOException If the WatchService cannot be closed
+     */
+    void stop() throws IOException {
+        watcher.close();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (!isAboutFile(watcher.take())) {
+                    continue;
+                }
+                // Let the writer finish before reading (other files in the folder do not delay it)
+                long quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUIET_MILLIS);
+                long remaining;
+                while ((remaining = quietUntil - System.nanoTime()) > 0) {
+                    WatchKey key = watcher.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (key != null && isAboutFile(key)) {
+                        quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUIET_MILLIS);
+                    }
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Reads the employee file and swaps the service to a new roster if any employee changed
+     * @return true if a new roster was swapped in
+     */
+    boolean reload() {
+        long start = System.nanoTime();
+        Roster current = service.getRoster();
+        Roster next;
+        try {
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            next = diff(current);
+            if (Files.size(file) != size || Files.getLastModifiedTime(file).toMillis() != modified) {
+                // Still being written; the next change event reads it again
+                return false;
+            }
+        } catch (IOException e) {
+            System.out.println("Roster not reloaded (keeping version " + current.getVersion() + "): "
+                    + e.getMessage());
+            return false;
+        }
+
+        if (next == null) {
+            System.out.println("Roster not reloaded: no valid employee data found in file (keeping version "
+                    + current.getVersion() + ")");
+            return false;
+        }
+        if (next == current) {
+            return false;
+        }
+        service.setRoster(next);
+        System.out.printf("Roster version %d: %d employees (%d added, %d changed, %d removed, %d unchanged)"
+                + " in %.1f ms\n", next.getVersion(), next.size(), added, changed, removed, unchanged,
+                (System.nanoTime() - start) / 1_000_000.0);
+        return true;
+    }
+
+    /**
+     * Builds the roster for the current employee file, reusing the employees of a roster that did not change
+     * @param current The roster the service uses now
+     * @return The new roster, the current roster if nothing changed, or null if the file has no valid employees
+     * @throws IOException If the file cannot be read
+     */
+    private Roster diff(Roster current) throws IOException {
+        List<Employee> employees = new ArrayList<>(current.size());
+        EmployeeIndex seen = new EmployeeIndex(current.size());
+        added = 0;
+        changed = 0;
+        unchanged = 0;
+        boolean[] sameOrder = {true};
+
+        EmployeeFileParser.parseRecords(file.toString(), (employeeId, lastName, firstName, birthday, monthlySalary) -> {
+            // A repeated ID is compared with nothing (the roster only finds the first one)
+            Employee previous = seen.find(employeeId) < 0 ? current.find(employeeId) : null;
+            seen.add(employeeId, employees.size());
+
+            Employee emp;
+            if (previous != null && previous.getLastName().equals(lastName)
+                    && previous.getFirstName().equals(firstName) && previous.getBirthday().equals(birthday)
+                    && Double.compare(previous.getMonthlySalary(), monthlySalary) == 0) {
+                emp = previous;
+                unchanged++;
+            } else {
+                emp = new Employee(employeeId, lastName, firstName, birthday, monthlySalary);
+                if (previous == null) {
+                    added++;
+                } else {
+                    changed++;
+                }
+            }
+            int position = employees.size();
+            sameOrder[0] &= position < current.size() && current.get(position) == emp;
+            employees.add(emp);
+        });
+
+        removed = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (seen.find(current.get(i).getEmployeeId()) < 0) {
+                removed++;
+            }
+        }
+
+        if (employees.isEmpty()) {
+            return null;
+        }
+        if (sameOrder[0] && employees.size() == current.size()) {
+            return current;
+        }
+        return new Roster(employees.toArray(new Employee[0]), current.getVersion() + 1);
+    }
+
+    /**
+     * Whether a watch key's events include the employee file (the key is reset for the next events)
+     */
+    private boolean isAboutFile(WatchKey key) {
+        boolean aboutFile = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                aboutFile = true;
+            }
+        }
+        key.reset();
+        return aboutFile;
+    }
+}
@@ -0,0 +1,388 @@
+/**
+ * ShardedPayroll.java
+ *
+ * Runs the weekly payroll as several worker processes, each calculating one
+ * shard of the roster, and merges their results into one report.
+ *
+ *   1. Split:  the employee file is parsed once and every valid employee is
+ *              written to the shard file of its shard, chosen by a hash of the
+ *              employee ID or by ID range. The shard of every employee is kept
+ *              (one byte each) to put the report back in file order later.
+ *   2. Run:    every shard is a separate java process running this program with
+ *              --file <shard file> --convert <shard snapshot>, i.e. the usual
+ *              payroll calculation, saved as a PayrollSnapshot. A worker that
+ *              fails (non-zero exit, killed, too slow, or a snapshot with the
+ *              wrong number of employees) is started again, up to a retry limit.
+ *   3. Merge:  the report rows are read from the shard snapshots in the order
+ *              of the original file, and the grand totals are added up in that
+ *              same order, so the report and totals match a single-process run.
+ *
+ * All shards run on this machine; the shard files, snapshots and worker logs
+ * are kept in a work folder (removed after a successful run).
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class ShardedPayroll {
+    /** How employees are assigned to shards */
+    enum ShardBy {
+        HASH, RANGE
+    }
+
+    // A record's shard is stored in one byte
+    static final int MAX_SHARDS = Byte.MAX_VALUE;
+
+    // Options passed on to the workers unchanged
+    private static final List<String> WORKER_VALUE_OPTIONS =
+            Arrays.asList("--schedule", "--pay-policy", "--deduction-cache", "--threads");
+    private static final List<String> WORKER_FLAGS = Arrays.asList("--fixed-point");
+
+    private final int shardCount;
+    private final ShardBy shardBy;
+    private final int maxAttempts;
+    private final long timeoutSeconds;
+    private final Path workFolder;
+    private final List<String> workerOptions = new ArrayList<>();
+
+    // Shard of each employee in file order, and the number of employees per shard
+    private byte[] shardOfEmployee = new byte[1024];
+    private int employeeCount;
+    private final int[] shardSizes;
+
+    // ID range of the roster (for ShardBy.RANGE)
+    private int minId = Integer.MAX_VALUE;
+    private int maxId = Integer.MIN_VALUE;
+
+    // Grand totals of the merged report
+    private final CompensatedTotal totalHours = new CompensatedTotal();
+    private final CompensatedTotal totalGross = new CompensatedTotal();
+    private final CompensatedTotal totalDeductions = new CompensatedTotal();
+    private final CompensatedTotal totalNet = new CompensatedTotal();
+    private int restarts;
+
+    /**
+     * Creates a sharded payroll run
+     * @param shardCount Number of shards (worker processes), 1 to MAX_SHARDS
+     * @param shardBy How employees are assigned to shards
+     * @param maxAttempts How many times a shard's worker is started before the run fails
+     * @param timeoutSeconds Longest a worker may run before it is stopped and restarted (0 for no limit)
+     * @param workFolder Folder for the shard files, snapshots and logs (null for a new temporary folder)
+     * @param args The program's command line, for the options passed on to the workers
+     * @throws IOException If the work folder cannot be created
+     */
+    ShardedPayroll(int shardCount, ShardBy shardBy, int maxAttempts, long timeoutSeconds, String workFolder,
+            String[] args) throws IOException {
+        if (shardCount < 1 || shardCount > MAX_SHARDS) {
+            throw new IllegalArgumentException("The number of shards must be from 1 to " + MAX_SHARDS);
+        }
+        this.shardCount = shardCount;
+        this.shardBy = shardBy;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.timeoutSeconds = timeoutSeconds;
+        this.shardSizes = new int[shardCount];
+        this.workFolder = workFolder != null ? Files.createDirectories(Paths.get(workFolder))
+                : Files.createTempDirectory("payroll-shards");
+
+        for (int i = 0; i < args.length; i++) {
+            if (WORKER_FLAGS.contains(args[i])) {
+                workerOptions.add(args[i]);
+            } else if (WORKER_VALUE_OPTIONS.contains(args[i]) && i + 1 < args.length) {
+                workerOptions.add(args[i]);
+                workerOptions.add(args[++i]);
+            }
+        }
+    }
+
+    /**
+     * Splits the employee file into one file per shard
+     * @param filename The name of the employee file
+     * @return Number of employees in the roster
+     * @throws IOException If the file cannot be read or a shard file cannot be written
+     */
+    int split(String filename) throws IOException {
+        if (shardBy == ShardBy.RANGE) {
+            // A first pass finds the ID range, which is then cut into equal parts
+            // (quietly: the second pass prints the warnings for malformed lines)
+            EmployeeFileParser.scanRecords(filename, (employeeId, lastName, firstName, birthday, monthlySalary) -> {
+                minId = Math.min(minId, employeeId);
+                maxId = Math.max(maxId, employeeId);
+            });
+        }
+
+        // Same charset the workers read with (they get the same file.encoding)
+        Charset charset = Charset.defaultCharset();
+        Writer[] writers = new Writer[shardCount];
+        IOException[] writeError = new IOException[1];
+        try {
+            for (int shard = 0; shard < shardCount; shard++) {
+                writers[shard] = Files.newBufferedWriter(shardFile(shard), charset);
+            }
+            EmployeeFileParser.parseRecords(filename, (employeeId, lastName, firstName, birthday, monthlySalary) -> {
+                int shard = shardOf(employeeId);
+                if (employeeCount == shardOfEmployee.length) {
+                    shardOfEmployee = Arrays.copyOf(shardOfEmployee, employeeCount * 2);
+                }
+                shardOfEmployee[employeeCount++] = (byte) shard;
+                shardSizes[shard]++;
+                if (writeError[0] != null) {
+                    return;
+                }
+                try {
+                    // Double.toString gives back exactly the same salary when it is parsed again
+                    Writer out = writers[shard];
+                    out.write(Integer.toString(employeeId));
+                    out.write(',');
+                    out.write(lastName);
+                    out.write(',');
+                    out.write(firstName);
+                    out.write(',');
+                    out.write(birthday);
+                    out.write(',');
+                    out.write(Double.toString(monthlySalary));
+                    out.write('\n');
+                } catch (IOException e) {
+                    writeError[0] = e;
+                }
+            });
+        } finally {
+            for (Writer writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        if (writeError[0] != null) {
+            throw writeError[0];
+        }
+        return employeeCount;
+    }
+
+    /**
+     * Runs a worker process for every shard, restarting failed workers
+     * @throws IOException If a shard still fails after the last attempt
+     */
+    void runWorkers() throws IOException {
+        Process[] workers = new Process[shardCount];
+        long[] startTimes = new long[shardCount];
+        int[] attempts = new int[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (shardSizes[shard] > 0) {
+                workers[shard] = startWorker(shard);
+                startTimes[shard] = System.nanoTime();
+                attempts[shard] = 1;
+            }
+        }
+
+        // Wait for the shards in order; a failed shard is restarted while the others keep running
+        for (int shard = 0; shard < shardCount; shard++) {
+            while (workers[shard] != null) {
+                String failure = waitForWorker(shard, workers[shard], startTimes[shard]);
+                if (failure == null) {
+                    workers[shard] = null;
+                } else if (attempts[shard] < maxAttempts) {
+                    System.out.println("Shard " + shard + " failed (" + failure + "), restarting it (attempt "
+                            + (attempts[shard] + 1) + " of " + maxAttempts + ")");
+                    restarts++;
+                    attempts[shard]++;
+                    workers[shard] = startWorker(shard);
+                    startTimes[shard] = System.nanoTime();
+                } else {
+                    for (Process worker : workers) {
+                        if (worker != null) {
+                            worker.destroyForcibly();
+                        }
+                    }
+                    throw new IOException("Shard " + shard + " failed " + maxAttempts + " times (" + failure
+                            + "); see " + logFile(shard));
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts the worker process of one shard
+     */
+    private Process startWorker(int shard) throws IOException {
+        Files.deleteIfExists(snapshotFile(shard));
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        // Same heap settings and system properties as this process, and the same charset
+        for (String jvmOption : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (jvmOption.startsWith("-Xm") || jvmOption.startsWith("-Xs") || jvmOption.startsWith("-D")) {
+                command.add(jvmOption);
+            }
+        }
+        command.add("-Dfile.encoding=" + Charset.defaultCharset().name());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MotorPHEmployeeSystem.class.getName());
+        command.add("--file");
+        command.add(shardFile(shard).toString());
+        command.add("--convert");
+        command.add(snapshotFile(shard).toString());
+        command.addAll(workerOptions);
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(logFile(shard).toFile());
+        return builder.start();
+    }
+
+    /**
+     * Waits for a worker and checks its snapshot
+     * @param startTime When the worker was started (System.nanoTime), which the timeout counts from
+     * @return null if the shard finished correctly, otherwise what went wrong
+     */
+    private String waitForWorker(int shard, Process worker, long startTime) throws IOException {
+        try {
+            if (timeoutSeconds > 0) {
+                // Shards are waited for in order, so part of the time may already have passed
+                long remaining = TimeUnit.SECONDS.toNanos(timeoutSeconds) - (System.nanoTime() - startTime);
+                if (!worker.waitFor(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    worker.destroyForcibly().waitFor();
+                    return "no result after " + timeoutSeconds + " s";
+                }
+            } else {
+                worker.waitFor();
+            }
+        } catch (InterruptedException e) {
+            worker.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shard " + shard, e);
+        }
+
+        if (worker.exitValue() != 0) {
+            return "exit code " + worker.exitValue();
+        }
+        try (PayrollSnapshot snapshot = new PayrollSnapshot(snapshotFile(shard).toString())) {
+            if (snapshot.size() != shardSizes[shard]) {
+                return "snapshot has " + snapshot.size() + " employees instead of " + shardSizes[shard];
+            }
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Writes the merged report in the order of the original file and adds up the grand totals
+     * @param writer Receives the report rows
+     * @param aggregates Receives every employee's stored results, in file order (may be null)
+     * @return The first employee of the roster (for the detailed calculation), or null if there were none
+     * @throws IOException If a snapshot cannot be read or the report cannot be written
+     */
+    Employee merge(PayrollReportWriter writer, PayrollAggregates aggregates) throws IOException {
+        PayrollSnapshot[] snapshots = new PayrollSnapshot[shardCount];
+        try {
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (shardSizes[shard] > 0) {
+                    snapshots[shard] = new PayrollSnapshot(snapshotFile(shard).toString());
+                }
+            }
+
+            Employee firstEmployee = null;
+            int[] next = new int[shardCount];
+            for (int i = 0; i < employeeCount; i++) {
+                int shard = shardOfEmployee[i];
+                PayrollSnapshot snapshot = snapshots[shard];
+                int index = next[shard]++;
+                if (i == 0) {
+                    firstEmployee = snapshot.getEmployee(index);
+                }
+
+                double hours = snapshot.getResult(index, PayrollSnapshot.TOTAL_HOURS_WORKED);
+                double gross = snapshot.getResult(index, PayrollSnapshot.WEEKLY_SALARY);
+                double net = snapshot.getResult(index, PayrollSnapshot.NET_SALARY);
+                writer.writeReportRow(snapshot.getEmployeeId(index), snapshot.getLastName(index),
+                        snapshot.getFirstName(index), hours, snapshot.getHourlyRate(index), gross, net);
+
+                totalHours.add(hours);
+                totalGross.add(gross);
+                totalDeductions.add(snapshot.getResult(index, PayrollSnapshot.TOTAL_DEDUCTIONS));
+                totalNet.add(net);
+                if (aggregates != null) {
+                    aggregates.add(snapshot, index);
+                }
+            }
+            return firstEmployee;
+        } finally {
+            for (PayrollSnapshot snapshot : snapshots) {
+                if (snapshot != null) {
+                    snapshot.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the work folder and everything in it
+     */
+    void deleteWorkFiles() throws IOException {
+        for (int shard = 0; shard < shardCount; shard++) {
+            Files.deleteIfExists(shardFile(shard));
+            Files.deleteIfExists(snapshotFile(shard));
+            Files.deleteIfExists(logFile(shard));
+        }
+        File[] left = workFolder.toFile().listFiles();
+        if (left != null && left.length == 0) {
+            Files.delete(workFolder);
+        }
+    }
+
+    /**
+     * Prints the shard sizes and the grand totals of the merged report
+     */
+    void printTotals() {
+        System.out.println("\nSHARDED PAYROLL TOTALS (" + shardCount + " shards by " + shardBy.name().toLowerCase()
+                + ", " + restarts + " restart(s))");
+        System.out.println("========================================================================");
+        System.out.println("  Employees per shard: " + Arrays.toString(shardSizes));
+        System.out.println("  Total Hours: " + String.format("%.2f", totalHours.value()));
+        System.out.println("  Total Gross: ₱" + String.format("%.2f", totalGross.value()));
+        System.out.println("  Total Deductions: ₱" + String.format("%.2f", totalDeductions.value()));
+        System.out.println("  Total Net: ₱" + String.format("%.2f", totalNet.value()));
+        System.out.println("========================================================================");
+    }
+
+    int getEmployeeCount() {
+        return employeeCount;
+    }
+
+    /**
+     * Shard of an employee ID
+     */
+    private int shardOf(int employeeId) {
+        if (shardBy == ShardBy.RANGE) {
+            // Equal parts of the ID range found by the first pass
+            long width = (long) maxId - minId + 1;
+            return (int) (((long) employeeId - minId) * shardCount / width);
+        }
+        // Same hash mixing as EmployeeIndex, so consecutive IDs spread over the shards
+        int h = employeeId * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    private Path shardFile(int shard) {
+        return workFolder.resolve("shard-" + shard + ".txt");
+    }
+
+    private Path snapshotFile(int shard) {
+        return workFolder.resolve("shard-" + shard + ".snap");
+    }
+
+    private Path logFile(int shard) {
+        return workFolder.resolve("shard-" + shard + ".log");
+    }
+}
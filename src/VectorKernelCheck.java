@@ -0,0 +1,161 @@
+/**
+ * VectorKernelCheck.java
+ *
+ * Differential check of VectorPayrollKernel against Employee. Every case is
+ * calculated by an Employee object and, in an EmployeeColumns roster, by the
+ * vector kernel and by the scalar loops; every amount must be exactly the same
+ * (compared bit for bit, not within a tolerance):
+ *   - a sweep of monthly salaries (every 25 centavos by default) with random
+ *     timesheets, including days with no hours and long overtime days, which
+ *     crosses every SSS, PhilHealth, Pag-IBIG and tax bracket
+ *   - optionally every employee in a roster file, with the sample timesheet
+ * The roster is calculated in ranges of different lengths, so partial vectors
+ * at the end of a range are checked too.
+ *
+ * It exits with status 1 if any amount differs, and with status 2 if the
+ * vector kernel cannot be loaded.
+ *
+ * Usage: java --add-modules jdk.incubator.vector VectorKernelCheck
+ *            [--file "Employee Data.txt"] [--max-salary 300000] [--step 0.25] [--seed 42]
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class VectorKernelCheck {
+    private static final String[] AMOUNTS = {
+        "totalHoursWorked", "regularPay", "overtimePay", "weeklySalary", "monthlySSS", "monthlyPhilHealth",
+        "monthlyPagibig", "totalMonthlyDeductions", "taxableIncome", "monthlyTax", "weeklySSS",
+        "weeklyPhilHealth", "weeklyPagibig", "weeklyTax", "totalDeductions", "netSalary"
+    };
+
+    // Lengths of the ranges the roster is calculated in (none is a multiple of a vector size)
+    private static final int[] RANGE_LENGTHS = {1, 3, 7, 13, 1021};
+
+    /**
+     * Runs the check
+     * @param args Command line options (see the file header)
+     */
+    public static void main(String[] args) throws Exception {
+        double maxSalary = Double.parseDouble(getOption(args, "--max-salary", "300000"));
+        long step = Centavos.of(Double.parseDouble(getOption(args, "--step", "0.25")));
+        Random random = new Random(Long.parseLong(getOption(args, "--seed", "42")));
+        String filename = getOption(args, "--file", null);
+
+        PayrollKernel kernel = PayrollKernel.loadVectorKernel();
+        if (kernel == null) {
+            System.out.println("Vector API not available (start Java with --add-modules jdk.incubator.vector)");
+            System.exit(2);
+        }
+
+        // Employees with their timesheets, calculated by Employee
+        List<Employee> employees = new ArrayList<>();
+        long maxCentavos = Centavos.of(maxSalary);
+        for (long salary = 0; salary <= maxCentavos; salary += Math.max(1, step)) {
+            Employee emp = new Employee(employees.size() + 1, "Sweep", "Salary", "01/01/1990",
+                    Centavos.toPesos(salary));
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                if (random.nextInt(10) == 0) {
+                    emp.addWorkDay(day, 0, 0);  // Day off
+                } else {
+                    // Any minute from 6:00 to 10:00 in, 14:00 to 23:00 out
+                    emp.addWorkDay(day, 6 + random.nextInt(241) / 60.0, 14 + random.nextInt(541) / 60.0);
+                }
+            }
+            employees.add(emp);
+        }
+        if (filename != null) {
+            for (Employee emp : MotorPHEmployeeSystem.readEmployeesFromFile(filename)) {
+                MotorPHEmployeeSystem.setWeeklyTimesheet(emp);
+                employees.add(emp);
+            }
+        }
+
+        EmployeeColumns columns = new EmployeeColumns(employees.size());
+        for (Employee emp : employees) {
+            int index = columns.add(emp);
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                columns.addWorkDay(index, day, emp.getClockInTime(day), emp.getClockOutTime(day));
+            }
+            emp.calculateWeeklySalary();
+            emp.calculateDeductions();
+        }
+
+        System.out.println("VECTOR KERNEL vs EMPLOYEE (" + employees.size() + " cases, "
+                + kernel.getDescription() + ")");
+        System.out.println("========================================================================");
+        long vectorDifferences = compare(employees, columns, kernel);
+        long scalarDifferences = compare(employees, columns, null);
+        System.out.println("Amounts that differ, vector kernel: " + vectorDifferences);
+        System.out.println("Amounts that differ, scalar loops:  " + scalarDifferences);
+        boolean passed = vectorDifferences == 0 && scalarDifferences == 0;
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.out.println("========================================================================");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Calculates the columns with a kernel (null for the scalar loops) and counts the amounts that differ
+     */
+    private static long compare(List<Employee> employees, EmployeeColumns columns, PayrollKernel kernel) {
+        EmployeeColumns.kernel = kernel;
+        try {
+            int from = 0;
+            for (int range = 0; from < columns.size(); range++) {
+                int to = Math.min(columns.size(), from + RANGE_LENGTHS[range % RANGE_LENGTHS.length]);
+                columns.calculateRange(from, to);
+                from = to;
+            }
+        } finally {
+            EmployeeColumns.kernel = null;
+        }
+
+        long differences = 0;
+        for (int i = 0; i < employees.size(); i++) {
+            double[] expected = amounts(employees.get(i));
+            double[] actual = amounts(columns, i);
+            for (int amount = 0; amount < AMOUNTS.length; amount++) {
+                if (Double.doubleToLongBits(expected[amount]) != Double.doubleToLongBits(actual[amount])) {
+                    if (differences < 10) {
+                        Employee emp = employees.get(i);
+                        System.out.printf("  %s, salary %.2f: Employee %s, %s %s\n", AMOUNTS[amount],
+                                emp.getMonthlySalary(), expected[amount], kernel != null ? "vector" : "scalar",
+                                actual[amount]);
+                    }
+                    differences++;
+                }
+            }
+        }
+        return differences;
+    }
+
+    private static double[] amounts(Employee emp) {
+        return new double[] {
+            emp.getTotalHoursWorked(), emp.getRegularPay(), emp.getOvertimePay(), emp.getWeeklySalary(),
+            emp.getMonthlySSS(), emp.getMonthlyPhilHealth(), emp.getMonthlyPagibig(),
+            emp.getTotalMonthlyDeductions(), emp.getTaxableIncome(), emp.getMonthlyTax(), emp.getWeeklySSS(),
+            emp.getWeeklyPhilHealth(), emp.getWeeklyPagibig(), emp.getWeeklyTax(), emp.getTotalDeductions(),
+            emp.getNetSalary()
+        };
+    }
+
+    private static double[] amounts(EmployeeColumns columns, int i) {
+        return new double[] {
+            columns.totalHoursWorked[i], columns.regularPay[i], columns.overtimePay[i], columns.weeklySalary[i],
+            columns.monthlySSS[i], columns.monthlyPhilHealth[i], columns.monthlyPagibig[i],
+            columns.totalMonthlyDeductions[i], columns.taxableIncome[i], columns.monthlyTax[i],
+            columns.weeklySSS[i], columns.weeklyPhilHealth[i], columns.weeklyPagibig[i], columns.weeklyTax[i],
+            columns.totalDeductions[i], columns.netSalary[i]
+        };
+    }
+
+    private static String getOption(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
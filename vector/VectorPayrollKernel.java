@@ -0,0 +1,150 @@
+/**
+ * VectorPayrollKernel.java
+ *
+ * PayrollKernel that uses the Java Vector API (jdk.incubator.vector) to calculate
+ * a whole vector of employees at once (4 on AVX2, 8 on AVX-512): the total hours,
+ * regular and overtime pay, PhilHealth, Pag-IBIG, withholding tax and net pay
+ * are plain lane-by-lane arithmetic on the EmployeeColumns arrays.
+ *
+ * Contribution and tax brackets are chosen without branches: every lane starts
+ * with the first bracket's values, and each bracket bound that the lane's salary
+ * has reached blends in the next bracket's values. The SSS contribution is a
+ * table lookup (a gather), so it is looked up one employee at a time.
+ *
+ * Each lane does the same operations, in the same order, as Employee and
+ * DeductionResult, so the results are exactly the same (see VectorKernelCheck).
+ * Fixed-point (--fixed-point) runs always use the scalar loops.
+ *
+ * This class is kept out of src/ so the program builds with a plain javac; it is
+ * compiled in a second step, against the program's classes, with the incubator
+ * module added (and the module is added again when running):
+ *   cd src
+ *   javac -encoding UTF-8 *.java
+ *   javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp . -d . ../vector/VectorPayrollKernel.java
+ *   java --add-modules jdk.incubator.vector MotorPHEmployeeSystem --columnar --vector
+ * The rest of the program does not depend on this class (see PayrollKernel.loadVectorKernel).
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorPayrollKernel implements PayrollKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public String getDescription() {
+        return "Vector API, " + SPECIES.length() + " lanes";
+    }
+
+    @Override
+    public void calculateRange(EmployeeColumns columns, int from, int to) {
+        ContributionSchedule schedule = ContributionSchedule.current();
+        ContributionSchedule.RateTable philHealth = schedule.philHealthTable();
+        ContributionSchedule.RateTable pagibig = schedule.pagibigTable();
+
+        // SSS is a table lookup, so it is done for the whole range before the vector loop
+        for (int i = from; i < to; i++) {
+            columns.monthlySSS[i] = schedule.sssContribution(columns.monthlySalaries[i]);
+        }
+
+        DoubleVector standardHours = DoubleVector.broadcast(SPECIES, Employee.STANDARD_WEEKLY_HOURS);
+        DoubleVector overtimeRate = DoubleVector.broadcast(SPECIES, Employee.OVERTIME_RATE_MULTIPLIER);
+        DoubleVector weeksPerMonth = DoubleVector.broadcast(SPECIES, Employee.WEEKS_PER_MONTH);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+
+        for (int i = from; i < to; i += SPECIES.length()) {
+            // Only the lanes inside the range are read and written (the last vector may be partial)
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, to);
+
+            // Sum up hours from all work days (same order as Employee.calculateWeeklySalary)
+            DoubleVector totalHours = zero;
+            for (int day = 0; day < Employee.WORK_DAYS; day++) {
+                totalHours = totalHours.add(DoubleVector.fromArray(SPECIES, columns.hoursPerDay[day], i, lanes));
+            }
+            DoubleVector hourlyRate = DoubleVector.fromArray(SPECIES, columns.hourlyRates, i, lanes);
+
+            // Regular pay (up to standard 40 hours)
+            DoubleVector regularPay = totalHours.min(standardHours).mul(hourlyRate);
+
+            // Overtime pay (hours beyond standard 40 hours at overtime rate)
+            DoubleVector overtimePay = zero.max(totalHours.sub(standardHours)).mul(hourlyRate).mul(overtimeRate);
+            DoubleVector weeklySalary = regularPay.add(overtimePay);
+
+            // Monthly deductions (same steps as DeductionResult)
+            DoubleVector salary = DoubleVector.fromArray(SPECIES, columns.monthlySalaries, i, lanes);
+            DoubleVector sss = DoubleVector.fromArray(SPECIES, columns.monthlySSS, i, lanes);
+            DoubleVector philHealthAmount = contribution(philHealth, salary);
+            DoubleVector pagibigAmount = contribution(pagibig, salary);
+            DoubleVector totalMonthly = sss.add(philHealthAmount).add(pagibigAmount);
+            DoubleVector taxable = salary.sub(totalMonthly);
+            DoubleVector tax = withholdingTax(schedule, taxable);
+
+            // Weekly deductions and net pay
+            DoubleVector weeklySSS = sss.div(weeksPerMonth);
+            DoubleVector weeklyPhilHealth = philHealthAmount.div(weeksPerMonth);
+            DoubleVector weeklyPagibig = pagibigAmount.div(weeksPerMonth);
+            DoubleVector weeklyTax = tax.div(weeksPerMonth);
+            DoubleVector totalDeductions = weeklySSS.add(weeklyPhilHealth).add(weeklyPagibig).add(weeklyTax);
+
+            totalHours.intoArray(columns.totalHoursWorked, i, lanes);
+            regularPay.intoArray(columns.regularPay, i, lanes);
+            overtimePay.intoArray(columns.overtimePay, i, lanes);
+            weeklySalary.intoArray(columns.weeklySalary, i, lanes);
+            philHealthAmount.intoArray(columns.monthlyPhilHealth, i, lanes);
+            pagibigAmount.intoArray(columns.monthlyPagibig, i, lanes);
+            totalMonthly.intoArray(columns.totalMonthlyDeductions, i, lanes);
+            taxable.intoArray(columns.taxableIncome, i, lanes);
+            tax.intoArray(columns.monthlyTax, i, lanes);
+            weeklySSS.intoArray(columns.weeklySSS, i, lanes);
+            weeklyPhilHealth.intoArray(columns.weeklyPhilHealth, i, lanes);
+            weeklyPagibig.intoArray(columns.weeklyPagibig, i, lanes);
+            weeklyTax.intoArray(columns.weeklyTax, i, lanes);
+            totalDeductions.intoArray(columns.totalDeductions, i, lanes);
+            weeklySalary.sub(totalDeductions).intoArray(columns.netSalary, i, lanes);
+        }
+    }
+
+    /**
+     * min(cap, fixed amount + salary * rate / divisor) with each lane's bracket
+     * (same as ContributionSchedule.RateTable.contribution)
+     */
+    private static DoubleVector contribution(ContributionSchedule.RateTable table, DoubleVector salary) {
+        DoubleVector fixedAmount = DoubleVector.broadcast(SPECIES, table.fixedAmounts[0]);
+        DoubleVector rate = DoubleVector.broadcast(SPECIES, table.rates[0]);
+        DoubleVector divisor = DoubleVector.broadcast(SPECIES, table.divisors[0]);
+        DoubleVector cap = DoubleVector.broadcast(SPECIES, table.caps[0]);
+        for (int bracket = 1; bracket <= table.bounds.length; bracket++) {
+            // Lanes at or above the bound are in this bracket (or a later one)
+            VectorMask<Double> reached = salary.compare(VectorOperators.GE, table.bounds[bracket - 1]);
+            fixedAmount = fixedAmount.blend(table.fixedAmounts[bracket], reached);
+            rate = rate.blend(table.rates[bracket], reached);
+            divisor = divisor.blend(table.divisors[bracket], reached);
+            cap = cap.blend(table.caps[bracket], reached);
+        }
+        return cap.min(fixedAmount.add(salary.mul(rate).div(divisor)));
+    }
+
+    /**
+     * base + (taxable income - excess over) * rate with each lane's bracket
+     * (same as ContributionSchedule.withholdingTax)
+     */
+    private static DoubleVector withholdingTax(ContributionSchedule schedule, DoubleVector taxable) {
+        double[] bounds = schedule.taxBounds();
+        double[] bases = schedule.taxBase();
+        double[] excessOvers = schedule.taxExcessOver();
+        double[] rates = schedule.taxRate();
+
+        DoubleVector base = DoubleVector.broadcast(SPECIES, bases[0]);
+        DoubleVector excessOver = DoubleVector.broadcast(SPECIES, excessOvers[0]);
+        DoubleVector rate = DoubleVector.broadcast(SPECIES, rates[0]);
+        for (int bracket = 1; bracket <= bounds.length; bracket++) {
+            VectorMask<Double> reached = taxable.compare(VectorOperators.GE, bounds[bracket - 1]);
+            base = base.blend(bases[bracket], reached);
+            excessOver = excessOver.blend(excessOvers[bracket], reached);
+            rate = rate.blend(rates[bracket], reached);
+        }
+        return base.add(taxable.sub(excessOver).mul(rate));
+    }
+}